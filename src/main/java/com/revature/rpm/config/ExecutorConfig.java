@@ -0,0 +1,154 @@
+package com.revature.rpm.config;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Defines the thread pools used to move work off of the request threads. Every pool is bounded in
+ * both threads and queued tasks; once a queue is full the submitting thread runs the task itself,
+ * which slows producers down instead of dropping work. The ingestion pool is the exception: its
+ * jobs are kept in Mongo, so it rejects them instead and they wait there for a free worker.
+ *
+ * <p>Also enables scheduled tasks, such as the orphaned object sweep, which run on the scheduler
+ * Spring Boot configures through the spring.task.scheduling properties.
+ */
+@Configuration
+@EnableScheduling
+public class ExecutorConfig {
+
+  /**
+   * Spring Boot only creates its default executor when no other Executor bean exists, so it is
+   * declared here explicitly. It keeps serving asynchronous MVC responses (such as streamed
+   * downloads) and is configured through the usual spring.task.execution properties.
+   *
+   * @param builder the builder auto-configured from spring.task.execution
+   * @return the executor
+   */
+  @Primary
+  @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+  public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+    return builder.build();
+  }
+
+  /**
+   * Pool used by ProjectService.createProjectFromDTO to fetch a submission's zip archives from
+   * github in parallel.
+   *
+   * @param poolSize the number of downloads that may run at once
+   * @param queueCapacity the number of downloads that may wait for a free thread
+   * @return the executor
+   */
+  @Bean
+  public ThreadPoolTaskExecutor assetUploadExecutor(
+      @Value("${project.ingest.pool-size:8}") int poolSize,
+      @Value("${project.ingest.queue-capacity:64}") int queueCapacity) {
+    return boundedExecutor("asset-upload-", poolSize, queueCapacity);
+  }
+
+  /**
+   * Pool IngestionService runs ingestion jobs on. A job mostly waits for its zip archives on the
+   * asset upload pool, so this pool only bounds how many submissions are ingested at once. Jobs
+   * are kept in Mongo, so once the queue is full further jobs are rejected rather than run on the
+   * request or startup thread; they stay queued in Mongo until IngestionService next polls.
+   *
+   * @param poolSize the number of jobs that may run at once
+   * @param queueCapacity the number of jobs that may wait for a free thread
+   * @return the executor
+   */
+  @Bean
+  public ThreadPoolTaskExecutor ingestionExecutor(
+      @Value("${project.ingest.jobs.pool-size:2}") int poolSize,
+      @Value("${project.ingest.jobs.queue-capacity:64}") int queueCapacity) {
+    return boundedExecutor(
+        "ingestion-", poolSize, queueCapacity, new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * Pool AsyncStorageService runs storage transfers on, kept apart from the other pools so slow
+   * transfers cannot starve them.
+   *
+   * @param poolSize the number of transfers that may run at once
+   * @param queueCapacity the number of transfers that may wait for a free thread
+   * @return the executor
+   */
+  @Bean
+  public ThreadPoolTaskExecutor storageIoExecutor(
+      @Value("${storage.io.pool-size:16}") int poolSize,
+      @Value("${storage.io.queue-capacity:256}") int queueCapacity) {
+    return boundedExecutor("storage-io-", poolSize, queueCapacity);
+  }
+
+  /**
+   * Pool HedgingStorageService runs reads on. Callers of the storage service may themselves be
+   * storage-io threads, so the reads need a pool of their own to never wait on their own pool.
+   *
+   * @param poolSize the number of reads that may run at once
+   * @param queueCapacity the number of reads that may wait for a free thread
+   * @return the executor
+   */
+  @Bean
+  public ThreadPoolTaskExecutor storageHedgeExecutor(
+      @Value("${storage.hedge.pool-size:16}") int poolSize,
+      @Value("${storage.hedge.queue-capacity:64}") int queueCapacity) {
+    return boundedExecutor("storage-hedge-", poolSize, queueCapacity);
+  }
+
+  /**
+   * Pool ThumbnailService scales screenshots on. Scaling is CPU-bound, so the pool is kept small
+   * and apart from the pools that mostly wait on the network.
+   *
+   * @param poolSize the number of screenshots that may be scaled at once
+   * @param queueCapacity the number of screenshots that may wait for a free thread
+   * @return the executor
+   */
+  @Bean
+  public ThreadPoolTaskExecutor thumbnailExecutor(
+      @Value("${screenshot.thumbnail.pool-size:2}") int poolSize,
+      @Value("${screenshot.thumbnail.queue-capacity:64}") int queueCapacity) {
+    return boundedExecutor("thumbnail-", poolSize, queueCapacity);
+  }
+
+  /**
+   * Pool ProjectService.writeZip reads objects ahead on while it zips a download. It is kept small
+   * and apart from the asset upload pool, so large downloads cannot hold up submissions.
+   *
+   * @param poolSize the number of objects that may be read ahead at once
+   * @param queueCapacity the number of reads that may wait for a free thread
+   * @return the executor
+   */
+  @Bean
+  public ThreadPoolTaskExecutor bundlePrefetchExecutor(
+      @Value("${project.bundle.prefetch-pool-size:4}") int poolSize,
+      @Value("${project.bundle.prefetch-queue-capacity:16}") int queueCapacity) {
+    return boundedExecutor("bundle-prefetch-", poolSize, queueCapacity);
+  }
+
+  private ThreadPoolTaskExecutor boundedExecutor(
+      String threadNamePrefix, int poolSize, int queueCapacity) {
+    return boundedExecutor(
+        threadNamePrefix, poolSize, queueCapacity, new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  private ThreadPoolTaskExecutor boundedExecutor(
+      String threadNamePrefix,
+      int poolSize,
+      int queueCapacity,
+      RejectedExecutionHandler rejectedExecutionHandler) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix(threadNamePrefix);
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setRejectedExecutionHandler(rejectedExecutionHandler);
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    return executor;
+  }
+}
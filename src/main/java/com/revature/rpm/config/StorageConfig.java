@@ -0,0 +1,120 @@
+package com.revature.rpm.config;
+
+import com.revature.rpm.services.CachingStorageService;
+import com.revature.rpm.services.CaffeineObjectCache;
+import com.revature.rpm.services.CompressingStorageService;
+import com.revature.rpm.services.ContentAddressedStorageService;
+import com.revature.rpm.services.DelegatingStorageService;
+import com.revature.rpm.services.HedgingStorageService;
+import com.revature.rpm.services.ObjectCache;
+import com.revature.rpm.services.ObjectReferenceCounter;
+import com.revature.rpm.services.PresignedUrlCachingStorageService;
+import com.revature.rpm.services.StorageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.Executor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Assembles the StorageService the rest of the service uses. The profile-specific backend (S3 or
+ * the local filesystem) is qualified as the storage backend, and the optional storage features
+ * enabled in configuration are stacked in front of it.
+ */
+@Configuration
+public class StorageConfig {
+
+  /** Qualifier carried by the StorageService implementations that talk to the actual store. */
+  public static final String STORAGE_BACKEND = "storageBackend";
+
+  /** Sends slow reads to the backend a second time and uses whichever copy answers first. */
+  @Value("${storage.hedge.enabled:false}")
+  private boolean hedgeReads;
+
+  /** Milliseconds a read waits before it is hedged, until enough reads have been timed. */
+  @Value("${storage.hedge.initial-delay-ms:100}")
+  private long hedgeInitialDelayMs;
+
+  /** The shortest wait, in milliseconds, before a read is hedged. */
+  @Value("${storage.hedge.min-delay-ms:10}")
+  private long hedgeMinDelayMs;
+
+  /** Stores objects under a digest of their content and shares them between projects. */
+  @Value("${storage.content-addressed:false}")
+  private boolean contentAddressed;
+
+  /** Stores uploaded text files gzip-compressed. */
+  @Value("${storage.compression.enabled:true}")
+  private boolean compressText;
+
+  /** Uploads larger than this many bytes are stored as is rather than compressed in memory. */
+  @Value("${storage.compression.max-bytes:16777216}")
+  private long compressionMaxBytes;
+
+  /** The most content, in bytes, the read cache holds at once; 0 turns the cache off. */
+  @Value("${storage.cache.max-bytes:67108864}")
+  private long cacheMaxBytes;
+
+  /** Objects larger than this many bytes are never cached. */
+  @Value("${storage.cache.max-object-bytes:4194304}")
+  private long cacheMaxObjectBytes;
+
+  /** Keeps cached content in direct buffers outside of the Java heap. */
+  @Value("${storage.cache.off-heap:false}")
+  private boolean cacheOffHeap;
+
+  /** Number of seconds a presigned download URL stays valid. */
+  @Value("${storage.presigned.ttl-seconds:300}")
+  private long presignedTtlSeconds;
+
+  /** Presigned URLs are no longer handed out this many seconds before they expire. */
+  @Value("${storage.presigned.refresh-margin-seconds:60}")
+  private long presignedRefreshMarginSeconds;
+
+  /**
+   * @param backend the profile-specific storage backend
+   * @param referenceCounter keeps the reference counts of content-addressed objects
+   * @param hedgeExecutor the pool hedged reads run on
+   * @param meterRegistry the registry the read cache and hedged reads publish their metrics to
+   * @return the StorageService injected everywhere a StorageService is needed
+   */
+  @Bean
+  @Primary
+  public StorageService storageService(
+      @Qualifier(STORAGE_BACKEND) StorageService backend,
+      ObjectReferenceCounter referenceCounter,
+      @Qualifier("storageHedgeExecutor") Executor hedgeExecutor,
+      MeterRegistry meterRegistry) {
+    // the backend is a bean in its own right; wrapping it keeps the container from running its
+    // lifecycle callbacks a second time for this bean
+    StorageService storage = new DelegatingStorageService(backend);
+    if (hedgeReads) {
+      storage =
+          new HedgingStorageService(
+              storage,
+              hedgeExecutor,
+              meterRegistry,
+              hedgeInitialDelayMs,
+              hedgeMinDelayMs,
+              cacheMaxObjectBytes);
+    }
+    if (contentAddressed) {
+      storage = new ContentAddressedStorageService(storage, referenceCounter);
+    }
+    if (compressText) {
+      storage = new CompressingStorageService(storage, compressionMaxBytes);
+    }
+    if (cacheMaxBytes > 0) {
+      ObjectCache cache = new CaffeineObjectCache(cacheMaxBytes, cacheOffHeap);
+      cache.bindTo(meterRegistry);
+      storage =
+          new CachingStorageService(storage, cache, Math.min(cacheMaxObjectBytes, cacheMaxBytes));
+    }
+    storage =
+        new PresignedUrlCachingStorageService(
+            storage, presignedTtlSeconds, presignedRefreshMarginSeconds);
+    return storage;
+  }
+}
@@ -2,16 +2,26 @@ package com.revature.rpm.controllers;
 
 import com.revature.rpm.dtos.ProjectDTO;
 import com.revature.rpm.dtos.ProjectErrorResponse;
+import com.revature.rpm.entities.IngestionJob;
 import com.revature.rpm.entities.Project;
 import com.revature.rpm.exceptions.BadRequestException;
 import com.revature.rpm.exceptions.ProjectNotAddedException;
 import com.revature.rpm.exceptions.ProjectNotFoundException;
+import com.revature.rpm.services.IngestionService;
+import com.revature.rpm.services.ObjectSequence;
 import com.revature.rpm.services.ProjectService;
-import java.io.ByteArrayOutputStream;
+import com.revature.rpm.util.JsonByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Collections;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -23,72 +33,407 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** The ProjectController maps service endpoints for essential CRUD operations on Projects */
 @RestController
 @EnableGlobalMethodSecurity(prePostEnabled = true)
 public class ProjectController {
 
+  private static final MediaType MULTIPART_MIXED = MediaType.valueOf("multipart/mixed");
+
+  private static final MediaType APPLICATION_ZIP = MediaType.valueOf("application/zip");
+
   private ProjectService projectService;
-  private ByteArrayOutputStream downloadInputStream;
+
+  private IngestionService ingestionService;
 
   @Autowired
-  public ProjectController(ProjectService projectService) {
+  public ProjectController(ProjectService projectService, IngestionService ingestionService) {
     this.projectService = projectService;
+    this.ingestionService = ingestionService;
   }
 
   /**
-   * This methods allows us to hit the endpoint needed to download a project's screenshots.
+   * This methods allows us to hit the endpoint needed to download a project's screenshots. A
+   * client whose If-None-Match still matches the screenshots' ETag gets a 304 and nothing is read
+   * from storage. A client rendering small previews can ask for a width, and is sent the smallest
+   * thumbnail at least that wide in place of each screenshot that has one.
+   *
+   * <p>The format of the response is negotiated from the Accept header. A client accepting
+   * multipart/mixed gets one part per screenshot under its own Content-Type, and one accepting
+   * application/zip gets a zip archive of them; both are streamed from storage as the screenshots
+   * are stored. Any other client gets the JSON array the endpoint has always sent.
    *
    * @param id - An ID used to uniquely identify a project.
-   * @return JSON object with a decimal ASCII representation of all screenshots for the project.
+   * @param size - The width in pixels the screenshots will be shown at, if not full size.
+   * @param accept - The Accept header, naming the formats the client can read.
+   * @param ifNoneMatch - The If-None-Match header, if the client holds a cached copy.
+   * @return the screenshots as multipart/mixed parts, a zip archive, or a JSON array with a
+   *     decimal ASCII representation of all screenshots for the project, encoded from the
+   *     downloaded bytes as it is written rather than through a boxed Byte[].
+   * @throws IOException if the screenshots for the JSON array cannot be read from storage
    */
   @GetMapping(value = "/downloads/screenshots/{id}")
-  @ResponseStatus(HttpStatus.OK)
-  public Byte[] downloadSceenShots(@PathVariable String id) {
-    try {
-      return projectService.codeBaseScreenShots(id);
-    } catch (Exception e) {
-      e.printStackTrace();
+  public ResponseEntity<StreamingResponseBody> downloadSceenShots(
+      @PathVariable String id,
+      @RequestParam(value = "size", required = false) Integer size,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+      throws IOException {
+    ObjectSequence sequence = projectService.screenShotSequence(id, size);
+    MediaType format = screenShotFormat(accept);
+    HttpHeaders headers = validators(sequence);
+    headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT));
+    if (!format.equals(MediaType.APPLICATION_JSON)) {
+      headers.setETag("\"" + sequence.getETag() + "-" + format.getSubtype() + "\"");
+    }
+    if (notModified(ifNoneMatch, headers.getETag())) {
+      return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+    }
+    if (format.equals(MULTIPART_MIXED)) {
+      // Derived from the ETag, so the same screenshots are always sent as the same bytes
+      String boundary = "screenshots-" + sequence.getETag();
+      headers.setContentType(
+          new MediaType(MULTIPART_MIXED, Collections.singletonMap("boundary", boundary)));
+      return new ResponseEntity<>(
+          out -> projectService.writeScreenShotParts(sequence, boundary, out),
+          headers,
+          HttpStatus.OK);
     }
-    return null;
+    if (format.equals(APPLICATION_ZIP)) {
+      headers.setContentType(APPLICATION_ZIP);
+      headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"screenshots.zip\"");
+      return new ResponseEntity<>(
+          out -> projectService.writeZip(sequence, out), headers, HttpStatus.OK);
+    }
+    byte[] screenShots = projectService.codeBaseScreenShots(id, size);
+    headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+    return new ResponseEntity<>(
+        out -> {
+          JsonByteArrayOutputStream json = new JsonByteArrayOutputStream(out);
+          json.write(screenShots);
+          json.finish();
+        },
+        headers,
+        HttpStatus.OK);
+  }
+
+  /**
+   * Downloads a single screenshot as it is stored, under its own media type, so it can be shown
+   * directly by an img tag. A width may be asked for to get a thumbnail instead, and a single byte
+   * range may be requested as for any other download.
+   *
+   * @param id - An ID used to uniquely identify a project.
+   * @param index - The position of the screenshot, counting from 0 in submission order.
+   * @param size - The width in pixels the screenshot will be shown at, if not full size.
+   * @param range - The Range header, if the client only wants part of the screenshot.
+   * @param ifRange - The If-Range header; the range is only honoured if it matches the ETag.
+   * @param ifNoneMatch - The If-None-Match header, if the client holds a cached copy.
+   * @return the screenshot in a response entity
+   * @throws IOException if the media type of an older screenshot cannot be read from storage
+   */
+  @GetMapping(value = "/downloads/screenshots/{id}/{index}")
+  public ResponseEntity<StreamingResponseBody> downloadScreenShot(
+      @PathVariable String id,
+      @PathVariable int index,
+      @RequestParam(value = "size", required = false) Integer size,
+      @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+      @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+      throws IOException {
+    ObjectSequence sequence = projectService.screenShotSequence(id, index, size);
+    String mediaType = projectService.screenShotType(sequence.getObjects().get(0));
+    return download(
+        sequence, MediaType.parseMediaType(mediaType), "inline", range, ifRange, ifNoneMatch, null);
   }
 
   /**
-   * This method provides and endpoint to fetch datamodels from S3 bucket
+   * Downloads everything submitted with a project as a single zip archive: its screenshots, data
+   * models and zip archives. The archive is built as it is sent, straight from storage, so nothing
+   * is written to disk and clients start receiving it at once.
    *
    * @param id - An ID used to uniquely identify a project.
+   * @param ifNoneMatch - The If-None-Match header, if the client holds a cached copy.
+   * @return the bundle in a response entity
+   */
+  @GetMapping(value = "/downloads/bundle/{id}")
+  public ResponseEntity<StreamingResponseBody> downloadBundle(
+      @PathVariable String id,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    ObjectSequence sequence = projectService.bundleSequence(id);
+    HttpHeaders headers = validators(sequence);
+    if (notModified(ifNoneMatch, headers.getETag())) {
+      return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+    }
+    headers.setContentType(APPLICATION_ZIP);
+    headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"project-" + id + ".zip\"");
+    return new ResponseEntity<>(
+        out -> projectService.writeZip(sequence, out), headers, HttpStatus.OK);
+  }
+
+  /**
+   * This method provides and endpoint to fetch datamodels from S3 bucket. The data models are
+   * streamed from storage straight to the response, so memory use does not grow with their size.
+   * A single byte range may be requested, optionally guarded by If-Range. A client accepting gzip
+   * that asks for the whole download is sent it gzip-compressed.
+   *
+   * @param id - An ID used to uniquely identify a project.
+   * @param range - The Range header, if the client only wants part of the download.
+   * @param ifRange - The If-Range header; the range is only honoured if it matches the ETag.
+   * @param ifNoneMatch - The If-None-Match header, if the client holds a cached copy.
+   * @param acceptEncoding - The Accept-Encoding header, if the client can decode compressed bodies.
    * @return data model in a response entity
    */
   @GetMapping(value = "/downloads/datamodels/{id}")
-  @ResponseStatus(HttpStatus.OK)
-  public ResponseEntity<byte[]> downloadDataModels(@PathVariable String id) {
+  public ResponseEntity<StreamingResponseBody> downloadDataModels(
+      @PathVariable String id,
+      @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+      @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+          String acceptEncoding) {
     String name = "datamodel.txt";
-    byte[] media = projectService.codeBaseDataModels(id);
-    return ResponseEntity.ok()
-        .contentType(contentType(name))
-        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name)
-        .body(media);
+    ObjectSequence sequence = projectService.dataModelSequence(id);
+    return download(
+        sequence,
+        contentType(name),
+        "attachment; filename=\"" + name,
+        range,
+        ifRange,
+        ifNoneMatch,
+        acceptsGzip(acceptEncoding));
   }
 
   /**
-   * This method provides and endpoint to fetch ziplinks from S3 bucket
+   * This method provides and endpoint to fetch ziplinks from S3 bucket. The archives are streamed
+   * from storage straight to the response, so memory use does not grow with their size. A single
+   * byte range may be requested, so an interrupted download can be resumed. When downloads are
+   * redirected to storage, a single archive is instead answered with a 307 to a presigned URL.
    *
    * @param id - An ID used to uniquely identify a project.
+   * @param range - The Range header, if the client only wants part of the download.
+   * @param ifRange - The If-Range header; the range is only honoured if it matches the ETag.
+   * @param ifNoneMatch - The If-None-Match header, if the client holds a cached copy.
    * @return ziplinks in a response entity.
    */
   @GetMapping(value = "/downloads/ziplinks/{id}")
-  @ResponseStatus(HttpStatus.OK)
-  public ResponseEntity<byte[]> downloadZipLinks(@PathVariable String id) {
-    downloadInputStream = projectService.codeBaseZipLinks(id);
-    return ResponseEntity.ok()
-        .contentType(contentType("Oct-stream"))
-        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + "\"")
-        .body(downloadInputStream.toByteArray());
+  public ResponseEntity<StreamingResponseBody> downloadZipLinks(
+      @PathVariable String id,
+      @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+      @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    URL location = projectService.zipLinkRedirect(id);
+    if (location != null) {
+      return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
+          .location(URI.create(location.toString()))
+          .build();
+    }
+    ObjectSequence sequence = projectService.zipLinkSequence(id);
+    return download(
+        sequence,
+        contentType("Oct-stream"),
+        "attachment; filename=\"" + "\"",
+        range,
+        ifRange,
+        ifNoneMatch,
+        null);
+  }
+
+  /**
+   * Builds a download response. A client whose If-None-Match matches the ETag gets a 304 without
+   * a body. Otherwise, without a usable Range header the whole download is sent with a 200; a
+   * satisfiable single range is sent with a 206 and only those bytes are read from storage; a
+   * range starting past the end gets a 416. Multiple ranges, malformed ranges and ranges whose
+   * If-Range no longer matches the ETag are ignored, as HTTP allows, and the whole download sent.
+   *
+   * <p>A compressible download requested whole by a client accepting gzip is instead sent
+   * gzip-compressed, with its own ETag and without a Content-Length, since its compressed length
+   * is only known once it has been sent.
+   *
+   * @param sequence the objects making up the download
+   * @param mediaType the content type of the download
+   * @param disposition the content disposition of the download
+   * @param range the Range header, or null
+   * @param ifRange the If-Range header, or null
+   * @param ifNoneMatch the If-None-Match header, or null
+   * @param acceptsGzip whether the client accepts gzip, or null if the download is never
+   *     compressed
+   * @return the response
+   */
+  private ResponseEntity<StreamingResponseBody> download(
+      ObjectSequence sequence,
+      MediaType mediaType,
+      String disposition,
+      String range,
+      String ifRange,
+      String ifNoneMatch,
+      Boolean acceptsGzip) {
+    long length = sequence.getContentLength();
+    HttpHeaders headers = validators(sequence);
+    String eTag = headers.getETag();
+    boolean gzip = acceptsGzip != null && acceptsGzip && range == null;
+    if (acceptsGzip != null) {
+      headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING));
+    }
+    if (gzip) {
+      headers.setETag("\"" + sequence.getETag() + "-gzip\"");
+    }
+    if (notModified(ifNoneMatch, headers.getETag())) {
+      return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+    }
+    headers.setContentType(mediaType);
+    headers.set(HttpHeaders.CONTENT_DISPOSITION, disposition);
+    if (gzip) {
+      headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+      return new ResponseEntity<>(
+          out -> projectService.writeCompressedSequence(sequence, out), headers, HttpStatus.OK);
+    }
+    headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+    HttpRange requested = requestedRange(range, ifRange, eTag);
+    if (requested == null) {
+      headers.setContentLength(length);
+      return new ResponseEntity<>(
+          out -> projectService.writeSequence(sequence, 0, length - 1, out),
+          headers,
+          HttpStatus.OK);
+    }
+    long first = requested.getRangeStart(length);
+    long last = requested.getRangeEnd(length);
+    if (first >= length || first > last) {
+      headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+      return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+    }
+    headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + first + "-" + last + "/" + length);
+    headers.setContentLength(last - first + 1);
+    return new ResponseEntity<>(
+        out -> projectService.writeSequence(sequence, first, last, out),
+        headers,
+        HttpStatus.PARTIAL_CONTENT);
+  }
+
+  /**
+   * Builds the headers a client needs to revalidate its cached copy of a download. Clients are
+   * asked to revalidate on every use, which costs them a 304 when nothing has changed.
+   *
+   * @param sequence the objects making up the download
+   * @return headers holding the ETag, Last-Modified (when known) and Cache-Control
+   */
+  private HttpHeaders validators(ObjectSequence sequence) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setETag("\"" + sequence.getETag() + "\"");
+    if (sequence.getLastModified() >= 0) {
+      headers.setLastModified(sequence.getLastModified());
+    }
+    headers.setCacheControl(CacheControl.noCache());
+    return headers;
+  }
+
+  /**
+   * @param ifNoneMatch the If-None-Match header, or null
+   * @param eTag the current ETag of the download
+   * @return whether the client's cached copy is current; weak tags match by their value
+   */
+  private boolean notModified(String ifNoneMatch, String eTag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      if (tag.equals("*") || tag.equals(eTag) || tag.equals("W/" + eTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Picks the format to send screenshots in, taking the client's most preferred media type that
+   * is one of them. A wildcard, a missing or malformed header, or no acceptable screenshot format
+   * all mean JSON, which is what clients got before the other formats were offered.
+   *
+   * @param accept the Accept header, or null
+   * @return application/json, multipart/mixed or application/zip
+   */
+  private MediaType screenShotFormat(String accept) {
+    if (accept == null) {
+      return MediaType.APPLICATION_JSON;
+    }
+    List<MediaType> accepted;
+    try {
+      accepted = MediaType.parseMediaTypes(accept);
+    } catch (InvalidMediaTypeException e) {
+      return MediaType.APPLICATION_JSON;
+    }
+    MediaType.sortBySpecificityAndQuality(accepted);
+    for (MediaType type : accepted) {
+      if (type.getQualityValue() == 0) {
+        continue;
+      }
+      if (type.includes(MediaType.APPLICATION_JSON)) {
+        return MediaType.APPLICATION_JSON;
+      }
+      if (type.includes(MULTIPART_MIXED)) {
+        return MULTIPART_MIXED;
+      }
+      if (type.includes(APPLICATION_ZIP)) {
+        return APPLICATION_ZIP;
+      }
+    }
+    return MediaType.APPLICATION_JSON;
+  }
+
+  /**
+   * @param acceptEncoding the Accept-Encoding header, or null
+   * @return whether the client accepts gzip, by name or through *, with a quality above zero
+   */
+  private boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    Boolean wildcard = null;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] params = coding.split(";");
+      String name = params[0].trim();
+      boolean accepted = true;
+      for (int i = 1; i < params.length; i++) {
+        String param = params[i].trim();
+        if (param.startsWith("q=") && param.substring(2).matches("0(\\.0*)?")) {
+          accepted = false;
+        }
+      }
+      if (name.equalsIgnoreCase("gzip")) {
+        return accepted;
+      }
+      if (name.equals("*")) {
+        wildcard = accepted;
+      }
+    }
+    return wildcard != null && wildcard;
+  }
+
+  /**
+   * @param range the Range header, or null
+   * @param ifRange the If-Range header, or null
+   * @param eTag the current ETag of the download
+   * @return the single range to send, or null to send the whole download
+   */
+  private HttpRange requestedRange(String range, String ifRange, String eTag) {
+    if (range == null || (ifRange != null && !ifRange.trim().equals(eTag))) {
+      return null;
+    }
+    try {
+      List<HttpRange> ranges = HttpRange.parseRanges(range);
+      return ranges.size() == 1 ? ranges.get(0) : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
   }
 
   /**
@@ -184,6 +529,73 @@ public class ProjectController {
     return projectService.createProjectFromDTO(projectDTO);
   }
 
+  /**
+   * Accepts the same multipart form data as addProject, but answers without waiting for the zip
+   * archives to be downloaded from github. The project is saved at once with the Ingesting status
+   * and its screenshots and data models; the zip archives are stored by an ingestion job, whose
+   * progress can be followed at the Location returned.
+   *
+   * @param name - The name field of the form data
+   * @param batch - The batch field of the form data
+   * @param trainer - The trainer field of the form data
+   * @param groupMembers - The groupMembers field of the form data
+   * @param screenShots - The screenShots field of the form data
+   * @param zipLinks - The zipLinks field of the form data
+   * @param description - The description field of the form data
+   * @param techStack - The techStack field of the form data
+   * @param status - The status field of the form data
+   * @return 202 Accepted with the queued ingestion job, which names the project created
+   */
+  @PostMapping(
+      consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+      produces = MediaType.APPLICATION_JSON_VALUE,
+      params = "async=true")
+  public ResponseEntity<IngestionJob> addProjectAsync(
+      @RequestParam("name") String name,
+      @RequestParam("batch") String batch,
+      @RequestParam("trainer") String trainer,
+      @RequestParam("groupMembers") List<String> groupMembers,
+      @RequestParam("screenShots") List<MultipartFile> screenShots,
+      @RequestParam("zipLinks") List<String> zipLinks,
+      @RequestParam("description") String description,
+      @RequestParam("techStack") String techStack,
+      @RequestParam("status") String status,
+      @RequestParam("dataModel") List<MultipartFile> dataModel,
+      @RequestParam("userId") Integer userId) {
+
+    ProjectDTO projectDTO =
+        new ProjectDTO.ProjectDTOBuilder()
+            .setName(name)
+            .setBatch(batch)
+            .setTrainer(trainer)
+            .setGroupMembers(groupMembers)
+            .setScreenShots(screenShots)
+            .setZipLinks(zipLinks)
+            .setDescription(description)
+            .setTechStack(techStack)
+            .setStatus(status)
+            .setDataModel(dataModel)
+            .setUserId(userId)
+            .build();
+
+    IngestionJob job = ingestionService.submit(projectDTO);
+    return ResponseEntity.accepted().location(URI.create("/ingestions/" + job.getId())).body(job);
+  }
+
+  /**
+   * Reports the progress of an ingestion job started by addProjectAsync: the status of the job and
+   * of each of its zip archives.
+   *
+   * @param id - An ID used to uniquely identify an ingestion job.
+   * @return the ingestion job
+   */
+  @GetMapping(value = "/ingestions/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseStatus(HttpStatus.OK)
+  public IngestionJob getIngestion(@PathVariable String id) {
+
+    return ingestionService.findById(id);
+  }
+
   /**
    * This method is used to update an entry into the embedded MongoDB based on the ID via an HTTP
    * PUT request.
@@ -0,0 +1,35 @@
+package com.revature.rpm.controllers;
+
+import com.revature.rpm.dtos.SweepReport;
+import com.revature.rpm.services.OrphanedObjectSweeper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/** The StorageController maps administrative endpoints for the object storage behind projects */
+@RestController
+public class StorageController {
+
+  private OrphanedObjectSweeper sweeper;
+
+  @Autowired
+  public StorageController(OrphanedObjectSweeper sweeper) {
+    this.sweeper = sweeper;
+  }
+
+  /**
+   * Reports the stored objects no project links to, without deleting any of them.
+   *
+   * @return a dry-run sweep report
+   */
+  @GetMapping(value = "/storage/orphans", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseStatus(HttpStatus.OK)
+  @PreAuthorize("hasRole('ADMIN')")
+  public SweepReport orphanReport() {
+    return sweeper.sweep(true);
+  }
+}
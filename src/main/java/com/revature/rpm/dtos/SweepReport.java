@@ -0,0 +1,151 @@
+package com.revature.rpm.dtos;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * SweepReport summarizes one pass of the orphaned object sweeper: how much of storage it looked
+ * at, which objects no project references, and how many of those it removed. A dry run fills in
+ * everything but the deletions.
+ */
+public class SweepReport {
+
+  /** Number of orphaned keys listed by name in a report. */
+  private static final int MAX_SAMPLE_KEYS = 100;
+
+  private boolean dryRun;
+  private Date startedAt;
+  private long durationMillis;
+  private long referencedKeys;
+  private long scannedObjects;
+  private long orphanedObjects;
+  private long orphanedBytes;
+  private long deletedObjects;
+  private long failedDeletes;
+  private boolean interrupted;
+  private List<String> sampleOrphans = new ArrayList<>();
+
+  public SweepReport() {
+    super();
+  }
+
+  /**
+   * @param dryRun whether orphans are only reported rather than deleted
+   * @param referencedKeys the number of distinct keys referenced by projects
+   */
+  public SweepReport(boolean dryRun, long referencedKeys) {
+    this.dryRun = dryRun;
+    this.referencedKeys = referencedKeys;
+    this.startedAt = new Date();
+  }
+
+  /** Counts an object that was looked at. */
+  public void addScanned() {
+    scannedObjects++;
+  }
+
+  /**
+   * Counts an object no project references.
+   *
+   * @param key the object's key
+   * @param contentLength the object's size in bytes
+   */
+  public void addOrphan(String key, long contentLength) {
+    orphanedObjects++;
+    orphanedBytes += contentLength;
+    if (sampleOrphans.size() < MAX_SAMPLE_KEYS) {
+      sampleOrphans.add(key);
+    }
+  }
+
+  /** @param count the number of orphans deleted by a batch */
+  public void addDeleted(long count) {
+    deletedObjects += count;
+  }
+
+  /** @param count the number of orphans a batch failed to delete */
+  public void addFailed(long count) {
+    failedDeletes += count;
+  }
+
+  /** Records that the sweep stopped deleting because its thread was interrupted. */
+  public void markInterrupted() {
+    interrupted = true;
+  }
+
+  /** Records how long the sweep took. */
+  public void finish() {
+    durationMillis = System.currentTimeMillis() - startedAt.getTime();
+  }
+
+  public boolean isDryRun() {
+    return dryRun;
+  }
+
+  public Date getStartedAt() {
+    return startedAt;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  public long getReferencedKeys() {
+    return referencedKeys;
+  }
+
+  public long getScannedObjects() {
+    return scannedObjects;
+  }
+
+  public long getOrphanedObjects() {
+    return orphanedObjects;
+  }
+
+  public long getOrphanedBytes() {
+    return orphanedBytes;
+  }
+
+  public long getDeletedObjects() {
+    return deletedObjects;
+  }
+
+  public long getFailedDeletes() {
+    return failedDeletes;
+  }
+
+  public boolean isInterrupted() {
+    return interrupted;
+  }
+
+  /** @return the keys of the first orphans found, up to a hundred of them */
+  public List<String> getSampleOrphans() {
+    return sampleOrphans;
+  }
+
+  @Override
+  public String toString() {
+    return "SweepReport [dryRun="
+        + dryRun
+        + ", startedAt="
+        + startedAt
+        + ", durationMillis="
+        + durationMillis
+        + ", referencedKeys="
+        + referencedKeys
+        + ", scannedObjects="
+        + scannedObjects
+        + ", orphanedObjects="
+        + orphanedObjects
+        + ", orphanedBytes="
+        + orphanedBytes
+        + ", deletedObjects="
+        + deletedObjects
+        + ", failedDeletes="
+        + failedDeletes
+        + ", interrupted="
+        + interrupted
+        + "]";
+  }
+}
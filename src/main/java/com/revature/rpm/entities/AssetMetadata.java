@@ -0,0 +1,174 @@
+package com.revature.rpm.entities;
+
+import java.io.Serializable;
+
+/**
+ * An AssetMetadata records what storage reported about one of a project's stored screenshots, data
+ * models or zip archives when it was uploaded, so downloads can be described and validated against
+ * a client's cached copy without asking storage again.
+ */
+public class AssetMetadata implements Serializable {
+
+  private static final long serialVersionUID = -6203170553208724711L;
+
+  /** The storage key of the object, which is the last path segment of its link. */
+  private String key;
+
+  /** The length of the object's content in bytes. */
+  private long contentLength;
+
+  /** The media type of the object's content. */
+  private String contentType;
+
+  /** The storage backend's version tag for the object, without surrounding quotes. */
+  private String eTag;
+
+  /** When the object was stored, in epoch milliseconds, or -1 if it is unknown. */
+  private long lastModified;
+
+  /** The encoding the object's content is stored with, such as gzip, or null for none. */
+  private String contentEncoding;
+
+  /** The length of the object's content once decoded, if it is stored with an encoding. */
+  private long decodedLength;
+
+  public AssetMetadata() {
+    super();
+  }
+
+  public AssetMetadata(
+      String key, long contentLength, String contentType, String eTag, long lastModified) {
+    this(key, contentLength, contentType, eTag, lastModified, null, contentLength);
+  }
+
+  public AssetMetadata(
+      String key,
+      long contentLength,
+      String contentType,
+      String eTag,
+      long lastModified,
+      String contentEncoding,
+      long decodedLength) {
+    super();
+    this.key = key;
+    this.contentLength = contentLength;
+    this.contentType = contentType;
+    this.eTag = eTag;
+    this.lastModified = lastModified;
+    this.contentEncoding = contentEncoding;
+    this.decodedLength = decodedLength;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public void setKey(String key) {
+    this.key = key;
+  }
+
+  public long getContentLength() {
+    return contentLength;
+  }
+
+  public void setContentLength(long contentLength) {
+    this.contentLength = contentLength;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  public void setContentType(String contentType) {
+    this.contentType = contentType;
+  }
+
+  public String getETag() {
+    return eTag;
+  }
+
+  public void setETag(String eTag) {
+    this.eTag = eTag;
+  }
+
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  public void setLastModified(long lastModified) {
+    this.lastModified = lastModified;
+  }
+
+  public String getContentEncoding() {
+    return contentEncoding;
+  }
+
+  public void setContentEncoding(String contentEncoding) {
+    this.contentEncoding = contentEncoding;
+  }
+
+  public long getDecodedLength() {
+    return decodedLength;
+  }
+
+  public void setDecodedLength(long decodedLength) {
+    this.decodedLength = decodedLength;
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((contentEncoding == null) ? 0 : contentEncoding.hashCode());
+    result = prime * result + (int) (contentLength ^ (contentLength >>> 32));
+    result = prime * result + ((contentType == null) ? 0 : contentType.hashCode());
+    result = prime * result + ((eTag == null) ? 0 : eTag.hashCode());
+    result = prime * result + ((key == null) ? 0 : key.hashCode());
+    result = prime * result + (int) (decodedLength ^ (decodedLength >>> 32));
+    result = prime * result + (int) (lastModified ^ (lastModified >>> 32));
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    AssetMetadata other = (AssetMetadata) obj;
+    if (contentEncoding == null) {
+      if (other.contentEncoding != null) return false;
+    } else if (!contentEncoding.equals(other.contentEncoding)) return false;
+    if (contentLength != other.contentLength) return false;
+    if (contentType == null) {
+      if (other.contentType != null) return false;
+    } else if (!contentType.equals(other.contentType)) return false;
+    if (eTag == null) {
+      if (other.eTag != null) return false;
+    } else if (!eTag.equals(other.eTag)) return false;
+    if (key == null) {
+      if (other.key != null) return false;
+    } else if (!key.equals(other.key)) return false;
+    if (decodedLength != other.decodedLength) return false;
+    if (lastModified != other.lastModified) return false;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "AssetMetadata [key="
+        + key
+        + ", contentLength="
+        + contentLength
+        + ", contentType="
+        + contentType
+        + ", eTag="
+        + eTag
+        + ", lastModified="
+        + lastModified
+        + ", contentEncoding="
+        + contentEncoding
+        + ", decodedLength="
+        + decodedLength
+        + "]";
+  }
+}
@@ -0,0 +1,94 @@
+package com.revature.rpm.entities;
+
+import java.io.Serializable;
+
+/**
+ * An IngestionAsset records the progress of one asset of an IngestionJob: the zip archive of one
+ * of the github repositories submitted with the project.
+ */
+public class IngestionAsset implements Serializable {
+
+  private static final long serialVersionUID = -2391738095120472713L;
+
+  /** The asset has not been started yet, or was interrupted and will be started again. */
+  public static final String PENDING = "PENDING";
+
+  /** The asset is being downloaded and stored. */
+  public static final String RUNNING = "RUNNING";
+
+  /** The asset has been stored, and its link is set. */
+  public static final String DONE = "DONE";
+
+  /** The archive could not be downloaded and is left out of the project. */
+  public static final String SKIPPED = "SKIPPED";
+
+  /** The asset could not be stored, which fails the job; the message says why. */
+  public static final String FAILED = "FAILED";
+
+  /** The link to the github repository the asset is downloaded from. */
+  private String source;
+
+  /** One of PENDING, RUNNING, DONE, SKIPPED or FAILED. */
+  private String status;
+
+  /** The link to the stored asset, once it is DONE. */
+  private String link;
+
+  /** Why the asset was SKIPPED or FAILED. */
+  private String message;
+
+  public IngestionAsset() {
+    super();
+  }
+
+  public IngestionAsset(String source) {
+    super();
+    this.source = source;
+    this.status = PENDING;
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public void setSource(String source) {
+    this.source = source;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public void setStatus(String status) {
+    this.status = status;
+  }
+
+  public String getLink() {
+    return link;
+  }
+
+  public void setLink(String link) {
+    this.link = link;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  @Override
+  public String toString() {
+    return "IngestionAsset [source="
+        + source
+        + ", status="
+        + status
+        + ", link="
+        + link
+        + ", message="
+        + message
+        + "]";
+  }
+}
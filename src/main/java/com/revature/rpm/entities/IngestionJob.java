@@ -0,0 +1,152 @@
+package com.revature.rpm.entities;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.data.annotation.Id;
+
+/**
+ * An IngestionJob tracks the assets of a project submitted asynchronously that are still being
+ * stored. Jobs are kept in Mongo, so a job interrupted by a restart is picked up again where it
+ * stopped.
+ */
+public class IngestionJob implements Serializable {
+
+  private static final long serialVersionUID = 7305844137625601589L;
+
+  /** The job is waiting for a free worker. */
+  public static final String QUEUED = "QUEUED";
+
+  /** The job's assets are being stored. */
+  public static final String RUNNING = "RUNNING";
+
+  /** Every asset has been stored and the project has left the Ingesting status. */
+  public static final String COMPLETED = "COMPLETED";
+
+  /** The project could not be completed and has been removed; the message says why. */
+  public static final String FAILED = "FAILED";
+
+  @Id private String id;
+
+  /** The id of the project the assets belong to. */
+  private String projectId;
+
+  /** One of QUEUED, RUNNING, COMPLETED or FAILED. */
+  private String status;
+
+  /** The assets, in the order they were submitted. */
+  private List<IngestionAsset> assets = new ArrayList<>();
+
+  /** Why the job FAILED. */
+  private String message;
+
+  /** When the job was submitted, in milliseconds since the epoch. */
+  private long created;
+
+  /** When the job last made progress, in milliseconds since the epoch. */
+  private long updated;
+
+  /** The id of the application instance running the job, if one has claimed it. */
+  private String owner;
+
+  /** When the owner's claim on the job lapses, in milliseconds since the epoch. */
+  private long leaseExpires;
+
+  public IngestionJob() {
+    super();
+  }
+
+  /** @return true once the job is COMPLETED or FAILED and will not change any more */
+  public boolean isFinished() {
+    return COMPLETED.equals(status) || FAILED.equals(status);
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getProjectId() {
+    return projectId;
+  }
+
+  public void setProjectId(String projectId) {
+    this.projectId = projectId;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public void setStatus(String status) {
+    this.status = status;
+  }
+
+  public List<IngestionAsset> getAssets() {
+    return assets;
+  }
+
+  public void setAssets(List<IngestionAsset> assets) {
+    this.assets = assets;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  public long getCreated() {
+    return created;
+  }
+
+  public void setCreated(long created) {
+    this.created = created;
+  }
+
+  public long getUpdated() {
+    return updated;
+  }
+
+  public void setUpdated(long updated) {
+    this.updated = updated;
+  }
+
+  public String getOwner() {
+    return owner;
+  }
+
+  public void setOwner(String owner) {
+    this.owner = owner;
+  }
+
+  public long getLeaseExpires() {
+    return leaseExpires;
+  }
+
+  public void setLeaseExpires(long leaseExpires) {
+    this.leaseExpires = leaseExpires;
+  }
+
+  @Override
+  public String toString() {
+    return "IngestionJob [id="
+        + id
+        + ", projectId="
+        + projectId
+        + ", status="
+        + status
+        + ", assets="
+        + assets
+        + ", message="
+        + message
+        + ", owner="
+        + owner
+        + "]";
+  }
+}
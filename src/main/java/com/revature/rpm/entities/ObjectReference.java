@@ -0,0 +1,80 @@
+package com.revature.rpm.entities;
+
+import java.io.Serializable;
+import org.springframework.data.annotation.Id;
+
+/**
+ * An ObjectReference counts how many links in Project documents point at a content-addressed
+ * storage object, so the object can be removed once nothing links to it any more.
+ */
+public class ObjectReference implements Serializable {
+
+  private static final long serialVersionUID = 4610933475320718465L;
+
+  /** The storage key of the object, which is derived from a digest of its content. */
+  @Id private String key;
+
+  /** The link returned when the object was first stored. */
+  private String link;
+
+  /** The number of project links pointing at the object. */
+  private long references;
+
+  /** When a reference was last added, in milliseconds since the epoch. */
+  private long lastReferenced;
+
+  /**
+   * When a deletion of the object started, in milliseconds since the epoch, or null when the
+   * object is not being deleted.
+   */
+  private Long deleting;
+
+  public ObjectReference() {
+    super();
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public void setKey(String key) {
+    this.key = key;
+  }
+
+  public String getLink() {
+    return link;
+  }
+
+  public void setLink(String link) {
+    this.link = link;
+  }
+
+  public long getReferences() {
+    return references;
+  }
+
+  public void setReferences(long references) {
+    this.references = references;
+  }
+
+  public long getLastReferenced() {
+    return lastReferenced;
+  }
+
+  public void setLastReferenced(long lastReferenced) {
+    this.lastReferenced = lastReferenced;
+  }
+
+  public Long getDeleting() {
+    return deleting;
+  }
+
+  public void setDeleting(Long deleting) {
+    this.deleting = deleting;
+  }
+
+  @Override
+  public String toString() {
+    return "ObjectReference [key=" + key + ", link=" + link + ", references=" + references + "]";
+  }
+}
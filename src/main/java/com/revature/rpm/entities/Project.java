@@ -28,6 +28,8 @@ public class Project implements Serializable {
   private String status;
   private Integer userId;
   private Project oldProject;
+  private List<AssetMetadata> assets;
+  private List<Thumbnail> thumbnails;
 
   /**
    * This constructor is private for the builder design pattern. See below the toString() for the
@@ -49,6 +51,8 @@ public class Project implements Serializable {
     this.status = builder.status;
     this.userId = builder.userId;
     this.oldProject = builder.oldProject;
+    this.assets = builder.assets;
+    this.thumbnails = builder.thumbnails;
   }
 
   public Project() {
@@ -130,6 +134,16 @@ public class Project implements Serializable {
     return oldProject;
   }
 
+  /** @return what storage reported about each stored asset when it was uploaded */
+  public List<AssetMetadata> getAssets() {
+    return assets;
+  }
+
+  /** @return the scaled-down copies of the screenshots, once they have been made */
+  public List<Thumbnail> getThumbnails() {
+    return thumbnails;
+  }
+
   @NotNull(message = "Please provide a data model.")
   @NotBlank(message = "Please provide a data model.")
   public List<String> getDataModel() {
@@ -193,10 +207,19 @@ public class Project implements Serializable {
     this.userId = userId;
   }
 
+  public void setAssets(List<AssetMetadata> assets) {
+    this.assets = assets;
+  }
+
+  public void setThumbnails(List<Thumbnail> thumbnails) {
+    this.thumbnails = thumbnails;
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
     int result = 1;
+    result = prime * result + ((assets == null) ? 0 : assets.hashCode());
     result = prime * result + ((batch == null) ? 0 : batch.hashCode());
     result = prime * result + ((dataModel == null) ? 0 : dataModel.hashCode());
     result = prime * result + ((description == null) ? 0 : description.hashCode());
@@ -207,6 +230,7 @@ public class Project implements Serializable {
     result = prime * result + ((screenShots == null) ? 0 : screenShots.hashCode());
     result = prime * result + ((status == null) ? 0 : status.hashCode());
     result = prime * result + ((techStack == null) ? 0 : techStack.hashCode());
+    result = prime * result + ((thumbnails == null) ? 0 : thumbnails.hashCode());
     result = prime * result + ((trainer == null) ? 0 : trainer.hashCode());
     result = prime * result + ((zipLinks == null) ? 0 : zipLinks.hashCode());
     return result;
@@ -218,6 +242,9 @@ public class Project implements Serializable {
     if (obj == null) return false;
     if (getClass() != obj.getClass()) return false;
     Project other = (Project) obj;
+    if (assets == null) {
+      if (other.assets != null) return false;
+    } else if (!assets.equals(other.assets)) return false;
     if (batch == null) {
       if (other.batch != null) return false;
     } else if (!batch.equals(other.batch)) return false;
@@ -248,6 +275,9 @@ public class Project implements Serializable {
     if (techStack == null) {
       if (other.techStack != null) return false;
     } else if (!techStack.equals(other.techStack)) return false;
+    if (thumbnails == null) {
+      if (other.thumbnails != null) return false;
+    } else if (!thumbnails.equals(other.thumbnails)) return false;
     if (trainer == null) {
       if (other.trainer != null) return false;
     } else if (!trainer.equals(other.trainer)) return false;
@@ -285,6 +315,10 @@ public class Project implements Serializable {
         + userId
         + ", oldProject="
         + oldProject
+        + ", assets="
+        + assets
+        + ", thumbnails="
+        + thumbnails
         + "]";
   }
 
@@ -319,6 +353,8 @@ public class Project implements Serializable {
     private String status;
     private Integer userId;
     private Project oldProject;
+    private List<AssetMetadata> assets;
+    private List<Thumbnail> thumbnails;
 
     public ProjectBuilder setName(String name) {
       this.name = name;
@@ -380,6 +416,16 @@ public class Project implements Serializable {
       return this;
     }
 
+    public ProjectBuilder setAssets(List<AssetMetadata> assets) {
+      this.assets = assets;
+      return this;
+    }
+
+    public ProjectBuilder setThumbnails(List<Thumbnail> thumbnails) {
+      this.thumbnails = thumbnails;
+      return this;
+    }
+
     public Project build() {
       return new Project(this);
     }
@@ -0,0 +1,87 @@
+package com.revature.rpm.entities;
+
+import java.io.Serializable;
+
+/**
+ * A Thumbnail is a scaled-down copy of one of a project's screenshots, generated when the project
+ * is submitted so gallery views do not need to download the full-size image.
+ */
+public class Thumbnail implements Serializable {
+
+  private static final long serialVersionUID = 4471928305561021853L;
+
+  /** The storage key of the screenshot the thumbnail was scaled from. */
+  private String source;
+
+  /** The width of the thumbnail in pixels. */
+  private int width;
+
+  /** The link to the stored thumbnail. */
+  private String link;
+
+  public Thumbnail() {
+    super();
+  }
+
+  public Thumbnail(String source, int width, String link) {
+    super();
+    this.source = source;
+    this.width = width;
+    this.link = link;
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public void setSource(String source) {
+    this.source = source;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public void setWidth(int width) {
+    this.width = width;
+  }
+
+  public String getLink() {
+    return link;
+  }
+
+  public void setLink(String link) {
+    this.link = link;
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((link == null) ? 0 : link.hashCode());
+    result = prime * result + ((source == null) ? 0 : source.hashCode());
+    result = prime * result + width;
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) return true;
+    if (obj == null) return false;
+    if (getClass() != obj.getClass()) return false;
+    Thumbnail other = (Thumbnail) obj;
+    if (link == null) {
+      if (other.link != null) return false;
+    } else if (!link.equals(other.link)) return false;
+    if (source == null) {
+      if (other.source != null) return false;
+    } else if (!source.equals(other.source)) return false;
+    if (width != other.width) return false;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "Thumbnail [source=" + source + ", width=" + width + ", link=" + link + "]";
+  }
+}
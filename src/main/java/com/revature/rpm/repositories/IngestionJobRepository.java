@@ -0,0 +1,23 @@
+package com.revature.rpm.repositories;
+
+import com.revature.rpm.entities.IngestionJob;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * IngestionJobRepository extends MongoRepository to provide the persistence layer for IngestionJob
+ * objects
+ */
+@Repository
+public interface IngestionJobRepository extends MongoRepository<IngestionJob, String> {
+
+  /**
+   * IngestionJobRepository.findByStatusIn returns the jobs with any of the given statuses
+   *
+   * @param statuses the statuses of the jobs you want to retrieve
+   * @return a list of jobs with one of the given statuses
+   */
+  public List<IngestionJob> findByStatusIn(Collection<String> statuses);
+}
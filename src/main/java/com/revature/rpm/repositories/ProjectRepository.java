@@ -3,6 +3,7 @@ package com.revature.rpm.repositories;
 import com.revature.rpm.entities.Project;
 import java.util.List;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -57,4 +58,17 @@ public interface ProjectRepository extends MongoRepository<Project, String> {
    * @return a list of projects matching the given status
    */
   public List<Project> findByStatus(String status);
+
+  /**
+   * ProjectRepository.findAllAssetLinks returns every project with only its asset links loaded:
+   * screenShots, dataModel, zipLinks, thumbnails and those of its previous version
+   *
+   * @return a list of all projects, holding only their asset links
+   */
+  @Query(
+      value = "{}",
+      fields =
+          "{ 'screenShots' : 1, 'dataModel' : 1, 'zipLinks' : 1, 'thumbnails' : 1,"
+              + " 'oldProject' : 1 }")
+  public List<Project> findAllAssetLinks();
 }
@@ -0,0 +1,69 @@
+package com.revature.rpm.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * AsyncStorageService exposes the StorageService operations as CompletableFutures, so callers can
+ * start several transfers at once and compose them instead of blocking on each in turn. A future
+ * that fails completes exceptionally with the exception the blocking call would have thrown.
+ */
+public interface AsyncStorageService {
+
+  /**
+   * store uploads a multipart file. The file must stay available until the future completes,
+   * so request-scoped uploads should be awaited before the request finishes.
+   *
+   * @param multipartFile the file representation of the object desired to store
+   * @return the link to the stored object
+   */
+  CompletableFuture<String> store(MultipartFile multipartFile);
+
+  /**
+   * store uploads a file under its own name
+   *
+   * @param file the file representation of the object desired to store
+   * @return the link to the stored object
+   */
+  CompletableFuture<String> store(File file);
+
+  /**
+   * store uploads the content of a stream. The stream must not be used or closed by the caller
+   * until the future completes.
+   *
+   * @param keyName the key to store the object under
+   * @param content the content of the object
+   * @param contentLength the number of bytes in the content
+   * @param contentType the media type of the content, or null if it is unknown
+   * @return the link to the stored object
+   */
+  CompletableFuture<String> store(
+      String keyName, InputStream content, long contentLength, String contentType);
+
+  /**
+   * downloadFile reads an object fully into memory
+   *
+   * @param keyName name of the object to be fetched
+   * @return the content of the object
+   */
+  CompletableFuture<ByteArrayOutputStream> downloadFile(String keyName);
+
+  /**
+   * openStream opens an object for reading; the handle must be closed once it is read
+   *
+   * @param keyName name of the object to be opened
+   * @return an open handle on the object
+   */
+  CompletableFuture<StorageObject> openStream(String keyName);
+
+  /**
+   * delete removes an object
+   *
+   * @param keyName name of the object to remove
+   * @return completes once the object is removed
+   */
+  CompletableFuture<Void> delete(String keyName);
+}
@@ -0,0 +1,66 @@
+package com.revature.rpm.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * AsyncStorageServiceImpl runs the calls of the configured StorageService on a dedicated I/O pool.
+ * Going through the StorageService bean rather than a backend keeps the read cache and
+ * content-addressed storage in effect, whichever backend (S3 or the local filesystem) is active.
+ */
+@Service
+public class AsyncStorageServiceImpl implements AsyncStorageService {
+
+  private final StorageService storageService;
+  private final Executor storageIoExecutor;
+
+  @Autowired
+  public AsyncStorageServiceImpl(
+      StorageService storageService, @Qualifier("storageIoExecutor") Executor storageIoExecutor) {
+    this.storageService = storageService;
+    this.storageIoExecutor = storageIoExecutor;
+  }
+
+  @Override
+  public CompletableFuture<String> store(MultipartFile multipartFile) {
+    return CompletableFuture.supplyAsync(
+        () -> storageService.store(multipartFile), storageIoExecutor);
+  }
+
+  @Override
+  public CompletableFuture<String> store(File file) {
+    return CompletableFuture.supplyAsync(() -> storageService.store(file), storageIoExecutor);
+  }
+
+  @Override
+  public CompletableFuture<String> store(
+      String keyName, InputStream content, long contentLength, String contentType) {
+    return CompletableFuture.supplyAsync(
+        () -> storageService.store(keyName, content, contentLength, contentType),
+        storageIoExecutor);
+  }
+
+  @Override
+  public CompletableFuture<ByteArrayOutputStream> downloadFile(String keyName) {
+    return CompletableFuture.supplyAsync(
+        () -> storageService.downloadFile(keyName), storageIoExecutor);
+  }
+
+  @Override
+  public CompletableFuture<StorageObject> openStream(String keyName) {
+    return CompletableFuture.supplyAsync(
+        () -> storageService.openStream(keyName), storageIoExecutor);
+  }
+
+  @Override
+  public CompletableFuture<Void> delete(String keyName) {
+    return CompletableFuture.runAsync(() -> storageService.delete(keyName), storageIoExecutor);
+  }
+}
@@ -0,0 +1,144 @@
+package com.revature.rpm.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * CachingStorageService serves reads from an ObjectCache, loading an object from the backend the
+ * first time it is read. Submitted screenshots and data models are never modified, so a cached
+ * copy only goes stale when an object is stored again or deleted under the same key, and both
+ * invalidate it. Objects larger than the per-object cap, or whose size the backend does not
+ * report, are streamed straight from the backend so one large archive cannot flush the cache.
+ */
+public class CachingStorageService extends DelegatingStorageService {
+
+  private final ObjectCache cache;
+  private final long maxObjectBytes;
+
+  /**
+   * @param delegate the StorageService objects are loaded from
+   * @param cache the cache objects are kept in
+   * @param maxObjectBytes the size of the largest object that is cached
+   */
+  public CachingStorageService(StorageService delegate, ObjectCache cache, long maxObjectBytes) {
+    super(delegate);
+    this.cache = cache;
+    this.maxObjectBytes = maxObjectBytes;
+  }
+
+  @Override
+  public String store(MultipartFile multipartFile) {
+    cache.invalidate(multipartFile.getOriginalFilename());
+    return super.store(multipartFile);
+  }
+
+  @Override
+  public String store(File file) {
+    cache.invalidate(file.getName());
+    return super.store(file);
+  }
+
+  @Override
+  public String store(String keyName, File file) {
+    cache.invalidate(keyName);
+    return super.store(keyName, file);
+  }
+
+  @Override
+  public String store(String keyName, InputStream content, long contentLength, String contentType) {
+    cache.invalidate(keyName);
+    return super.store(keyName, content, contentLength, contentType);
+  }
+
+  @Override
+  public String store(StorageMetadata metadata, InputStream content) {
+    cache.invalidate(metadata.getKey());
+    return super.store(metadata, content);
+  }
+
+  /**
+   * Reads an object fully into memory, from the cache if it is cached.
+   *
+   * @param keyName name of the object to be fetched
+   * @return the content of the object
+   */
+  @Override
+  public ByteArrayOutputStream downloadFile(String keyName) {
+    try (StorageObject object = openStream(keyName)) {
+      int length = (int) Math.max(object.getContentLength(), 0);
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(length);
+      object.transferTo(baos);
+      return baos;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read " + keyName, e);
+    }
+  }
+
+  /**
+   * Opens an object from the cache, or from the backend on a miss. A missed object within the
+   * per-object cap is read into the cache before it is handed out.
+   *
+   * @param keyName name of the object to be opened
+   * @return an open handle on the object
+   */
+  @Override
+  public StorageObject openStream(String keyName) {
+    StorageObject cached = cache.get(keyName);
+    if (cached != null) {
+      return cached;
+    }
+    StorageObject object = super.openStream(keyName);
+    if (object.getContentLength() < 0 || object.getContentLength() > maxObjectBytes) {
+      return object;
+    }
+    try (StorageObject loaded = object) {
+      return cache.put(loaded);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read " + keyName, e);
+    }
+  }
+
+  /**
+   * Opens part of an object, slicing it from the cache if it is cached. Ranged reads of objects
+   * that are not cached go straight to the backend and do not load the object into the cache.
+   *
+   * @param keyName name of the object to be opened
+   * @param first the offset of the first byte to read
+   * @param last the offset of the last byte to read
+   * @return an open handle on the requested bytes
+   */
+  @Override
+  public StorageObject openStream(String keyName, long first, long last) {
+    StorageObject cached = cache.get(keyName, first, last);
+    return cached != null ? cached : super.openStream(keyName, first, last);
+  }
+
+  @Override
+  public void delete(String keyName) {
+    cache.invalidate(keyName);
+    super.delete(keyName);
+  }
+
+  @Override
+  public void deleteAll(Collection<String> keyNames) {
+    keyNames.forEach(cache::invalidate);
+    super.deleteAll(keyNames);
+  }
+
+  @Override
+  public void deleteOrphans(Collection<String> keyNames, long referencedBefore) {
+    keyNames.forEach(cache::invalidate);
+    super.deleteOrphans(keyNames, referencedBefore);
+  }
+
+  @Override
+  public void release(String keyName) {
+    cache.invalidate(keyName);
+    super.release(keyName);
+  }
+}
@@ -0,0 +1,158 @@
+package com.revature.rpm.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.revature.rpm.util.ByteBufferInputStream;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * CaffeineObjectCache keeps the content of cached objects in ByteBuffers. Caffeine evicts by the
+ * total size of the cached content using its W-TinyLFU policy, which keeps frequently requested
+ * objects around even when a burst of one-off reads passes through.
+ *
+ * <p>The buffers are either ordinary heap buffers or direct buffers allocated outside of the Java
+ * heap. Off-heap content is never scanned or copied by the garbage collector, so a large cache
+ * does not lengthen the pauses of the requests sharing the JVM. Direct memory is only returned
+ * once an evicted buffer is collected, so -XX:MaxDirectMemorySize should leave headroom above the
+ * configured capacity.
+ */
+public class CaffeineObjectCache implements ObjectCache {
+
+  /** Name the cache's metrics are tagged with. */
+  public static final String CACHE_NAME = "storageObjects";
+
+  /** Size of the buffer used when reading content into a direct buffer. */
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Cache<String, CachedObject> cache;
+  private final boolean offHeap;
+
+  /**
+   * @param maxBytes the most content, in bytes, the cache holds at once
+   * @param offHeap whether content is kept in direct buffers outside of the Java heap
+   */
+  public CaffeineObjectCache(long maxBytes, boolean offHeap) {
+    this.offHeap = offHeap;
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((String key, CachedObject object) -> object.content.capacity())
+            .recordStats()
+            .build();
+  }
+
+  @Override
+  public StorageObject get(String keyName) {
+    CachedObject object = cache.getIfPresent(keyName);
+    return object == null ? null : object.open(keyName);
+  }
+
+  @Override
+  public StorageObject get(String keyName, long first, long last) {
+    CachedObject object = cache.getIfPresent(keyName);
+    return object == null ? null : object.open(keyName, first, last);
+  }
+
+  /**
+   * Reads an object's content into a buffer of its reported length and caches it.
+   *
+   * @param object an open handle on the object; it is read to the end but not closed
+   * @return a fresh handle on the cached content
+   * @throws IOException if the object cannot be read or is shorter than its reported length
+   */
+  @Override
+  public StorageObject put(StorageObject object) throws IOException {
+    int length = (int) object.getContentLength();
+    ByteBuffer content = offHeap ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+    readFully(object.getContent(), content);
+    content.flip();
+    CachedObject cached = new CachedObject(content, object.getContentType());
+    cache.put(object.getKey(), cached);
+    return cached.open(object.getKey());
+  }
+
+  @Override
+  public void invalidate(String keyName) {
+    cache.invalidate(keyName);
+  }
+
+  /**
+   * Publishes the cache.gets, cache.puts, cache.evictions and cache.size metrics of Caffeine, plus
+   * the number of bytes currently cached as storage.cache.bytes.
+   *
+   * @param registry the registry the metrics are published to
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    Gauge.builder("storage.cache.bytes", cache, CaffeineObjectCache::weightedSize)
+        .tag("cache", CACHE_NAME)
+        .tag("location", offHeap ? "off-heap" : "heap")
+        .baseUnit("bytes")
+        .description("The number of content bytes held by the cache")
+        .register(registry);
+  }
+
+  private static double weightedSize(Cache<String, CachedObject> cache) {
+    return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+  }
+
+  /**
+   * Fills a buffer from a stream, reading straight into the backing array of a heap buffer.
+   *
+   * @param in the stream to read
+   * @param buffer the buffer to fill up to its limit
+   * @throws IOException if the stream cannot be read or ends before the buffer is full
+   */
+  private static void readFully(InputStream in, ByteBuffer buffer) throws IOException {
+    byte[] chunk = buffer.hasArray() ? buffer.array() : new byte[BUFFER_SIZE];
+    while (buffer.hasRemaining()) {
+      int read;
+      if (buffer.hasArray()) {
+        read = in.read(chunk, buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        if (read > 0) {
+          buffer.position(buffer.position() + read);
+        }
+      } else {
+        read = in.read(chunk, 0, Math.min(chunk.length, buffer.remaining()));
+        if (read > 0) {
+          buffer.put(chunk, 0, read);
+        }
+      }
+      if (read == -1) {
+        throw new EOFException(buffer.remaining() + " bytes missing from the object");
+      }
+    }
+  }
+
+  /** The content and content type of a cached object. */
+  private static class CachedObject {
+
+    private final ByteBuffer content;
+    private final String contentType;
+
+    private CachedObject(ByteBuffer content, String contentType) {
+      this.content = content;
+      this.contentType = contentType;
+    }
+
+    /** Each handle reads its own view of the shared content, so readers do not interfere. */
+    private StorageObject open(String keyName) {
+      return open(keyName, 0, content.limit() - 1);
+    }
+
+    private StorageObject open(String keyName, long first, long last) {
+      ByteBuffer range = content.duplicate();
+      range.limit((int) Math.min(last + 1, content.limit()));
+      range.position((int) Math.min(first, range.limit()));
+      return new StorageObject(
+          keyName, range.remaining(), contentType, new ByteBufferInputStream(range));
+    }
+  }
+}
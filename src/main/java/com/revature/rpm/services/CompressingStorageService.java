@@ -0,0 +1,92 @@
+package com.revature.rpm.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * CompressingStorageService gzips uploaded text files, such as data model SQL scripts, before they
+ * are stored. The content is stored with a gzip content encoding, so readers can tell it apart from
+ * content stored as is and either pass it on compressed or decode it. Uploads that are not text,
+ * are too large to compress in memory or do not get any smaller are stored as is. Turned off by
+ * setting storage.compression.enabled to false.
+ */
+public class CompressingStorageService extends DelegatingStorageService {
+
+  private static final Logger logger = LoggerFactory.getLogger(CompressingStorageService.class);
+
+  /** The content encoding compressed uploads are stored with. */
+  public static final String GZIP = "gzip";
+
+  /** Extensions of uploads treated as text whatever media type the client sent. */
+  private static final Set<String> TEXT_EXTENSIONS =
+      new HashSet<>(Arrays.asList("sql", "txt", "csv", "json", "xml", "md"));
+
+  private final long maxBytes;
+
+  /**
+   * @param delegate the StorageService compressed content is stored in
+   * @param maxBytes the size of the largest upload that is compressed
+   */
+  public CompressingStorageService(StorageService delegate, long maxBytes) {
+    super(delegate);
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Stores an uploaded file, compressed if it is text.
+   *
+   * @param multipartFile the file representation of the object desired to store
+   * @return the link to the stored object
+   * @throws UncheckedIOException if the upload could not be read
+   */
+  @Override
+  public String store(MultipartFile multipartFile) {
+    if (!isText(multipartFile) || multipartFile.getSize() > maxBytes) {
+      return super.store(multipartFile);
+    }
+    try {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      try (InputStream in = multipartFile.getInputStream();
+          GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+        StreamUtils.copy(in, out);
+      }
+      if (compressed.size() >= multipartFile.getSize()) {
+        return super.store(multipartFile);
+      }
+      StorageMetadata metadata =
+          new StorageMetadata(
+              multipartFile.getOriginalFilename(),
+              compressed.size(),
+              multipartFile.getContentType(),
+              null,
+              -1,
+              GZIP,
+              multipartFile.getSize());
+      return store(metadata, new ByteArrayInputStream(compressed.toByteArray()));
+    } catch (IOException e) {
+      logger.error("Could not compress {}", multipartFile.getOriginalFilename(), e);
+      throw new UncheckedIOException("Could not store " + multipartFile.getOriginalFilename(), e);
+    }
+  }
+
+  private boolean isText(MultipartFile multipartFile) {
+    String contentType = multipartFile.getContentType();
+    if (contentType != null && contentType.startsWith("text/")) {
+      return true;
+    }
+    String extension = StringUtils.getFilenameExtension(multipartFile.getOriginalFilename());
+    return extension != null && TEXT_EXTENSIONS.contains(extension.toLowerCase());
+  }
+}
@@ -0,0 +1,291 @@
+package com.revature.rpm.services;
+
+import com.revature.rpm.entities.ObjectReference;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.apache.commons.codec.binary.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * ContentAddressedStorageService stores every object under the SHA-256 digest of its content
+ * (keeping the original file extension) instead of under its client-supplied name. Identical
+ * screenshots or archives submitted more than once are therefore stored once, and different files
+ * that happen to share a name no longer overwrite each other.
+ *
+ * <p>Each store counts a reference to the object and each release drops one; the object is
+ * deleted from the backend when its last reference is released. An object is marked in the
+ * reference counter for as long as it is being deleted, so the same content stored meanwhile is
+ * uploaded again after the deletion rather than lost to it. Enabled by setting
+ * storage.content-addressed to true.
+ */
+public class ContentAddressedStorageService extends DelegatingStorageService {
+
+  private static final Logger logger =
+      LoggerFactory.getLogger(ContentAddressedStorageService.class);
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  private final ObjectReferenceCounter referenceCounter;
+
+  public ContentAddressedStorageService(
+      StorageService delegate, ObjectReferenceCounter referenceCounter) {
+    super(delegate);
+    this.referenceCounter = referenceCounter;
+  }
+
+  /**
+   * Stores an uploaded file under the digest of its content. The part is read once to hash it and
+   * a second time to upload it, which is skipped if the content is already stored.
+   *
+   * @param multipartFile the file representation of the object desired to store
+   * @return the link to the stored object
+   */
+  @Override
+  public String store(MultipartFile multipartFile) {
+    try {
+      String key;
+      try (InputStream content = multipartFile.getInputStream()) {
+        key = digestKey(content, multipartFile.getOriginalFilename());
+      }
+      return storeOnce(
+          key,
+          () -> {
+            try (InputStream content = multipartFile.getInputStream()) {
+              return getDelegate()
+                  .store(key, content, multipartFile.getSize(), multipartFile.getContentType());
+            }
+          });
+    } catch (IOException e) {
+      logger.error("Could not store {}", multipartFile.getOriginalFilename(), e);
+      throw new UncheckedIOException("Could not store " + multipartFile.getOriginalFilename(), e);
+    }
+  }
+
+  @Override
+  public String store(File file) {
+    return store(file.getName(), file);
+  }
+
+  /**
+   * Stores a file under the digest of its content; the argued key only contributes its extension.
+   *
+   * @param keyName the client-supplied name of the object
+   * @param file the file representation of the object desired to store
+   * @return the link to the stored object
+   */
+  @Override
+  public String store(String keyName, File file) {
+    try {
+      String key;
+      try (InputStream content = new FileInputStream(file)) {
+        key = digestKey(content, keyName);
+      }
+      return storeOnce(key, () -> getDelegate().store(key, file));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not store " + keyName, e);
+    }
+  }
+
+  @Override
+  public String store(String keyName, InputStream content, long contentLength, String contentType) {
+    return store(new StorageMetadata(keyName, contentLength, contentType, null), content);
+  }
+
+  /**
+   * Stores a stream under the digest of its content as stored, so the same content stored with
+   * different encodings is kept apart. A stream can only be read once, so it is hashed while being
+   * spooled to a temporary file, which is uploaded unless the content is already stored and then
+   * deleted.
+   *
+   * @param metadata describes the content; its key only contributes its extension
+   * @param content the content of the object
+   * @return the link to the stored object
+   */
+  @Override
+  public String store(StorageMetadata metadata, InputStream content) {
+    Path spool = null;
+    try {
+      spool = Files.createTempFile("rpm-upload-", ".tmp");
+      MessageDigest digest = newDigest();
+      try (InputStream in = new DigestInputStream(content, digest);
+          OutputStream out = Files.newOutputStream(spool)) {
+        StreamUtils.copy(in, out);
+      }
+      String key = withExtension(Hex.encodeHexString(digest.digest()), metadata.getKey());
+      File spooled = spool.toFile();
+      StorageMetadata stored =
+          new StorageMetadata(
+              key,
+              spooled.length(),
+              metadata.getContentType(),
+              null,
+              -1,
+              metadata.getContentEncoding(),
+              metadata.getDecodedLength());
+      return storeOnce(
+          key,
+          () -> {
+            try (InputStream in = new FileInputStream(spooled)) {
+              return stored.getContentEncoding() == null
+                  ? getDelegate().store(key, in, stored.getContentLength(), stored.getContentType())
+                  : getDelegate().store(stored, in);
+            }
+          });
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not store " + metadata.getKey(), e);
+    } finally {
+      if (spool != null) {
+        spool.toFile().delete();
+      }
+    }
+  }
+
+  /**
+   * Drops a reference to an object, deleting it from the backend if that was its last one. Keys
+   * without a reference count, such as objects stored before this mode was enabled, are kept.
+   *
+   * @param keyName the key of the object no longer referenced
+   */
+  @Override
+  public void release(String keyName) {
+    long remaining = referenceCounter.decrement(keyName);
+    if (remaining == 0 && referenceCounter.markDeleting(keyName)) {
+      try {
+        getDelegate().delete(keyName);
+      } finally {
+        referenceCounter.finishDeleting(keyName);
+      }
+    }
+  }
+
+  /**
+   * Removes objects nothing references any more. Objects that a submission still references,
+   * including one that started sharing the object after the caller decided to remove it, are kept;
+   * the reference records of the removed objects are dropped along with them.
+   *
+   * @param keyNames the keys of the objects to remove
+   */
+  @Override
+  public void deleteAll(Collection<String> keyNames) {
+    List<String> unreferenced = new ArrayList<>();
+    for (String keyName : keyNames) {
+      if (referenceCounter.markDeleting(keyName)) {
+        unreferenced.add(keyName);
+      }
+    }
+    deleteMarked(unreferenced);
+  }
+
+  /**
+   * Removes objects no project links to, along with their reference records. A record still
+   * counting references is only trusted if a reference was added to it since referencedBefore,
+   * as it is then likely held by a submission that has not saved its project yet; older counts
+   * were leaked by failed submissions and are dropped.
+   *
+   * @param keyNames the keys of the objects no project links to
+   * @param referencedBefore the time before which an unheld reference is considered leaked
+   */
+  @Override
+  public void deleteOrphans(Collection<String> keyNames, long referencedBefore) {
+    List<String> orphans = new ArrayList<>();
+    for (String keyName : keyNames) {
+      if (referenceCounter.markDeletingIfStale(keyName, referencedBefore)) {
+        orphans.add(keyName);
+      }
+    }
+    deleteMarked(orphans);
+  }
+
+  /**
+   * Deletes objects marked as being deleted from the backend, then drops their marks.
+   *
+   * @param keyNames the keys of the marked objects
+   */
+  private void deleteMarked(List<String> keyNames) {
+    if (keyNames.isEmpty()) {
+      return;
+    }
+    try {
+      getDelegate().deleteAll(keyNames);
+    } finally {
+      keyNames.forEach(referenceCounter::finishDeleting);
+    }
+  }
+
+  /**
+   * Counts a new reference to an object and uploads it unless it is already stored. If the upload
+   * fails the reference is taken back.
+   *
+   * @param key the content-derived key of the object
+   * @param upload stores the object in the backend and returns its link
+   * @return the link to the stored object
+   * @throws IOException if the upload fails
+   */
+  private String storeOnce(String key, Upload upload) throws IOException {
+    ObjectReference reference = referenceCounter.increment(key);
+    try {
+      if (reference.getReferences() > 1
+          && reference.getLink() != null
+          && getDelegate().exists(key)) {
+        return reference.getLink();
+      }
+      String link = upload.run();
+      referenceCounter.recordLink(key, link);
+      return link;
+    } catch (IOException | RuntimeException e) {
+      referenceCounter.decrement(key);
+      throw e;
+    }
+  }
+
+  /**
+   * Hashes the content of a stream into a storage key.
+   *
+   * @param content the stream to hash; it is read to the end
+   * @param name the client-supplied name, whose extension is kept
+   * @return the hex digest of the content followed by the extension of the name
+   * @throws IOException if the stream cannot be read
+   */
+  private String digestKey(InputStream content, String name) throws IOException {
+    MessageDigest digest = newDigest();
+    try (InputStream in = new DigestInputStream(content, digest)) {
+      StreamUtils.drain(in);
+    }
+    return withExtension(Hex.encodeHexString(digest.digest()), name);
+  }
+
+  private String withExtension(String hash, String name) {
+    String extension = StringUtils.getFilenameExtension(name);
+    return extension == null ? hash : hash + '.' + extension.toLowerCase();
+  }
+
+  private MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(DIGEST_ALGORITHM + " is not available", e);
+    }
+  }
+
+  /** An upload of an object that may fail with an IOException. */
+  @FunctionalInterface
+  private interface Upload {
+    String run() throws IOException;
+  }
+}
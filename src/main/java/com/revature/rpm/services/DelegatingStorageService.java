@@ -0,0 +1,112 @@
+package com.revature.rpm.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collection;
+import java.util.function.Consumer;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * DelegatingStorageService forwards every call to another StorageService. Storage features that
+ * sit in front of the configured backend extend it and override only the calls they change; see
+ * StorageConfig for how they are stacked.
+ */
+public class DelegatingStorageService implements StorageService {
+
+  private final StorageService delegate;
+
+  public DelegatingStorageService(StorageService delegate) {
+    this.delegate = delegate;
+  }
+
+  /** @return the StorageService calls are forwarded to */
+  public StorageService getDelegate() {
+    return delegate;
+  }
+
+  /** The backend is initialized by the container, so there is nothing to do here. */
+  @Override
+  public void init() {}
+
+  @Override
+  public String store(MultipartFile multipartFile) {
+    return delegate.store(multipartFile);
+  }
+
+  @Override
+  public String store(File file) {
+    return delegate.store(file);
+  }
+
+  @Override
+  public String store(String keyName, File file) {
+    return delegate.store(keyName, file);
+  }
+
+  @Override
+  public String store(String keyName, InputStream content, long contentLength, String contentType) {
+    return delegate.store(keyName, content, contentLength, contentType);
+  }
+
+  @Override
+  public String store(StorageMetadata metadata, InputStream content) {
+    return delegate.store(metadata, content);
+  }
+
+  @Override
+  public ByteArrayOutputStream downloadFile(String keyName) {
+    return delegate.downloadFile(keyName);
+  }
+
+  @Override
+  public StorageObject openStream(String keyName) {
+    return delegate.openStream(keyName);
+  }
+
+  @Override
+  public StorageObject openStream(String keyName, long first, long last) {
+    return delegate.openStream(keyName, first, last);
+  }
+
+  @Override
+  public StorageMetadata getMetadata(String keyName) {
+    return delegate.getMetadata(keyName);
+  }
+
+  @Override
+  public URL presignedUrl(String keyName) {
+    return delegate.presignedUrl(keyName);
+  }
+
+  @Override
+  public void listObjects(Consumer<StorageMetadata> consumer) {
+    delegate.listObjects(consumer);
+  }
+
+  @Override
+  public boolean exists(String keyName) {
+    return delegate.exists(keyName);
+  }
+
+  @Override
+  public void delete(String keyName) {
+    delegate.delete(keyName);
+  }
+
+  @Override
+  public void deleteAll(Collection<String> keyNames) {
+    delegate.deleteAll(keyNames);
+  }
+
+  @Override
+  public void deleteOrphans(Collection<String> keyNames, long referencedBefore) {
+    delegate.deleteOrphans(keyNames, referencedBefore);
+  }
+
+  @Override
+  public void release(String keyName) {
+    delegate.release(keyName);
+  }
+}
@@ -1,5 +1,6 @@
 package com.revature.rpm.services;
 
+import com.revature.rpm.exceptions.FileSizeTooLargeException;
 import java.io.File;
 import java.io.IOException;
 
@@ -7,11 +8,27 @@ import java.io.IOException;
 public interface FileService {
 
   /**
-   * FileService.download accepts a fileURI and produces the file downloaded from that URI
+   * FileService.download accepts a fileURI and produces the file downloaded from that URI. The
+   * file is saved in a temporary directory of its own, which the caller deletes once done with it.
    *
    * @param fileURI the URI from which to download
    * @return the downloaded file
    * @throws IOException if there is an issue downloading the specified file
    */
-  File download(String fileURI) throws IOException;
+  default File download(String fileURI) throws IOException {
+    return download(fileURI, Long.MAX_VALUE);
+  }
+
+  /**
+   * FileService.download accepts a fileURI and produces the file downloaded from that URI, giving
+   * up as soon as the file is known to be larger than the argued size. The file is saved in a
+   * temporary directory of its own, which the caller deletes once done with it.
+   *
+   * @param fileURI the URI from which to download
+   * @param maxBytes the size in bytes of the largest file accepted
+   * @return the downloaded file
+   * @throws IOException if there is an issue downloading the specified file
+   * @throws FileSizeTooLargeException if the file is larger than maxBytes
+   */
+  File download(String fileURI, long maxBytes) throws IOException;
 }
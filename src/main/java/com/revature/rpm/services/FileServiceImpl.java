@@ -1,44 +1,120 @@
 package com.revature.rpm.services;
 
-import com.revature.rpm.util.FileHelper;
+import com.revature.rpm.exceptions.FileSizeTooLargeException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
-import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 /** FileServiceImpl implements FileService */
 @Service
 public class FileServiceImpl implements FileService {
 
+  /** Size of the buffer a download is copied through, whatever the size of the download. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Name a download is saved under when the response does not name it. */
+  private static final String DEFAULT_FILE_NAME = "archive.zip";
+
+  private final RestTemplate restTemplate;
+
+  public FileServiceImpl() {
+    this(new RestTemplate());
+  }
+
+  /** @param restTemplate the client downloads are made with */
+  public FileServiceImpl(RestTemplate restTemplate) {
+    this.restTemplate = restTemplate;
+  }
+
   /**
-   * FileServiceImpl.download simply implements FileService.download Added @Transactional
+   * FileServiceImpl.download simply implements FileService.download Added @Transactional. The
+   * response body is copied to disk through a fixed-size buffer as it arrives, so memory use does
+   * not grow with the size of the download.
+   *
+   * <p>A response whose Content-Length is over the limit is rejected before its body is read; one
+   * without a Content-Length is counted as it is copied and abandoned once it passes the limit. In
+   * both cases the connection is closed rather than drained, so no more of the file is transferred.
    *
    * @param fileURI URI to the file to be downloaded
-   * @return the downloaded File
+   * @param maxBytes the size in bytes of the largest file accepted
+   * @return the downloaded File, in a temporary directory of its own
    * @throws IOException if there is an issue downloading the specified file
+   * @throws FileSizeTooLargeException if the file is larger than maxBytes
    */
   @Transactional
-  public File download(String fileURI) throws IOException {
-
-    RestTemplate restTemplate = new RestTemplate();
-    restTemplate.getMessageConverters().add(new ByteArrayHttpMessageConverter());
-    HttpHeaders headers = new HttpHeaders();
-    headers.setAccept(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM));
-    HttpEntity<String> entity = new HttpEntity<String>(headers);
-
-    ResponseEntity<byte[]> response =
-        restTemplate.exchange(fileURI, HttpMethod.GET, entity, byte[].class, "1");
+  public File download(String fileURI, long maxBytes) throws IOException {
+    try {
+      return restTemplate.execute(
+          fileURI,
+          HttpMethod.GET,
+          request ->
+              request.getHeaders().setAccept(Arrays.asList(MediaType.APPLICATION_OCTET_STREAM)),
+          response -> save(response, maxBytes));
+    } catch (ResourceAccessException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw e;
+    }
+  }
 
+  /**
+   * Saves a response body to a file named as the response names it, in a new temporary directory
+   * so concurrent downloads of files with the same name do not collide.
+   *
+   * <p>The body is always closed here before the response is, even when the download is abandoned:
+   * closing the response first would drain the rest of the body to keep the connection alive.
+   *
+   * @param response the response
+   * @param maxBytes the size in bytes of the largest file accepted
+   * @return the saved file
+   * @throws IOException if reading the response or writing the file fails
+   * @throws FileSizeTooLargeException if the body is larger than maxBytes
+   */
+  private File save(ClientHttpResponse response, long maxBytes) throws IOException {
     String fileName = response.getHeaders().getContentDisposition().getFilename();
+    fileName =
+        fileName == null ? DEFAULT_FILE_NAME : Paths.get(fileName).getFileName().toString();
+    if (response.getHeaders().getContentLength() > maxBytes) {
+      response.getBody().close();
+      throw tooLarge(fileName, maxBytes);
+    }
+    Path directory = Files.createTempDirectory("download");
+    Path file = directory.resolve(fileName);
+    try (InputStream in = response.getBody();
+        OutputStream out = Files.newOutputStream(file)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      long total = 0;
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        total += read;
+        if (total > maxBytes) {
+          throw tooLarge(fileName, maxBytes);
+        }
+        out.write(buffer, 0, read);
+      }
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(file);
+      Files.deleteIfExists(directory);
+      throw e;
+    }
+    return file.toFile();
+  }
 
-    return FileHelper.convert(response.getBody(), fileName);
+  private FileSizeTooLargeException tooLarge(String fileName, long maxBytes) {
+    return new FileSizeTooLargeException(
+        "The file size of: " + fileName + " exceeds " + maxBytes + " bytes");
   }
 }
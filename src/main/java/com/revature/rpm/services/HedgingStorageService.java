@@ -0,0 +1,236 @@
+package com.revature.rpm.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HedgingStorageService cuts the tail latency of small reads. A read that has not answered within
+ * the 95th percentile of recent latencies of the same kind of read is sent a second time, and
+ * whichever copy answers first is used; the other is left to finish and is discarded. Only one
+ * read in twenty or so is hedged, so the extra load on the backend stays small.
+ *
+ * <p>Whole-object downloads (screenshots), metadata lookups (which every data model and archive
+ * download starts with) and opening whole objects (which is how the read cache loads a missed
+ * object) are hedged, each timed on its own, since a download is timed to its last byte and the
+ * others only until the backend answers. An open is only hedged once the object's metadata shows
+ * it is no larger than the read cache's per-object cap, so a large archive is never requested
+ * twice. Of two opened copies, the one that loses is closed as soon as it opens, so a duplicate
+ * stream never holds a second connection for the length of a transfer. Ranged reads are not
+ * hedged. Enabled by setting storage.hedge.enabled to true.
+ */
+public class HedgingStorageService extends DelegatingStorageService {
+
+  private static final Logger logger = LoggerFactory.getLogger(HedgingStorageService.class);
+
+  /** Reads timed before the hedge delay is taken from their percentile. */
+  private static final long MIN_SAMPLES = 20;
+
+  private final Executor executor;
+  private final long initialDelayMillis;
+  private final long minDelayMillis;
+  private final long maxOpenBytes;
+  private final Timer downloads;
+  private final Timer lookups;
+  private final Timer opens;
+  private final Counter hedges;
+  private final Counter hedgeWins;
+
+  /**
+   * @param delegate the StorageService reads are sent to
+   * @param executor runs the reads, so the caller can give up waiting on the first one
+   * @param meterRegistry the registry read latencies and hedge counts are published to
+   * @param initialDelayMillis hedge delay used until enough reads have been timed
+   * @param minDelayMillis the shortest hedge delay, however fast recent reads have been
+   * @param maxOpenBytes the size of the largest object whose opening is hedged
+   */
+  public HedgingStorageService(
+      StorageService delegate,
+      Executor executor,
+      MeterRegistry meterRegistry,
+      long initialDelayMillis,
+      long minDelayMillis,
+      long maxOpenBytes) {
+    super(delegate);
+    this.executor = executor;
+    this.initialDelayMillis = initialDelayMillis;
+    this.minDelayMillis = minDelayMillis;
+    this.maxOpenBytes = maxOpenBytes;
+    this.downloads = readTimer(meterRegistry, "download");
+    this.lookups = readTimer(meterRegistry, "metadata");
+    this.opens = readTimer(meterRegistry, "open");
+    this.hedges =
+        Counter.builder("storage.reads.hedged")
+            .description("Reads sent a second time after the first was slow to answer")
+            .register(meterRegistry);
+    this.hedgeWins =
+        Counter.builder("storage.reads.hedge.wins")
+            .description("Hedged reads answered first by the second copy")
+            .register(meterRegistry);
+  }
+
+  @Override
+  public ByteArrayOutputStream downloadFile(String keyName) {
+    return hedged(
+        keyName, downloads, () -> super.downloadFile(keyName), () -> true, unused -> {});
+  }
+
+  @Override
+  public StorageMetadata getMetadata(String keyName) {
+    return hedged(keyName, lookups, () -> super.getMetadata(keyName), () -> true, unused -> {});
+  }
+
+  @Override
+  public StorageObject openStream(String keyName) {
+    return hedged(
+        keyName, opens, () -> super.openStream(keyName), () -> isSmall(keyName), this::close);
+  }
+
+  /**
+   * Runs a read, and runs it a second time if the first copy is slower than the hedge delay and
+   * the read is still worth hedging.
+   *
+   * @param keyName name of the object being read, for error messages
+   * @param timer the latencies of this kind of read
+   * @param read the read; it must be safe to run twice at once
+   * @param worthHedging asked once the first copy is late, whether to send a second
+   * @param discard releases the result of a copy that is not used
+   * @return the result of whichever copy of the read succeeded first
+   */
+  private <T> T hedged(
+      String keyName,
+      Timer timer,
+      Supplier<T> read,
+      BooleanSupplier worthHedging,
+      Consumer<? super T> discard) {
+    CompletableFuture<T> first = CompletableFuture.supplyAsync(timed(timer, read), executor);
+    CompletableFuture<T> winner = first;
+    try {
+      try {
+        return first.get(hedgeDelayMillis(timer), TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        if (!worthHedging.getAsBoolean()) {
+          return first.get();
+        }
+        hedges.increment();
+        CompletableFuture<T> second = CompletableFuture.supplyAsync(timed(timer, read), executor);
+        winner = firstSuccess(first, second, discard);
+        return winner.get();
+      }
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException("Could not read " + keyName, cause);
+    } catch (InterruptedException e) {
+      winner.thenAccept(discard);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while reading " + keyName, e);
+    }
+  }
+
+  /**
+   * Combines two copies of a read into the first to succeed. It only fails once both have.
+   *
+   * @param first the copy sent first
+   * @param second the hedged copy
+   * @param discard releases the result of the copy that succeeds second
+   * @return a future completed by whichever copy succeeds first
+   */
+  private <T> CompletableFuture<T> firstSuccess(
+      CompletableFuture<T> first, CompletableFuture<T> second, Consumer<? super T> discard) {
+    CompletableFuture<T> winner = new CompletableFuture<>();
+    AtomicInteger failures = new AtomicInteger();
+    first.whenComplete(
+        (value, error) -> {
+          if (error == null) {
+            if (!winner.complete(value)) {
+              discard.accept(value);
+            }
+          } else if (failures.incrementAndGet() == 2) {
+            winner.completeExceptionally(error);
+          }
+        });
+    second.whenComplete(
+        (value, error) -> {
+          if (error == null) {
+            if (winner.complete(value)) {
+              hedgeWins.increment();
+            } else {
+              discard.accept(value);
+            }
+          } else if (failures.incrementAndGet() == 2) {
+            winner.completeExceptionally(error);
+          }
+        });
+    return winner;
+  }
+
+  /** Wraps a read so that the latency of every successful copy is recorded. */
+  private <T> Supplier<T> timed(Timer timer, Supplier<T> read) {
+    return () -> {
+      long started = System.nanoTime();
+      T result = read.get();
+      timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+      return result;
+    };
+  }
+
+  /**
+   * Looks up, itself hedged, whether an object is small enough for its opening to be hedged.
+   *
+   * @return false if the object is larger than maxOpenBytes, or its size is unknown
+   */
+  private boolean isSmall(String keyName) {
+    try {
+      long length = getMetadata(keyName).getContentLength();
+      return length >= 0 && length <= maxOpenBytes;
+    } catch (RuntimeException e) {
+      logger.debug("Not hedging the opening of {}: {}", keyName, e.getMessage());
+      return false;
+    }
+  }
+
+  private static Timer readTimer(MeterRegistry meterRegistry, String operation) {
+    return Timer.builder("storage.reads")
+        .description("Latency of single reads from the storage backend")
+        .tag("operation", operation)
+        .publishPercentiles(0.95)
+        .register(meterRegistry);
+  }
+
+  /** Closes an opened copy of an object that lost to the other copy. */
+  private void close(StorageObject object) {
+    try {
+      object.close();
+    } catch (IOException e) {
+      logger.warn("Could not close a hedged copy of {}: {}", object.getKey(), e.getMessage());
+    }
+  }
+
+  /** @return how long to wait on a read of the timed kind before hedging it */
+  private long hedgeDelayMillis(Timer timer) {
+    if (timer.count() < MIN_SAMPLES) {
+      return initialDelayMillis;
+    }
+    for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+      return Math.max(minDelayMillis, (long) percentile.value(TimeUnit.MILLISECONDS));
+    }
+    return initialDelayMillis;
+  }
+}
@@ -0,0 +1,94 @@
+package com.revature.rpm.services;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.revature.rpm.entities.IngestionJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+/**
+ * IngestionJobLeases decides which application instance runs an ingestion job. An instance claims
+ * a job with a single atomic Mongo operation that records it as the job's owner until its lease
+ * lapses, so when several instances look for unfinished jobs at once only one of them runs each.
+ * The owner renews its lease while the job runs; a job whose owner stopped is claimed by another
+ * instance once the lease has lapsed. Progress is only saved while the claim is held, so an
+ * instance whose lease lapsed cannot take the job back from the one that claimed it since.
+ */
+@Service
+public class IngestionJobLeases {
+
+  private MongoOperations mongoOperations;
+
+  @Autowired
+  public IngestionJobLeases(MongoOperations mongoOperations) {
+    this.mongoOperations = mongoOperations;
+  }
+
+  /**
+   * Claims an unfinished job that has no owner, whose lease has lapsed, or that the owner already
+   * holds, in which case its lease is renewed.
+   *
+   * @param jobId the id of the job
+   * @param owner the id of the claiming instance
+   * @param leaseMillis how long the claim lasts
+   * @return the claimed job, or null if it is finished or another instance holds it
+   */
+  public IngestionJob claim(String jobId, String owner, long leaseMillis) {
+    long now = System.currentTimeMillis();
+    return mongoOperations.findAndModify(
+        query(
+            where("_id")
+                .is(jobId)
+                .and("status")
+                .in(IngestionJob.QUEUED, IngestionJob.RUNNING)
+                .orOperator(
+                    where("owner").is(null),
+                    where("owner").is(owner),
+                    where("leaseExpires").lt(now))),
+        new Update().set("owner", owner).set("leaseExpires", now + leaseMillis),
+        FindAndModifyOptions.options().returnNew(true),
+        IngestionJob.class);
+  }
+
+  /**
+   * Saves a job's progress and renews the claim on it, as long as the instance still holds it.
+   *
+   * @param job the job
+   * @param owner the id of the instance running the job
+   * @param leaseMillis how long the renewed claim lasts
+   * @return false if another instance has claimed the job, which was then left unchanged
+   */
+  public boolean saveProgress(IngestionJob job, String owner, long leaseMillis) {
+    Update update =
+        new Update()
+            .set("status", job.getStatus())
+            .set("assets", job.getAssets())
+            .set("message", job.getMessage())
+            .set("updated", job.getUpdated())
+            .set("leaseExpires", job.getUpdated() + leaseMillis);
+    return mongoOperations
+            .updateFirst(
+                query(where("_id").is(job.getId()).and("owner").is(owner)),
+                update,
+                IngestionJob.class)
+            .getMatchedCount()
+        > 0;
+  }
+
+  /**
+   * Gives up a claim, so any instance may claim the job at once.
+   *
+   * @param jobId the id of the job
+   * @param owner the id of the instance holding the claim
+   */
+  public void release(String jobId, String owner) {
+    mongoOperations.updateFirst(
+        query(where("_id").is(jobId).and("owner").is(owner)),
+        new Update().unset("owner").set("leaseExpires", 0L),
+        IngestionJob.class);
+  }
+}
@@ -0,0 +1,306 @@
+package com.revature.rpm.services;
+
+import com.revature.rpm.dtos.ProjectDTO;
+import com.revature.rpm.entities.IngestionAsset;
+import com.revature.rpm.entities.IngestionJob;
+import com.revature.rpm.exceptions.ProjectNotFoundException;
+import com.revature.rpm.repositories.IngestionJobRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * IngestionService accepts project submissions without waiting for their zip archives. The project
+ * is saved at once with the Ingesting status, and an IngestionJob downloading and storing each of
+ * its github repositories is run on the ingestion pool. The job records the progress of every
+ * asset as it goes, so clients can poll it.
+ *
+ * <p>Jobs are kept in Mongo, and every instance of the application looks for unfinished jobs when
+ * it is ready and then periodically. An instance only runs a job it has claimed through
+ * IngestionJobLeases, and renews its claim as the job makes progress, so each job runs on one
+ * instance at a time. A job whose instance stopped is run again by whichever instance claims it
+ * once the lease lapses, skipping the assets it had already stored. A job the ingestion pool has
+ * no room for stays queued until an instance next looks.
+ */
+@Service
+public class IngestionService {
+
+  private static final Logger logger = LoggerFactory.getLogger(IngestionService.class);
+
+  /** Identifies this instance as the owner of the jobs it claims. */
+  private final String instanceId = UUID.randomUUID().toString();
+
+  /** The ids of the jobs scheduled on this instance, so none is scheduled twice. */
+  private final Set<String> scheduled = ConcurrentHashMap.newKeySet();
+
+  private final ProjectService projectService;
+  private final IngestionJobRepository jobRepository;
+  private final IngestionJobLeases jobLeases;
+  private final Executor ingestionExecutor;
+
+  @Value("${project.ingest.jobs.lease-ms:300000}")
+  private long leaseMillis = 300_000;
+
+  @Autowired
+  public IngestionService(
+      ProjectService projectService,
+      IngestionJobRepository jobRepository,
+      IngestionJobLeases jobLeases,
+      @Qualifier("ingestionExecutor") Executor ingestionExecutor) {
+    this.projectService = projectService;
+    this.jobRepository = jobRepository;
+    this.jobLeases = jobLeases;
+    this.ingestionExecutor = ingestionExecutor;
+  }
+
+  /**
+   * Saves a project with the Ingesting status and queues a job storing its zip archives. The
+   * project's screenshots and data models are stored before this returns, since uploaded files do
+   * not outlive the request.
+   *
+   * <p>The job is saved first, already claimed by this instance, so a project is never left
+   * ingesting without a job to complete it. If the project cannot be saved, the job is removed.
+   *
+   * @param projectDTO the data transfer object containing project details
+   * @return the queued job
+   */
+  public IngestionJob submit(ProjectDTO projectDTO) {
+    IngestionJob job = new IngestionJob();
+    job.setProjectId(new ObjectId().toHexString());
+    job.setStatus(IngestionJob.QUEUED);
+    for (String zipLink : projectDTO.getZipLinks()) {
+      job.getAssets().add(new IngestionAsset(zipLink));
+    }
+    job.setCreated(System.currentTimeMillis());
+    job.setUpdated(job.getCreated());
+    job.setOwner(instanceId);
+    job.setLeaseExpires(job.getCreated() + leaseMillis);
+    job = jobRepository.save(job);
+    scheduled.add(job.getId());
+
+    try {
+      projectService.createIngestingProject(job.getProjectId(), projectDTO);
+    } catch (RuntimeException e) {
+      scheduled.remove(job.getId());
+      jobRepository.deleteById(job.getId());
+      throw e;
+    }
+
+    schedule(job);
+    return job;
+  }
+
+  /**
+   * @param id the id of a job
+   * @return the job, with the progress of each of its assets
+   * @throws ProjectNotFoundException if there is no job with the id
+   */
+  public IngestionJob findById(String id) {
+    return jobRepository
+        .findById(id)
+        .orElseThrow(
+            () ->
+                new ProjectNotFoundException(
+                    "There is no ingestion job with id: " + id + ", in the database."));
+  }
+
+  /**
+   * Claims and queues the unfinished jobs no other instance holds, such as those left by an
+   * instance that stopped or that the ingestion pool had no room for, and renews the claims on the
+   * jobs this instance is running.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(
+      fixedDelayString = "${project.ingest.jobs.poll-ms:60000}",
+      initialDelayString = "${project.ingest.jobs.poll-ms:60000}")
+  public void resume() {
+    for (IngestionJob unfinished :
+        jobRepository.findByStatusIn(Arrays.asList(IngestionJob.QUEUED, IngestionJob.RUNNING))) {
+      String jobId = unfinished.getId();
+      if (!scheduled.add(jobId)) {
+        jobLeases.claim(jobId, instanceId, leaseMillis);
+        continue;
+      }
+      IngestionJob job = jobLeases.claim(jobId, instanceId, leaseMillis);
+      if (job == null) {
+        scheduled.remove(jobId);
+        continue;
+      }
+      logger.info("Resuming ingestion job {} of project {}", jobId, job.getProjectId());
+      schedule(job);
+    }
+  }
+
+  /**
+   * Queues a job claimed by this instance. If the ingestion pool has no room for it, the job is
+   * left queued and its claim released, so any instance may run it once it has room.
+   */
+  private void schedule(IngestionJob job) {
+    try {
+      ingestionExecutor.execute(() -> run(job));
+    } catch (RejectedExecutionException e) {
+      logger.warn("No room to run ingestion job {}, leaving it queued", job.getId());
+      scheduled.remove(job.getId());
+      jobLeases.release(job.getId(), instanceId);
+    }
+  }
+
+  /**
+   * Runs a job: stores each of its assets that is not yet done, all at once on the asset upload
+   * pool, then completes the project with links to them. Each asset's progress is saved as soon
+   * as it changes. As in a synchronous submission, an archive that cannot be downloaded is left
+   * out, but if an asset fails to be stored, or the project cannot be completed, the job fails and
+   * the project is removed. So does any other error, rather than leaving the job running. If
+   * another instance claims the job meanwhile, this one stops and leaves the job to it.
+   *
+   * @param job the job, claimed by this instance
+   */
+  private void run(IngestionJob job) {
+    try {
+      if (!job.isFinished()) {
+        storeAssets(job);
+      }
+    } catch (RuntimeException e) {
+      Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+      if (cause instanceof ClaimLostException) {
+        logger.warn("Ingestion job {} was claimed by another instance, stopping", job.getId());
+        return;
+      }
+      logger.error("Ingestion job {} failed unexpectedly", job.getId(), e);
+      try {
+        fail(job, String.valueOf(e.getMessage()), storedLinks(job));
+      } catch (RuntimeException failure) {
+        logger.error("Could not mark ingestion job {} as failed", job.getId(), failure);
+      }
+    } finally {
+      scheduled.remove(job.getId());
+    }
+  }
+
+  private void storeAssets(IngestionJob job) {
+    List<IngestionAsset> pending = new ArrayList<>();
+    job.setStatus(IngestionJob.RUNNING);
+    for (IngestionAsset asset : job.getAssets()) {
+      if (!IngestionAsset.DONE.equals(asset.getStatus())) {
+        asset.setStatus(IngestionAsset.RUNNING);
+        asset.setMessage(null);
+        pending.add(asset);
+      }
+    }
+    save(job);
+
+    List<CompletableFuture<Void>> transfers = new ArrayList<>();
+    for (IngestionAsset asset : pending) {
+      transfers.add(
+          projectService
+              .storeZipArchive(asset.getSource())
+              .handle((links, e) -> finish(job, asset, links, e)));
+    }
+    CompletableFuture.allOf(transfers.toArray(new CompletableFuture<?>[0])).join();
+
+    List<String> zipLinks = storedLinks(job);
+    IngestionAsset failed = null;
+    for (IngestionAsset asset : job.getAssets()) {
+      if (failed == null && IngestionAsset.FAILED.equals(asset.getStatus())) {
+        failed = asset;
+      }
+    }
+    if (failed != null) {
+      fail(job, failed.getSource() + ": " + failed.getMessage(), zipLinks);
+      return;
+    }
+    try {
+      projectService.completeIngestion(job.getProjectId(), zipLinks);
+    } catch (RuntimeException e) {
+      fail(job, e.getMessage(), zipLinks);
+      return;
+    }
+    synchronized (job) {
+      job.setStatus(IngestionJob.COMPLETED);
+      save(job);
+    }
+  }
+
+  /**
+   * Records the outcome of storing one asset.
+   *
+   * @return null, so it can complete the asset's transfer
+   */
+  private Void finish(IngestionJob job, IngestionAsset asset, List<String> links, Throwable e) {
+    synchronized (job) {
+      if (e != null) {
+        Throwable cause =
+            e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        asset.setStatus(IngestionAsset.FAILED);
+        asset.setMessage(cause.getMessage());
+      } else if (links.isEmpty()) {
+        asset.setStatus(IngestionAsset.SKIPPED);
+        asset.setMessage("The archive could not be downloaded");
+      } else {
+        asset.setStatus(IngestionAsset.DONE);
+        asset.setLink(links.get(0));
+      }
+      save(job);
+    }
+    return null;
+  }
+
+  private void fail(IngestionJob job, String message, List<String> zipLinks) {
+    logger.warn("Ingestion job {} failed: {}", job.getId(), message);
+    projectService.abandonIngestion(job.getProjectId(), zipLinks);
+    synchronized (job) {
+      job.setStatus(IngestionJob.FAILED);
+      job.setMessage(message);
+      save(job);
+    }
+  }
+
+  /** @return the links to the job's assets that have been stored, in submission order */
+  private List<String> storedLinks(IngestionJob job) {
+    List<String> zipLinks = new ArrayList<>();
+    synchronized (job) {
+      for (IngestionAsset asset : job.getAssets()) {
+        if (asset.getLink() != null) {
+          zipLinks.add(asset.getLink());
+        }
+      }
+    }
+    return zipLinks;
+  }
+
+  /**
+   * Saves the job's progress, renewing this instance's claim on it.
+   *
+   * @throws ClaimLostException if another instance has claimed the job since
+   */
+  private void save(IngestionJob job) {
+    job.setUpdated(System.currentTimeMillis());
+    job.setLeaseExpires(job.getUpdated() + leaseMillis);
+    if (!jobLeases.saveProgress(job, instanceId, leaseMillis)) {
+      throw new ClaimLostException();
+    }
+  }
+
+  /** Thrown to stop a job once another instance has claimed it. */
+  private static class ClaimLostException extends RuntimeException {
+
+    private static final long serialVersionUID = 2675092814376217095L;
+  }
+}
@@ -0,0 +1,403 @@
+package com.revature.rpm.services;
+
+import com.revature.rpm.config.StorageConfig;
+import com.revature.rpm.exceptions.BadRequestException;
+import com.revature.rpm.util.ByteBufferInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * LocalStorageServiceImpl keeps objects as files in a directory on the local filesystem, so the
+ * service can run and be load tested without any network access. Objects are written to a
+ * temporary file and atomically moved into place, so readers never see a partial object; large
+ * objects are read through memory-mapped buffers.
+ */
+@Service
+@Profile("local")
+@Qualifier(StorageConfig.STORAGE_BACKEND)
+public class LocalStorageServiceImpl implements StorageService {
+
+  /** The most bytes handed to a single transferFrom call. */
+  private static final long TRANSFER_CHUNK = 8 * 1024 * 1024;
+
+  private static final Logger logger = LoggerFactory.getLogger(LocalStorageServiceImpl.class);
+
+  /** The directory objects are stored in. */
+  @Value("${storage.local.root:${java.io.tmpdir}/rpm-storage}")
+  private String rootDirectory;
+
+  /** Objects at least this many bytes long are read through a memory-mapped buffer. */
+  @Value("${storage.local.mmap-threshold:1048576}")
+  private long mmapThreshold;
+
+  private Path root;
+
+  /** init creates the storage directory if it does not exist yet */
+  @Override
+  @PostConstruct
+  public void init() {
+    try {
+      root = Files.createDirectories(Paths.get(rootDirectory)).toRealPath();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not create storage directory " + rootDirectory, e);
+    }
+  }
+
+  /**
+   * store puts an object in the storage directory
+   *
+   * @param multipartFile the file representation of the object desired to store
+   * @return the link to the new object
+   * @throws UncheckedIOException if the upload could not be read
+   */
+  @Override
+  public String store(MultipartFile multipartFile) {
+    String keyName = multipartFile.getOriginalFilename();
+    try (InputStream content = multipartFile.getInputStream()) {
+      return store(keyName, content, multipartFile.getSize(), multipartFile.getContentType());
+    } catch (IOException e) {
+      logger.error("Could not read the upload of {}", keyName, e);
+      throw new UncheckedIOException("Could not store " + keyName, e);
+    }
+  }
+
+  /**
+   * store copies a file into the storage directory
+   *
+   * @param file the file representation fo the object desired to store
+   * @return the link to the new object
+   */
+  @Override
+  public String store(File file) {
+    return store(file.getName(), file);
+  }
+
+  /**
+   * store copies a file into the storage directory under the given key
+   *
+   * @param keyName the key to store the object under
+   * @param file the file representation fo the object desired to store
+   * @return the link to the new object
+   */
+  @Override
+  public String store(String keyName, File file) {
+    try (FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return write(keyName, source, source.size(), null);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not store " + keyName, e);
+    }
+  }
+
+  /**
+   * store copies the content of a stream into the storage directory
+   *
+   * @param keyName the key to store the object under
+   * @param content the content of the object
+   * @param contentLength the number of bytes in the content
+   * @param contentType ignored; the content type is probed from the key when the object is read
+   * @return the link to the new object
+   */
+  @Override
+  public String store(String keyName, InputStream content, long contentLength, String contentType) {
+    return store(new StorageMetadata(keyName, contentLength, contentType, null), content);
+  }
+
+  /**
+   * store copies the content of a stream into the storage directory. The encoding of encoded
+   * content and its decoded length are kept in a hidden file next to the object.
+   *
+   * @param metadata the key, length and encoding of the content; the content type is ignored
+   * @param content the content of the object, encoded as described
+   * @return the link to the new object
+   */
+  @Override
+  public String store(StorageMetadata metadata, InputStream content) {
+    String keyName = metadata.getKey();
+    List<String> encoding =
+        metadata.getContentEncoding() == null
+            ? null
+            : Arrays.asList(
+                metadata.getContentEncoding(), Long.toString(metadata.getDecodedLength()));
+    try {
+      return write(keyName, Channels.newChannel(content), metadata.getContentLength(), encoding);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not store " + keyName, e);
+    }
+  }
+
+  /**
+   * Reads a stored object fully into memory
+   *
+   * @param keyName name of the object to be fetched
+   * @return the content of the object
+   */
+  @Override
+  public ByteArrayOutputStream downloadFile(String keyName) {
+    try (StorageObject object = openStream(keyName)) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream((int) object.getContentLength());
+      object.transferTo(baos);
+      return baos;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read " + keyName, e);
+    }
+  }
+
+  /**
+   * Opens a stored object. Objects of at least storage.local.mmap-threshold bytes are mapped into
+   * memory so they are paged in by the OS rather than copied through a read buffer.
+   *
+   * @param keyName name of the object to be opened
+   * @return an open handle on the object
+   */
+  @Override
+  public StorageObject openStream(String keyName) {
+    Path path = resolve(keyName);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      String contentType = Files.probeContentType(path);
+      if (size >= mmapThreshold && size <= Integer.MAX_VALUE) {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        return new StorageObject(keyName, size, contentType, new ByteBufferInputStream(mapped));
+      }
+      return new StorageObject(keyName, size, contentType, Files.newInputStream(path));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not open " + keyName, e);
+    }
+  }
+
+  /**
+   * Opens part of a stored object. Ranges of at least storage.local.mmap-threshold bytes are mapped
+   * into memory; smaller ones are read into a buffer with a positional read.
+   *
+   * @param keyName name of the object to be opened
+   * @param first the offset of the first byte to read
+   * @param last the offset of the last byte to read
+   * @return an open handle on the requested bytes
+   */
+  @Override
+  public StorageObject openStream(String keyName, long first, long last) {
+    Path path = resolve(keyName);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long length = Math.min(last, channel.size() - 1) - first + 1;
+      if (first < 0 || length <= 0 || length > Integer.MAX_VALUE) {
+        throw new BadRequestException("Invalid range of " + keyName + ": " + first + "-" + last);
+      }
+      String contentType = Files.probeContentType(path);
+      ByteBuffer range;
+      if (length >= mmapThreshold) {
+        range = channel.map(FileChannel.MapMode.READ_ONLY, first, length);
+      } else {
+        range = ByteBuffer.allocate((int) length);
+        int read = 0;
+        while (range.hasRemaining() && read != -1) {
+          read = channel.read(range, first + range.position());
+        }
+        range.flip();
+      }
+      return new StorageObject(
+          keyName, range.remaining(), contentType, new ByteBufferInputStream(range));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not open " + keyName, e);
+    }
+  }
+
+  /**
+   * Describes a stored object. Its version tag combines the file's size and modification time,
+   * both of which change when the object is replaced. The content encoding, if any, is read from
+   * the hidden file written along with the object.
+   *
+   * @param keyName name of the object to describe
+   * @return the object's metadata
+   */
+  @Override
+  public StorageMetadata getMetadata(String keyName) {
+    Path path = resolve(keyName);
+    try {
+      long size = Files.size(path);
+      long modified = Files.getLastModifiedTime(path).toMillis();
+      String eTag = Long.toHexString(size) + "-" + Long.toHexString(modified);
+      String contentType = Files.probeContentType(path);
+      Path encoding = encodingFile(keyName);
+      if (!Files.exists(encoding)) {
+        return new StorageMetadata(keyName, size, contentType, eTag, modified);
+      }
+      List<String> lines = Files.readAllLines(encoding);
+      return new StorageMetadata(
+          keyName, size, contentType, eTag, modified, lines.get(0), Long.parseLong(lines.get(1)));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not describe " + keyName, e);
+    }
+  }
+
+  /**
+   * Lists the storage directory. Temporary files of writes still in progress are left out.
+   *
+   * @param consumer called with the metadata of each object in turn
+   */
+  @Override
+  public void listObjects(Consumer<StorageMetadata> consumer) {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(root)) {
+      for (Path file : files) {
+        String keyName = file.getFileName().toString();
+        if (!keyName.startsWith(".") && Files.isRegularFile(file)) {
+          consumer.accept(getMetadata(keyName));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not list " + root, e);
+    }
+  }
+
+  /**
+   * Checks whether an object exists in the storage directory
+   *
+   * @param keyName name of the object to look up
+   * @return true if the object exists
+   */
+  @Override
+  public boolean exists(String keyName) {
+    return Files.isRegularFile(resolve(keyName));
+  }
+
+  /**
+   * Removes an object from the storage directory
+   *
+   * @param keyName name of the object to remove
+   */
+  @Override
+  public void delete(String keyName) {
+    try {
+      Files.deleteIfExists(resolve(keyName));
+      Files.deleteIfExists(encodingFile(keyName));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not delete " + keyName, e);
+    }
+  }
+
+  /**
+   * @param keyName the key of an object
+   * @return the hidden file recording the object's content encoding
+   */
+  private Path encodingFile(String keyName) {
+    return resolve(keyName).resolveSibling("." + keyName + ".encoding");
+  }
+
+  /**
+   * Writes an object to a temporary file next to its final location and then atomically moves it
+   * into place, replacing any previous object with the same key. The source is copied to its end,
+   * and the object is only moved into place if that is exactly the length it was stored with.
+   *
+   * <p>The hidden file recording the content encoding is also written to a temporary file first,
+   * and renamed into place right after the object, or removed if the content has no encoding. A
+   * write that fails therefore leaves the previous object and its encoding as they were.
+   *
+   * <p>The link ends in the key as it is, the way S3 links do, rather than in its percent-encoded
+   * form, so the key read back from the link names the file.
+   *
+   * @param keyName the key to store the object under
+   * @param source the content of the object
+   * @param contentLength the number of bytes in the source, or -1 if it is unknown
+   * @param encoding the content encoding and the decoded length, or null if the content is stored
+   *     as is
+   * @return the link to the new object
+   * @throws IOException if the object could not be written, or the source was not contentLength
+   *     bytes long
+   */
+  private String write(
+      String keyName, ReadableByteChannel source, long contentLength, List<String> encoding)
+      throws IOException {
+    Path target = resolve(keyName);
+    Path encodingTarget = encodingFile(keyName);
+    Path temp = Files.createTempFile(root, ".upload-", ".tmp");
+    Path encodingTemp = null;
+    try {
+      try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        long position = 0;
+        ByteBuffer probe = ByteBuffer.allocate(1);
+        while (true) {
+          long copied = out.transferFrom(source, position, TRANSFER_CHUNK);
+          if (copied > 0) {
+            position += copied;
+            continue;
+          }
+          // transferFrom copies nothing both at the end of the source and when a read returns no
+          // bytes yet, so a byte is read to tell the two apart
+          probe.clear();
+          if (source.read(probe) == -1) {
+            break;
+          }
+          probe.flip();
+          position += out.write(probe, position);
+        }
+        if (contentLength >= 0 && position != contentLength) {
+          throw new IOException(
+              "Expected " + contentLength + " bytes of " + keyName + " but read " + position);
+        }
+        out.force(true);
+      }
+      if (encoding != null) {
+        encodingTemp = Files.createTempFile(root, ".encoding-", ".tmp");
+        Files.write(encodingTemp, encoding);
+      }
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      if (encodingTemp == null) {
+        Files.deleteIfExists(encodingTarget);
+      } else {
+        Files.move(
+            encodingTemp,
+            encodingTarget,
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+      if (encodingTemp != null) {
+        Files.deleteIfExists(encodingTemp);
+      }
+    }
+    String directory = root.toUri().toString();
+    return (directory.endsWith("/") ? directory : directory + "/") + keyName;
+  }
+
+  /**
+   * Maps a key to its file, rejecting keys that would point outside of the storage directory.
+   *
+   * @param keyName the key of an object
+   * @return the path of the object's file
+   */
+  private Path resolve(String keyName) {
+    if (keyName == null || keyName.trim().isEmpty()) {
+      throw new BadRequestException("Invalid storage key: " + keyName);
+    }
+    Path path = root.resolve(keyName).normalize();
+    if (!root.equals(path.getParent())) {
+      throw new BadRequestException("Invalid storage key: " + keyName);
+    }
+    return path;
+  }
+}
@@ -0,0 +1,46 @@
+package com.revature.rpm.services;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+
+/**
+ * ObjectCache holds the content of recently read storage objects, bounded by the total number of
+ * bytes cached. Implementations publish their hit, miss and eviction counts through the meter
+ * registry they are bound to.
+ */
+public interface ObjectCache extends MeterBinder {
+
+  /**
+   * Opens a cached object
+   *
+   * @param keyName name of the object
+   * @return a fresh handle on the cached content, or null if the object is not cached
+   */
+  StorageObject get(String keyName);
+
+  /**
+   * Opens part of a cached object
+   *
+   * @param keyName name of the object
+   * @param first the offset of the first byte to read
+   * @param last the offset of the last byte to read
+   * @return a fresh handle on the requested bytes, or null if the object is not cached
+   */
+  StorageObject get(String keyName, long first, long last);
+
+  /**
+   * Reads an object's content fully into the cache
+   *
+   * @param object an open handle on the object; it is read to the end but not closed
+   * @return a fresh handle on the cached content
+   * @throws IOException if the object cannot be read
+   */
+  StorageObject put(StorageObject object) throws IOException;
+
+  /**
+   * Drops an object from the cache
+   *
+   * @param keyName name of the object
+   */
+  void invalidate(String keyName);
+}
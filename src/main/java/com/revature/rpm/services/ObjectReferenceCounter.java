@@ -0,0 +1,166 @@
+package com.revature.rpm.services;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.revature.rpm.entities.ObjectReference;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+/**
+ * ObjectReferenceCounter keeps the reference counts of content-addressed storage objects. Every
+ * update is a single atomic Mongo operation, so concurrent submissions and deletions that share an
+ * object never lose a count.
+ *
+ * <p>An object is marked in its record while it is deleted from storage, and the record is removed
+ * once the deletion is done. A reference cannot be added to a marked record, so a submission
+ * storing the same content waits for the deletion and then uploads the object again, instead of
+ * uploading it just before it is deleted. A mark left by a deletion that never finished is ignored
+ * after DELETION_TIMEOUT_MILLIS.
+ */
+@Service
+public class ObjectReferenceCounter {
+
+  /** How long a deletion may take before its mark is ignored. */
+  private static final long DELETION_TIMEOUT_MILLIS = 60_000;
+
+  /** How long increment waits before trying again to add a reference to an object being deleted. */
+  private static final long DELETION_POLL_MILLIS = 50;
+
+  private MongoOperations mongoOperations;
+
+  @Autowired
+  public ObjectReferenceCounter(MongoOperations mongoOperations) {
+    this.mongoOperations = mongoOperations;
+  }
+
+  /**
+   * Adds a reference to an object, starting its count if it has none yet, and records when the
+   * reference was added. If the object is being deleted, this waits until the deletion is done
+   * and then starts a new count, so the caller knows it has to store the object again.
+   *
+   * @param key the key of the object
+   * @return the object's reference record after the increment
+   * @throws IllegalStateException if interrupted while waiting for a deletion
+   */
+  public ObjectReference increment(String key) {
+    while (true) {
+      long now = System.currentTimeMillis();
+      try {
+        // upserting while the record is marked inserts a second record with the same key, which
+        // fails until the deletion has removed the marked one
+        return mongoOperations.findAndModify(
+            query(where("_id").is(key).andOperator(notDeleting(now))),
+            new Update().inc("references", 1).set("lastReferenced", now).unset("deleting"),
+            FindAndModifyOptions.options().upsert(true).returnNew(true),
+            ObjectReference.class);
+      } catch (DuplicateKeyException e) {
+        try {
+          Thread.sleep(DELETION_POLL_MILLIS);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while " + key + " was deleted", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes a reference from an object.
+   *
+   * @param key the key of the object
+   * @return the number of references left, or -1 if the object's references are not counted
+   */
+  public long decrement(String key) {
+    ObjectReference reference =
+        mongoOperations.findAndModify(
+            query(where("_id").is(key).and("references").gt(0)),
+            new Update().inc("references", -1),
+            FindAndModifyOptions.options().returnNew(true),
+            ObjectReference.class);
+    return reference == null ? -1 : reference.getReferences();
+  }
+
+  /**
+   * Records the link an object was stored under, so later submissions of the same content can
+   * reuse it without storing the object again.
+   *
+   * @param key the key of the object
+   * @param link the link returned by the storage backend
+   */
+  public void recordLink(String key, String link) {
+    mongoOperations.updateFirst(
+        query(where("_id").is(key)), new Update().set("link", link), ObjectReference.class);
+  }
+
+  /**
+   * Marks an object as being deleted if nothing references it. An object without a record, such
+   * as one stored before this mode was enabled, is marked too. A submission that added a reference
+   * in the meantime keeps the object alive.
+   *
+   * @param key the key of the object
+   * @return true if the object was marked and may be removed from storage, after which
+   *     finishDeleting must be called
+   */
+  public boolean markDeleting(String key) {
+    return markDeleting(key, where("references").lte(0));
+  }
+
+  /**
+   * Marks an object as being deleted if nothing references it, or if no reference has been added
+   * to it since the argued time. Records written before references were timed count as old.
+   *
+   * @param key the key of the object
+   * @param referencedBefore the time, in milliseconds since the epoch, a reference must have been
+   *     added after for the object to be kept
+   * @return true if the object was marked and may be removed from storage, after which
+   *     finishDeleting must be called
+   */
+  public boolean markDeletingIfStale(String key, long referencedBefore) {
+    return markDeleting(
+        key,
+        new Criteria()
+            .orOperator(
+                where("references").lte(0),
+                where("lastReferenced").lt(referencedBefore),
+                where("lastReferenced").exists(false)));
+  }
+
+  /**
+   * Removes the record of an object marked by markDeleting, once it has been deleted from storage,
+   * letting submissions waiting to store the same content go ahead.
+   *
+   * @param key the key of the object
+   */
+  public void finishDeleting(String key) {
+    mongoOperations.remove(
+        query(where("_id").is(key).and("deleting").ne(null)), ObjectReference.class);
+  }
+
+  private boolean markDeleting(String key, Criteria deletable) {
+    long now = System.currentTimeMillis();
+    try {
+      // a record that is referenced or already marked does not match, so the upsert tries to
+      // insert a second record with the same key and fails
+      mongoOperations.upsert(
+          query(where("_id").is(key).andOperator(notDeleting(now), deletable)),
+          new Update().set("deleting", now),
+          ObjectReference.class);
+      return true;
+    } catch (DuplicateKeyException e) {
+      return false;
+    }
+  }
+
+  /** @return matches records that are not marked, or whose deletion has timed out */
+  private Criteria notDeleting(long now) {
+    return new Criteria()
+        .orOperator(
+            where("deleting").is(null), where("deleting").lt(now - DELETION_TIMEOUT_MILLIS));
+  }
+}
@@ -0,0 +1,86 @@
+package com.revature.rpm.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.springframework.util.DigestUtils;
+
+/**
+ * ObjectSequence describes a download made of several stored objects written one after another,
+ * each optionally followed by a separator. Knowing the size of every part up front lets a byte
+ * range of the whole download be mapped onto ranged reads of the objects it covers.
+ */
+public class ObjectSequence {
+
+  private final List<StorageMetadata> objects;
+  private final byte[] separator;
+
+  /**
+   * @param objects the objects, in download order
+   * @param separator bytes written after each object, or null for none
+   */
+  public ObjectSequence(List<StorageMetadata> objects, byte[] separator) {
+    this.objects = objects;
+    this.separator = separator;
+  }
+
+  public List<StorageMetadata> getObjects() {
+    return objects;
+  }
+
+  /** @return the bytes written after each object, or null for none */
+  public byte[] getSeparator() {
+    return separator;
+  }
+
+  /** @return the length of the whole download in bytes, with every object decoded */
+  public long getContentLength() {
+    long length = 0;
+    for (StorageMetadata object : objects) {
+      length += object.getDecodedLength() + (separator == null ? 0 : separator.length);
+    }
+    return length;
+  }
+
+  /**
+   * @return when the most recently stored object was stored, in epoch milliseconds, or -1 if that
+   *     is unknown for any of them
+   */
+  public long getLastModified() {
+    long lastModified = -1;
+    for (StorageMetadata object : objects) {
+      if (object.getLastModified() < 0) {
+        return -1;
+      }
+      lastModified = Math.max(lastModified, object.getLastModified());
+    }
+    return lastModified;
+  }
+
+  /**
+   * A strong version tag for the whole download. It changes whenever any object is replaced, the
+   * objects change order or the separator changes.
+   *
+   * @return the hex digest of the parts' keys, sizes and version tags, without surrounding quotes
+   */
+  public String getETag() {
+    StringBuilder parts = new StringBuilder();
+    for (StorageMetadata object : objects) {
+      parts
+          .append(object.getKey())
+          .append('/')
+          .append(object.getContentLength())
+          .append('/')
+          .append(object.getETag())
+          .append('\n');
+    }
+    if (separator != null) {
+      parts.append(new String(separator, StandardCharsets.ISO_8859_1));
+    }
+    return DigestUtils.md5DigestAsHex(parts.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public String toString() {
+    return "ObjectSequence [objects=" + objects + ", contentLength=" + getContentLength() + "]";
+  }
+}
@@ -0,0 +1,189 @@
+package com.revature.rpm.services;
+
+import com.revature.rpm.dtos.SweepReport;
+import com.revature.rpm.entities.Project;
+import com.revature.rpm.entities.Thumbnail;
+import com.revature.rpm.repositories.ProjectRepository;
+import com.revature.rpm.util.StorageKeys;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * OrphanedObjectSweeper finds stored objects that no project links to, such as the uploads of a
+ * submission that failed part way or assets left behind by an edit, and deletes them.
+ *
+ * <p>Objects younger than a grace period are never touched, since a project whose uploads are in
+ * flight is not saved yet. Deletes are sent in batches and paced so a large sweep cannot flood the
+ * backend. Sweeps run on a schedule once storage.sweeper.enabled is set, and only report what they
+ * would delete until storage.sweeper.dry-run is turned off.
+ */
+@Service
+public class OrphanedObjectSweeper {
+
+  private static final Logger logger = LoggerFactory.getLogger(OrphanedObjectSweeper.class);
+
+  private final ProjectRepository projectRepository;
+  private final StorageService storageService;
+
+  @Value("${storage.sweeper.enabled:false}")
+  private boolean enabled;
+
+  @Value("${storage.sweeper.dry-run:true}")
+  private boolean dryRun;
+
+  @Value("${storage.sweeper.min-age-hours:24}")
+  private long minAgeHours;
+
+  @Value("${storage.sweeper.batch-size:1000}")
+  private int batchSize;
+
+  @Value("${storage.sweeper.deletes-per-second:200}")
+  private int deletesPerSecond;
+
+  private volatile SweepReport lastReport;
+
+  @Autowired
+  public OrphanedObjectSweeper(
+      ProjectRepository projectRepository, StorageService storageService) {
+    this.projectRepository = projectRepository;
+    this.storageService = storageService;
+  }
+
+  /**
+   * Checks the configured pace once the settings are injected, so a bad value stops the service
+   * from starting instead of failing every sweep.
+   *
+   * @throws IllegalStateException if storage.sweeper.deletes-per-second or batch-size is below 1
+   */
+  @PostConstruct
+  public void init() {
+    if (deletesPerSecond < 1) {
+      throw new IllegalStateException(
+          "storage.sweeper.deletes-per-second must be at least 1, not " + deletesPerSecond);
+    }
+    if (batchSize < 1) {
+      throw new IllegalStateException(
+          "storage.sweeper.batch-size must be at least 1, not " + batchSize);
+    }
+  }
+
+  /** Runs a sweep on the configured schedule, if the sweeper is enabled. */
+  @Scheduled(
+      fixedDelayString = "${storage.sweeper.interval-ms:86400000}",
+      initialDelayString = "${storage.sweeper.initial-delay-ms:3600000}")
+  public void scheduledSweep() {
+    if (enabled) {
+      sweep(dryRun);
+    }
+  }
+
+  /**
+   * Lists every stored object and deletes those no project links to. Only one sweep runs at a
+   * time.
+   *
+   * @param dryRun true to only report the orphaned objects
+   * @return what the sweep found and deleted
+   */
+  public synchronized SweepReport sweep(boolean dryRun) {
+    Set<String> referenced = referencedKeys();
+    SweepReport report = new SweepReport(dryRun, referenced.size());
+    long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(minAgeHours);
+
+    List<String> orphans = new ArrayList<>();
+    storageService.listObjects(
+        object -> {
+          report.addScanned();
+          long modified = object.getLastModified();
+          if (referenced.contains(object.getKey()) || modified < 0 || modified > cutoff) {
+            return;
+          }
+          report.addOrphan(object.getKey(), object.getContentLength());
+          orphans.add(object.getKey());
+        });
+
+    if (!dryRun) {
+      delete(orphans, cutoff, report);
+    }
+    report.finish();
+    lastReport = report;
+    logger.info("Storage sweep finished: {}", report);
+    return report;
+  }
+
+  /** @return the report of the most recent sweep, or null if none has run */
+  public SweepReport getLastReport() {
+    return lastReport;
+  }
+
+  /**
+   * Deletes orphans in paced batches. Reference counts no project holds and that were last raised
+   * before the grace period are treated as leaked, so objects they kept alive are deleted too.
+   */
+  private void delete(List<String> orphans, long cutoff, SweepReport report) {
+    for (int from = 0; from < orphans.size(); from += batchSize) {
+      List<String> batch = orphans.subList(from, Math.min(from + batchSize, orphans.size()));
+      long started = System.currentTimeMillis();
+      try {
+        storageService.deleteOrphans(batch, cutoff);
+        report.addDeleted(batch.size());
+      } catch (RuntimeException e) {
+        logger.warn("Could not delete a batch of {} orphaned objects", batch.size(), e);
+        report.addFailed(batch.size());
+      }
+
+      long pause = batch.size() * 1000L / deletesPerSecond - (System.currentTimeMillis() - started);
+      if (pause > 0 && from + batchSize < orphans.size()) {
+        try {
+          Thread.sleep(pause);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          report.markInterrupted();
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Collects the storage key of every asset linked from a project or any of its earlier versions.
+   * Keys are read from links exactly as the download path reads them.
+   */
+  private Set<String> referencedKeys() {
+    Set<String> keys = new HashSet<>();
+    for (Project project : projectRepository.findAllAssetLinks()) {
+      for (Project version = project; version != null; version = version.getOldProject()) {
+        addKeys(keys, version.getScreenShots());
+        addKeys(keys, version.getDataModel());
+        addKeys(keys, version.getZipLinks());
+        if (version.getThumbnails() != null) {
+          for (Thumbnail thumbnail : version.getThumbnails()) {
+            addKeys(keys, Collections.singletonList(thumbnail.getLink()));
+          }
+        }
+      }
+    }
+    return keys;
+  }
+
+  private void addKeys(Set<String> keys, List<String> links) {
+    if (links == null) {
+      return;
+    }
+    for (String link : links) {
+      if (link != null) {
+        keys.add(StorageKeys.fromLink(link));
+      }
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.revature.rpm.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PresignedUrlCachingStorageService hands out the same presigned URL for an object until shortly
+ * before it expires, so repeated downloads of a popular archive neither re-sign a URL each time nor
+ * defeat the client's and any proxy's caching of it. An entry is dropped a safety margin ahead of
+ * the URL's expiry, so a client redirected to a cached URL still has time to follow it. A URL
+ * names a key rather than a version, so storing an object again does not make its URL stale.
+ */
+public class PresignedUrlCachingStorageService extends DelegatingStorageService {
+
+  /** Most URLs kept at once; beyond this the least valuable entries are evicted. */
+  private static final long MAX_URLS = 10_000;
+
+  private final Cache<String, URL> urls;
+
+  /**
+   * @param delegate the StorageService that signs the URLs
+   * @param ttlSeconds how long a URL signed by the delegate stays valid
+   * @param marginSeconds how long before expiry a URL stops being handed out
+   */
+  public PresignedUrlCachingStorageService(
+      StorageService delegate, long ttlSeconds, long marginSeconds) {
+    super(delegate);
+    this.urls =
+        Caffeine.newBuilder()
+            .maximumSize(MAX_URLS)
+            .expireAfterWrite(Math.max(ttlSeconds - marginSeconds, 0), TimeUnit.SECONDS)
+            .build();
+  }
+
+  /**
+   * Returns a cached URL for the object, signing a new one if there is none or it is about to
+   * expire.
+   *
+   * @param keyName the key of the object to link to
+   * @return the URL, or null if the backend cannot presign URLs
+   */
+  @Override
+  public URL presignedUrl(String keyName) {
+    URL url = urls.getIfPresent(keyName);
+    if (url == null) {
+      url = super.presignedUrl(keyName);
+      if (url != null) {
+        urls.put(keyName, url);
+      }
+    }
+    return url;
+  }
+}
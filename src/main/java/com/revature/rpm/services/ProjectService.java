@@ -1,36 +1,63 @@
 package com.revature.rpm.services;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
 import com.revature.rpm.dtos.ProjectDTO;
+import com.revature.rpm.entities.AssetMetadata;
 import com.revature.rpm.entities.Project;
+import com.revature.rpm.entities.Thumbnail;
 import com.revature.rpm.exceptions.BadRequestException;
 import com.revature.rpm.exceptions.FileSizeTooLargeException;
 import com.revature.rpm.exceptions.ProjectNotAddedException;
 import com.revature.rpm.exceptions.ProjectNotFoundException;
 import com.revature.rpm.repositories.ProjectRepository;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
+import com.revature.rpm.util.ImageTypes;
+import com.revature.rpm.util.StorageKeys;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
-import javax.imageio.ImageIO;
-import org.apache.commons.compress.utils.IOUtils;
-import org.apache.commons.lang3.ArrayUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 /** ProjectService provides an interface to interact with a ProjectRepository */
@@ -40,17 +67,81 @@ public class ProjectService {
   /** This is the project initial status. */
   private static final String INITIAL_PROJECT_STATUS = "Pending";
 
+  /** The status of a project submitted asynchronously until its zip archives are stored. */
+  private static final String INGESTING_PROJECT_STATUS = "Ingesting";
+
+  /** Marker written after each data model when they are concatenated into a single download. */
+  private static final byte[] DATA_MODEL_SEPARATOR = {
+    '\n', 'E', 'N', 'D', 'O', 'F', 'F', 'I', 'L', 'E'
+  };
+
+  /** Size in bytes of the largest github repository archive a project may link to. */
+  private static final long ZIP_ARCHIVE_MAX_BYTES = 1_000_000_000;
+
+  /** Line break ending each part of a multipart body. */
+  private static final byte[] CRLF = {'\r', '\n'};
+
+  /** Media types of content that is already compressed, and is zipped without deflating it. */
+  private static final Set<String> COMPRESSED_TYPES =
+      new HashSet<>(
+          Arrays.asList(
+              "image/png",
+              "image/jpeg",
+              "image/gif",
+              "image/webp",
+              "application/zip",
+              "application/x-zip-compressed",
+              "application/gzip",
+              "application/x-gzip"));
+
+  /** Extensions of already compressed content, for objects stored without a media type. */
+  private static final Set<String> COMPRESSED_EXTENSIONS =
+      new HashSet<>(Arrays.asList("png", "jpg", "jpeg", "gif", "webp", "zip", "gz"));
+
+  private static final Logger logger = LoggerFactory.getLogger(ProjectService.class);
+
   private ProjectRepository projectRepo;
+  private MongoOperations mongoOperations;
   private StorageService s3StorageServiceImpl;
+  private AsyncStorageService asyncStorageService;
   private FileService fileService;
-  private ByteArrayOutputStream downloadInputStream;
+  private ThumbnailService thumbnailService;
+  private ScreenShotNormalizer screenShotNormalizer;
+  private Executor assetUploadExecutor;
+  private Executor bundlePrefetchExecutor;
+
+  /** Sends clients straight to storage for downloads that are a single stored object. */
+  @Value("${project.download.redirect:false}")
+  private boolean redirectDownloads;
+
+  /** How many objects past the one being zipped are fetched from storage ahead of time. */
+  @Value("${project.bundle.prefetch:2}")
+  private int bundlePrefetch = 2;
+
+  /** Size in bytes up to which an object is read into memory to be zipped, rather than streamed. */
+  @Value("${project.bundle.buffer-limit:8388608}")
+  private long bundleBufferLimit = 8 * 1024 * 1024;
 
   @Autowired
   public ProjectService(
-      ProjectRepository projectRepo, StorageService s3StorageServiceImpl, FileService fileService) {
+      ProjectRepository projectRepo,
+      MongoOperations mongoOperations,
+      StorageService s3StorageServiceImpl,
+      AsyncStorageService asyncStorageService,
+      FileService fileService,
+      ThumbnailService thumbnailService,
+      ScreenShotNormalizer screenShotNormalizer,
+      @Qualifier("assetUploadExecutor") Executor assetUploadExecutor,
+      @Qualifier("bundlePrefetchExecutor") Executor bundlePrefetchExecutor) {
     this.projectRepo = projectRepo;
+    this.mongoOperations = mongoOperations;
     this.s3StorageServiceImpl = s3StorageServiceImpl;
+    this.asyncStorageService = asyncStorageService;
     this.fileService = fileService;
+    this.thumbnailService = thumbnailService;
+    this.screenShotNormalizer = screenShotNormalizer;
+    this.assetUploadExecutor = assetUploadExecutor;
+    this.bundlePrefetchExecutor = bundlePrefetchExecutor;
   }
 
   @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
@@ -195,6 +286,9 @@ public class ProjectService {
    * ProjectService.deleteById deletes a project with the given id Propagation.Requires_New makes
    * the transaction a new transaction to ensure a new delete transaction occurs each time.
    *
+   * <p>The project's references to its stored screenshots, data models and zip archives are
+   * released, so storage that counts references can reclaim objects no other project links to.
+   *
    * @param id an id for a project you want to delete
    * @return a boolean indicating if a project with the given id was deleted
    */
@@ -208,10 +302,53 @@ public class ProjectService {
       return false;
     }
 
+    Optional<Project> project = projectRepo.findById(id);
     projectRepo.deleteById(id);
+    project.ifPresent(this::releaseAssets);
     return true;
   }
 
+  /**
+   * Releases every stored object a project links to.
+   *
+   * @param project the project whose assets are no longer needed
+   */
+  private void releaseAssets(Project project) {
+    releaseLinks(assetLinks(project));
+  }
+
+  /**
+   * Releases the stored objects behind a list of links.
+   *
+   * @param links links to stored objects that are no longer needed
+   */
+  private void releaseLinks(List<String> links) {
+    for (String key : s3KeySplitting(links)) {
+      s3StorageServiceImpl.release(key);
+    }
+  }
+
+  /**
+   * @param project a project
+   * @return the links to every stored object the project links to: its screenshots, data models,
+   *     zip archives and thumbnails
+   */
+  private List<String> assetLinks(Project project) {
+    List<String> links = new ArrayList<>();
+    for (List<String> assetLinks :
+        Arrays.asList(project.getScreenShots(), project.getDataModel(), project.getZipLinks())) {
+      if (assetLinks != null) {
+        links.addAll(assetLinks);
+      }
+    }
+    if (project.getThumbnails() != null) {
+      for (Thumbnail thumbnail : project.getThumbnails()) {
+        links.add(thumbnail.getLink());
+      }
+    }
+    return links;
+  }
+
   /**
    * Updates the project by taking in JSON values and mapping them to a Project model.
    * Propagation.Requires_New makes a new and different transaction occur each time.
@@ -243,6 +380,19 @@ public class ProjectService {
    * populated with a list of links to those stored zip archives (Needs a unit test for zipLinks to
    * test fileSizeTooLargeException)
    *
+   * <p>Every screenshot, data model and zip archive is uploaded as a separate task on the asset
+   * upload executor, so the submission takes about as long as its slowest asset rather than the sum
+   * of all of them. The links are still listed in submission order. Sizes and the project's
+   * details are validated before any upload starts. If an upload fails, the submission waits for
+   * the others to finish and releases everything they stored before the failure is rethrown; so
+   * does a project left invalid by its uploads, such as one whose archives all failed to download.
+   *
+   * <p>Once stored, each asset's size, media type and version tag are saved with the project, so
+   * downloads can be described and revalidated without asking storage again. Once the project is
+   * saved, each screenshot is scaled down to thumbnails on the thumbnail pool without holding up
+   * the submission. Screenshots in formats browsers cannot display are converted to PNG before
+   * they are stored.
+   *
    * @param projectDTO the data transfer object containing project details
    * @return the Project generated from the DTO
    *     <p>UPDATE (Testing Team): Implemented some validations for some properties that were
@@ -252,6 +402,149 @@ public class ProjectService {
   @Transactional(propagation = Propagation.REQUIRES_NEW)
   public Project createProjectFromDTO(ProjectDTO projectDTO) throws FileSizeTooLargeException {
 
+    Project newProject = newProject(projectDTO, INITIAL_PROJECT_STATUS);
+
+    List<String> zipLinks = projectDTO.getZipLinks();
+    if (zipLinks == null) {
+      throw new ProjectNotAddedException("Ziplinks not present for Project");
+    }
+    if (!hasValidDetails(newProject)) {
+      throw new ProjectNotAddedException("Empty/Invalid fields found on project");
+    }
+
+    // download a zip archive for each repo from github to store in our s3 bucket, in parallel
+    // with the uploads
+    List<CompletableFuture<List<String>>> zipUploads = new ArrayList<>();
+    for (String zipLink : zipLinks) {
+      zipUploads.add(storeZipArchive(zipLink));
+    }
+    storeUploads(projectDTO, newProject, zipUploads);
+
+    if (!isValidFields(newProject)) {
+      releaseLinks(assetLinks(newProject));
+      throw new ProjectNotAddedException("Empty/Invalid fields found on project");
+    }
+    newProject.setAssets(describeAssets(assetLinks(newProject)));
+
+    Project result = projectRepo.save(newProject);
+    System.out.println("Finished result: " + result);
+    generateThumbnails(newProject, projectDTO.getScreenShots());
+    return result;
+  }
+
+  /**
+   * ProjectService.createIngestingProject persists a Project from a ProjectDTO without waiting for
+   * its zip archives, which are stored afterwards by an ingestion job and added with
+   * completeIngestion. The project is saved with the Ingesting status and no zip links.
+   *
+   * <p>The screenshots and data models are stored before this returns, exactly as they are by
+   * createProjectFromDTO: uploaded files only last as long as the request, while a github
+   * repository can be downloaded at any time. Every field is validated up front, so a submission
+   * that could never be completed is rejected here rather than by its job.
+   *
+   * @param id the id to save the project with, chosen beforehand so its job can be saved first
+   * @param projectDTO the data transfer object containing project details
+   * @return the saved project
+   */
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public Project createIngestingProject(String id, ProjectDTO projectDTO)
+      throws FileSizeTooLargeException {
+
+    Project newProject = newProject(projectDTO, INGESTING_PROJECT_STATUS);
+    newProject.setId(id);
+
+    List<String> zipLinks = projectDTO.getZipLinks();
+    if (zipLinks == null || zipLinks.isEmpty()) {
+      throw new ProjectNotAddedException("Ziplinks not present for Project");
+    }
+    if (!hasValidDetails(newProject)) {
+      throw new ProjectNotAddedException("Empty/Invalid fields found on project");
+    }
+
+    storeUploads(projectDTO, newProject, Collections.emptyList());
+
+    if (!hasValidUploads(newProject)) {
+      releaseLinks(assetLinks(newProject));
+      throw new ProjectNotAddedException("Empty/Invalid fields found on project");
+    }
+    newProject.setAssets(describeAssets(assetLinks(newProject)));
+
+    Project result = projectRepo.save(newProject);
+    generateThumbnails(newProject, projectDTO.getScreenShots());
+    return result;
+  }
+
+  /**
+   * ProjectService.completeIngestion adds the stored zip archives to a project created by
+   * createIngestingProject and moves it on to the initial status, once the project is valid. A
+   * project that has already left the Ingesting status is returned unchanged, so a job resumed
+   * after it completed its project does not add the archives twice.
+   *
+   * <p>The archives are pushed onto the project in a single atomic update, conditional on its
+   * status, rather than by saving the whole project, so thumbnails added to it meanwhile are kept.
+   *
+   * @param id the id of the ingesting project
+   * @param zipLinks the links to the stored zip archives, in submission order
+   * @return the completed project
+   * @throws ProjectNotAddedException if the project is not valid with these zip archives
+   */
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public Project completeIngestion(String id, List<String> zipLinks) {
+
+    Project project = findById(id);
+    if (!INGESTING_PROJECT_STATUS.equals(project.getStatus())) {
+      return project;
+    }
+
+    zipLinks.forEach(project::addZipLink);
+    if (!isValidFields(project)) {
+      throw new ProjectNotAddedException("Empty/Invalid fields found on project");
+    }
+
+    Update update = new Update().set("status", INITIAL_PROJECT_STATUS);
+    update.push("zipLinks").each(zipLinks.toArray());
+    update.push("assets").each(describeAssets(zipLinks).toArray());
+    Project completed =
+        mongoOperations.findAndModify(
+            query(where("_id").is(id).and("status").is(INGESTING_PROJECT_STATUS)),
+            update,
+            FindAndModifyOptions.options().returnNew(true),
+            Project.class);
+    return completed != null ? completed : findById(id);
+  }
+
+  /**
+   * ProjectService.abandonIngestion removes a project created by createIngestingProject that could
+   * not be completed, and releases everything stored for it: its screenshots and data models as
+   * well as the zip archives its job had stored before it failed.
+   *
+   * @param id the id of the ingesting project
+   * @param zipLinks the links to the zip archives stored for the project so far
+   */
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public void abandonIngestion(String id, List<String> zipLinks) {
+
+    Optional<Project> project = projectRepo.findById(id);
+    projectRepo.deleteById(id);
+    project.ifPresent(
+        abandoned -> {
+          if (INGESTING_PROJECT_STATUS.equals(abandoned.getStatus())) {
+            zipLinks.forEach(abandoned::addZipLink);
+          }
+          releaseAssets(abandoned);
+        });
+  }
+
+  /**
+   * Builds a project from the details of a ProjectDTO, and checks the screenshots and data models
+   * it was submitted with are present and small enough to be stored.
+   *
+   * @param projectDTO the data transfer object containing project details
+   * @param status the status the project starts with
+   * @return the project, without any of its assets
+   */
+  private Project newProject(ProjectDTO projectDTO, String status) {
+
     Project newProject =
         new Project.ProjectBuilder()
             .setUserId(projectDTO.getUserId())
@@ -261,81 +554,324 @@ public class ProjectService {
             .setGroupMembers(projectDTO.getGroupMembers())
             .setTechStack(projectDTO.getTechStack())
             .setTrainer(projectDTO.getTrainer())
-            .setStatus(INITIAL_PROJECT_STATUS)
+            .setStatus(status)
             .build();
 
-    // drop screenshot images in s3 and populate project with links to those images
-    List<String> screenShotsList = new ArrayList<>();
-
-    if (projectDTO.getScreenShots() == null)
+    List<MultipartFile> screenShots = projectDTO.getScreenShots();
+    if (screenShots == null) {
       throw new ProjectNotAddedException("ScreenShots not Present for Project");
-    else {
-      for (MultipartFile multipartFile : projectDTO.getScreenShots()) {
-        // System.out.println("Within for loop for screenshot: " + multipartFile.getName());
-        if (multipartFile.getSize() > 1_000_000) {
-          throw new FileSizeTooLargeException(
-              "File size of screenshot: " + multipartFile.getName() + "is greater than 1MB.");
+    }
+    for (MultipartFile multipartFile : screenShots) {
+      if (multipartFile.getSize() > 1_000_000) {
+        throw new FileSizeTooLargeException(
+            "File size of screenshot: " + multipartFile.getName() + "is greater than 1MB.");
+      }
+    }
+
+    List<MultipartFile> dataModels = projectDTO.getDataModel();
+    if (dataModels == null) {
+      throw new ProjectNotAddedException("DataModel not Present for Project");
+    }
+    for (MultipartFile multipartFile : dataModels) {
+      if (multipartFile.getSize() > 1_000_000) {
+        throw new FileSizeTooLargeException(
+            "File size of data model: " + multipartFile.getName() + "is greater than 1MB.");
+      }
+    }
+    return newProject;
+  }
+
+  /**
+   * Stores the screenshots and data models of a ProjectDTO, all in parallel, and waits for them
+   * along with zip archives that are already being stored. The project is then populated with
+   * links to everything stored, in submission order. If any of them fails, whatever the others
+   * stored is released.
+   *
+   * @param projectDTO the data transfer object holding the uploaded files
+   * @param newProject the project the links are set on
+   * @param zipUploads the zip archives being stored for the project, if any
+   */
+  private void storeUploads(
+      ProjectDTO projectDTO,
+      Project newProject,
+      List<CompletableFuture<List<String>>> zipUploads) {
+
+    // drop screenshot images and sql files in s3, all in parallel
+    List<CompletableFuture<String>> screenShotUploads = new ArrayList<>();
+    for (MultipartFile multipartFile : projectDTO.getScreenShots()) {
+      screenShotUploads.add(screenShotNormalizer.store(multipartFile));
+    }
+    List<CompletableFuture<String>> dataModelUploads = new ArrayList<>();
+    for (MultipartFile multipartFile : projectDTO.getDataModel()) {
+      dataModelUploads.add(asyncStorageService.store(multipartFile));
+    }
+
+    List<CompletableFuture<?>> uploads = new ArrayList<>();
+    uploads.addAll(screenShotUploads);
+    uploads.addAll(dataModelUploads);
+    uploads.addAll(zipUploads);
+    try {
+      awaitUploads(uploads);
+    } catch (RuntimeException e) {
+      List<String> stored = new ArrayList<>();
+      stored.addAll(storedLinks(screenShotUploads));
+      stored.addAll(storedLinks(dataModelUploads));
+      for (CompletableFuture<List<String>> zipUpload : zipUploads) {
+        if (!zipUpload.isCompletedExceptionally()) {
+          stored.addAll(zipUpload.join());
         }
-        String endPoint = s3StorageServiceImpl.store(multipartFile);
-        screenShotsList.add(endPoint);
       }
-      newProject.setScreenShots(screenShotsList);
+      releaseLinks(stored);
+      throw e;
     }
 
-    // load sql files in s3 and populate project with links to those files
-    List<String> dataModelList = new ArrayList<>();
+    // populate the project with links to the stored files, in the order they were submitted
+    newProject.setScreenShots(uploadedLinks(screenShotUploads));
+    newProject.setDataModel(uploadedLinks(dataModelUploads));
+    for (CompletableFuture<List<String>> zipUpload : zipUploads) {
+      zipUpload.join().forEach(newProject::addZipLink);
+    }
+  }
 
-    if (projectDTO.getDataModel() == null)
-      throw new ProjectNotAddedException("ScreenShots not Present for Project");
-    else {
-      for (MultipartFile multipartFile : projectDTO.getDataModel()) {
-        System.out.println("Within for loop for sql Files: " + multipartFile.getName());
-        if (multipartFile.getSize() > 1_000_000) {
-          throw new FileSizeTooLargeException(
-              "File size of data model: " + multipartFile.getName() + "is greater than 1MB.");
+  /**
+   * Makes the thumbnails of a saved project's screenshots on the thumbnail pool, and adds them to
+   * the project once they have all been stored. Until then, downloads asking for a width get the
+   * original screenshots.
+   *
+   * @param project the saved project
+   * @param screenShots the uploaded screenshots, in the order of the project's screenshot links
+   */
+  private void generateThumbnails(Project project, List<MultipartFile> screenShots) {
+    List<CompletableFuture<List<Thumbnail>>> thumbnailUploads = new ArrayList<>();
+    for (int i = 0; i < screenShots.size(); i++) {
+      thumbnailUploads.add(
+          thumbnailService.generate(screenShots.get(i), project.getScreenShots().get(i)));
+    }
+    CompletableFuture.allOf(thumbnailUploads.toArray(new CompletableFuture<?>[0]))
+        .thenRun(
+            () -> {
+              List<Thumbnail> thumbnails = new ArrayList<>();
+              for (CompletableFuture<List<Thumbnail>> thumbnailUpload : thumbnailUploads) {
+                thumbnails.addAll(thumbnailUpload.join());
+              }
+              attachThumbnails(project.getId(), thumbnails);
+            });
+  }
+
+  /**
+   * Adds stored thumbnails and their metadata to a project. The project is not read and saved
+   * again, since it may be changed meanwhile, by an ingestion job or an admin, or deleted; the
+   * thumbnails are pushed onto it in a single atomic update instead. Thumbnails of a project that
+   * was deleted while they were being made, or that cannot be added to it, are released.
+   *
+   * @param id the id of the project
+   * @param thumbnails the stored thumbnails of its screenshots
+   */
+  private void attachThumbnails(String id, List<Thumbnail> thumbnails) {
+    if (thumbnails.isEmpty()) {
+      return;
+    }
+    List<String> links = new ArrayList<>();
+    for (Thumbnail thumbnail : thumbnails) {
+      links.add(thumbnail.getLink());
+    }
+    try {
+      Update update = new Update();
+      update.push("thumbnails").each(thumbnails.toArray());
+      update.push("assets").each(describeAssets(links).toArray());
+      if (mongoOperations.updateFirst(query(where("_id").is(id)), update, Project.class)
+              .getMatchedCount()
+          > 0) {
+        return;
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Could not add thumbnails to project {}: {}", id, e.getMessage());
+    }
+    releaseLinks(links);
+  }
+
+  /**
+   * Downloads the zip archive of a github repository on the asset upload pool and then stores it.
+   *
+   * @param zipLink the link to the github repository
+   * @return completes with a list holding the link to the stored archive, or an empty list if the
+   *     archive could not be downloaded; fails with FileSizeTooLargeException if the archive is
+   *     larger than 1GB
+   */
+  public CompletableFuture<List<String>> storeZipArchive(String zipLink) {
+    CompletableFuture<List<String>> stored = new CompletableFuture<>();
+    CompletableFuture.supplyAsync(() -> downloadZipArchive(zipLink), assetUploadExecutor)
+        .whenComplete(
+            (zipArchive, e) -> {
+              if (e != null) {
+                stored.completeExceptionally(e);
+              } else if (zipArchive == null) {
+                stored.complete(Collections.emptyList());
+              } else if (stored.isDone()) {
+                // cancelled while downloading, so the archive is not wanted any more
+                discard(zipArchive);
+              } else {
+                asyncStorageService
+                    .store(zipArchive)
+                    .whenComplete(
+                        (link, ex) -> {
+                          discard(zipArchive);
+                          if (ex != null) {
+                            stored.completeExceptionally(ex);
+                          } else {
+                            stored.complete(Collections.singletonList(link));
+                          }
+                        });
+              }
+            });
+    return stored;
+  }
+
+  /**
+   * Deletes a downloaded zip archive once it has been stored, or is no longer wanted, along with
+   * the temporary directory it was downloaded into. This is done on the download's own stage, so
+   * the archive is deleted even if the caller has cancelled the future it was handed.
+   *
+   * @param zipArchive the downloaded archive
+   */
+  private void discard(File zipArchive) {
+    File directory = zipArchive.getParentFile();
+    if (!zipArchive.delete() || (directory != null && !directory.delete())) {
+      logger.warn("Could not delete the downloaded archive {}", zipArchive);
+    }
+  }
+
+  /**
+   * Downloads the zip archive of a github repository. The size limit is enforced while the archive
+   * is transferred, so an oversized archive is abandoned without being downloaded in full.
+   *
+   * @param zipLink the link to the github repository
+   * @return the downloaded archive, or null if it could not be downloaded
+   * @throws FileSizeTooLargeException if the archive is larger than 1GB
+   */
+  private File downloadZipArchive(String zipLink) {
+    try {
+      return fileService.download(zipLink + "/archive/master.zip", ZIP_ARCHIVE_MAX_BYTES);
+    } catch (IOException e) {
+      logger.warn("Could not download the zip archive of {}: {}", zipLink, e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Looks up the metadata of stored assets, all at once on the asset upload pool. An asset that
+   * cannot be described is left out; its downloads then fall back to asking storage.
+   *
+   * @param links the links to the assets, which have all been stored
+   * @return the metadata of the assets
+   */
+  private List<AssetMetadata> describeAssets(List<String> links) {
+    List<CompletableFuture<StorageMetadata>> lookups = new ArrayList<>();
+    for (String key : s3KeySplitting(links)) {
+      lookups.add(
+          CompletableFuture.supplyAsync(
+              () -> s3StorageServiceImpl.getMetadata(key), assetUploadExecutor));
+    }
+    List<AssetMetadata> assets = new ArrayList<>();
+    for (CompletableFuture<StorageMetadata> lookup : lookups) {
+      try {
+        StorageMetadata metadata = lookup.join();
+        if (metadata != null) {
+          assets.add(
+              new AssetMetadata(
+                  metadata.getKey(),
+                  metadata.getContentLength(),
+                  metadata.getContentType(),
+                  metadata.getETag(),
+                  metadata.getLastModified(),
+                  metadata.getContentEncoding(),
+                  metadata.getDecodedLength()));
         }
-        String endPoint = s3StorageServiceImpl.store(multipartFile);
-        dataModelList.add(endPoint);
+      } catch (CompletionException e) {
+        logger.warn("Could not describe a stored asset: {}", unwrap(e).getMessage());
       }
-      newProject.setDataModel(dataModelList);
     }
+    return assets;
+  }
 
-    List<String> zipLinks = projectDTO.getZipLinks();
-    // download a zip archive for each repo from github and store them in our s3
-    // bucket,
-    // populating the project object with links to those zip files
-    if (projectDTO.getZipLinks() == null)
-      throw new ProjectNotAddedException("Ziplinks not present for Project");
-    else {
-      for (String zipLink : zipLinks) {
-        try {
-          System.out.println("Within for loop for Ziplink: " + zipLink);
-          File zipArchive = fileService.download(zipLink + "/archive/master.zip");
-          if (zipArchive.length() > 1_000_000_000) {
-            throw new FileSizeTooLargeException(
-                "The file size of: " + zipArchive.getName() + "exceeds 1GB");
-          }
-          System.out.println("Within for loop for Ziplink: File was not too big");
-          String end = s3StorageServiceImpl.store(zipArchive);
-          System.out.println("Within for loop for Ziplink: File was stored");
-          newProject.addZipLink(end);
-          System.out.println("Within for loop for Ziplink: File was added");
-
-        } catch (IOException e) {
-          System.out.println(
-              "Within for loop for Ziplink: Exception was thrown = " + e.getMessage());
-          e.printStackTrace();
+  /**
+   * Waits until every upload has finished, successfully or not. Uploads are not cancelled when one
+   * of them fails, since an upload already in progress would still store its object, and the link
+   * to it would be lost.
+   *
+   * @param uploads the pending uploads
+   * @throws RuntimeException the failure of the first upload, in list order, that failed
+   */
+  private void awaitUploads(List<CompletableFuture<?>> uploads) {
+    try {
+      CompletableFuture.allOf(uploads.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      for (CompletableFuture<?> upload : uploads) {
+        if (upload.isCompletedExceptionally()) {
+          await(upload);
         }
       }
+      throw unwrap(e);
     }
+  }
 
-    if (!isValidFields(newProject)) {
-      throw new ProjectNotAddedException("Empty/Invalid fields found on project");
+  /**
+   * Collects the links produced by the uploads that succeeded.
+   *
+   * @param uploads uploads that have all finished, some of them possibly unsuccessfully
+   * @return the links, in the same order as the successful uploads
+   */
+  private List<String> storedLinks(List<CompletableFuture<String>> uploads) {
+    List<String> links = new ArrayList<>();
+    for (CompletableFuture<String> upload : uploads) {
+      if (!upload.isCompletedExceptionally()) {
+        links.add(upload.join());
+      }
     }
+    return links;
+  }
 
-    Project result = projectRepo.save(newProject);
-    System.out.println("Finished result: " + result);
-    return result;
+  /**
+   * Waits for a storage transfer to finish.
+   *
+   * @param transfer the pending transfer
+   * @return the result of the transfer
+   */
+  private <T> T await(CompletableFuture<T> transfer) {
+    try {
+      return transfer.join();
+    } catch (CompletionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  /**
+   * Recovers the exception an asynchronous task failed with, so callers see the same exception as
+   * they would have from the blocking call.
+   *
+   * @param e the exception thrown when joining the task
+   * @return the task's own exception if it is unchecked, otherwise the argued exception
+   */
+  private RuntimeException unwrap(CompletionException e) {
+    Throwable cause = e;
+    while (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    return cause instanceof RuntimeException ? (RuntimeException) cause : e;
+  }
+
+  /**
+   * Collects the links produced by finished uploads.
+   *
+   * @param uploads uploads that have all completed successfully
+   * @return the links, in the same order as the uploads
+   */
+  private List<String> uploadedLinks(List<CompletableFuture<String>> uploads) {
+    List<String> links = new ArrayList<>();
+    for (CompletableFuture<String> upload : uploads) {
+      links.add(upload.join());
+    }
+    return links;
   }
 
   /** the transaction is read-only and only reads committed data */
@@ -364,6 +900,20 @@ public class ProjectService {
    * @return true on fields are valid
    */
   private boolean isValidFields(Project project) {
+    return hasValidDetails(project)
+        && project.getZipLinks() != null
+        && !project.getZipLinks().isEmpty()
+        && hasValidUploads(project);
+  }
+
+  /**
+   * Checks UserId, Description, Name, Batch, GroupMembers, TechStack and Trainer if they are valid
+   * fields.
+   *
+   * @param project
+   * @return true on fields are valid
+   */
+  private boolean hasValidDetails(Project project) {
     if (project.getUserId() == null
         || project.getUserId() < 1
         || project.getDescription() == null
@@ -377,190 +927,548 @@ public class ProjectService {
         || project.getTechStack() == null
         || project.getTechStack().trim().equals("")
         || project.getTrainer() == null
-        || project.getTrainer().equals("")
-        || project.getZipLinks() == null
-        || project.getZipLinks().isEmpty()
-        || project.getDataModel() == null
-        || project.getDataModel().isEmpty()
-        || project.getScreenShots() == null
-        || project.getScreenShots().isEmpty()) return false;
+        || project.getTrainer().equals("")) return false;
     else return true;
   }
+
+  /**
+   * Checks DataModel and ScreenShots if they are present.
+   *
+   * @param project
+   * @return true on fields are valid
+   */
+  private boolean hasValidUploads(Project project) {
+    return project.getDataModel() != null
+        && !project.getDataModel().isEmpty()
+        && project.getScreenShots() != null
+        && !project.getScreenShots().isEmpty();
+  }
   // --------------------------------------------------------------------------------------------------------------
   /**
    * Download all screenshots for a single project and returns them in a byte[].
    *
    * @param String Project Id
-   * @return Byte[] - Byte[] containing all screenshots bytes combined together
+   * @param width the width wanted, to get thumbnails instead of the originals, or null
+   * @return byte[] - byte[] containing all screenshots bytes combined together
    */
   @Transactional
-  public Byte[] codeBaseScreenShots(String id) throws IOException, FileNotFoundException {
+  public byte[] codeBaseScreenShots(String id, Integer width) throws IOException {
     Project project = findById(id);
-    List<String> keys = project.getScreenShots();
-    List<String> keyNames = s3KeySplitting(keys);
-    List<Byte> bList = s3downloadScreenshots(keyNames);
-    return bList.toArray(new Byte[0]);
+    List<String> keyNames = screenShotKeys(project, width);
+    return s3downloadScreenshots(keyNames);
   }
 
   /**
-   * This methods takes datamodels downloaded from the S3 bucket and put the in a single file
+   * Resolves the storage keys of a project's zip archives. The transaction is read-only and only
+   * reads committed data
    *
-   * @param id
-   * @return name of file that data models are stored in
-   * @throws IOException
+   * @param id the id of the project
+   * @return the keys of the project's zip archives, in submission order
    */
-  @Transactional
-  public byte[] codeBaseDataModels(String id) {
+  @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+  public List<String> zipLinkKeys(String id) {
+    return s3KeySplitting(findById(id).getZipLinks());
+  }
+
+  /**
+   * Describes the download of a project's data models, each followed by an ENDOFFILE marker. The
+   * transaction is read-only and only reads committed data
+   *
+   * @param id the id of the project
+   * @return the data models and their sizes, in submission order
+   */
+  @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+  public ObjectSequence dataModelSequence(String id) {
     Project project = findById(id);
-    File file = null;
-    List<String> keys = project.getDataModel();
-    List<String> keyNames = new ArrayList<>();
+    return describeObjects(project, s3KeySplitting(project.getDataModel()), DATA_MODEL_SEPARATOR);
+  }
+
+  /**
+   * Describes the download of a project's zip archives. The transaction is read-only and only
+   * reads committed data
+   *
+   * @param id the id of the project
+   * @return the zip archives and their sizes, in submission order
+   */
+  @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+  public ObjectSequence zipLinkSequence(String id) {
+    Project project = findById(id);
+    return describeObjects(project, s3KeySplitting(project.getZipLinks()), null);
+  }
+
+  /**
+   * Describes a project's screenshots, so a client's cached copy of them can be revalidated
+   * without downloading them. The transaction is read-only and only reads committed data
+   *
+   * @param id the id of the project
+   * @param width the width wanted, to describe thumbnails instead of the originals, or null
+   * @return the screenshots and their sizes, in submission order
+   */
+  @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+  public ObjectSequence screenShotSequence(String id, Integer width) {
+    Project project = findById(id);
+    return describeObjects(project, screenShotKeys(project, width), null);
+  }
+
+  /**
+   * Describes one of a project's screenshots, or the thumbnail of it closest to the argued width.
+   * The transaction is read-only and only reads committed data
+   *
+   * @param id the id of the project
+   * @param index the position of the screenshot, counting from 0 in submission order
+   * @param width the width wanted, to describe a thumbnail instead of the original, or null
+   * @return the screenshot as a download of a single object
+   * @throws ProjectNotFoundException if the project has no screenshot at that position
+   */
+  @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+  public ObjectSequence screenShotSequence(String id, int index, Integer width) {
+    Project project = findById(id);
+    List<String> keys = screenShotKeys(project, width);
+    if (index < 0 || index >= keys.size()) {
+      throw new ProjectNotFoundException("Project " + id + " has no screenshot " + index);
+    }
+    return describeObjects(project, Collections.singletonList(keys.get(index)), null);
+  }
+
+  /**
+   * Describes the bundle of everything submitted with a project: its screenshots, then its data
+   * models, then its zip archives. The transaction is read-only and only reads committed data
+   *
+   * @param id the id of the project
+   * @return the project's stored objects, in that order and each in submission order
+   */
+  @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+  public ObjectSequence bundleSequence(String id) {
+    Project project = findById(id);
+    List<String> keys = new ArrayList<>();
+    if (project.getScreenShots() != null) {
+      keys.addAll(screenShotKeys(project, null));
+    }
+    if (project.getDataModel() != null) {
+      keys.addAll(s3KeySplitting(project.getDataModel()));
+    }
+    if (project.getZipLinks() != null) {
+      keys.addAll(s3KeySplitting(project.getZipLinks()));
+    }
+    return describeObjects(project, keys, null);
+  }
+
+  /**
+   * Tells the media type of a stored screenshot. The type recorded in storage is trusted when it
+   * is an image type, as it is for every screenshot stored since they are sniffed at ingest; only
+   * for older screenshots are the first bytes read from storage and sniffed.
+   *
+   * @param screenShot the stored screenshot
+   * @return the media type of the screenshot, or application/octet-stream if it is unknown
+   * @throws IOException if reading from storage fails
+   */
+  public String screenShotType(StorageMetadata screenShot) throws IOException {
+    String contentType = screenShot.getContentType();
+    if (contentType != null && contentType.startsWith("image/")) {
+      return contentType;
+    }
+    long last = Math.min(screenShot.getContentLength(), ImageTypes.HEADER_LENGTH) - 1;
+    if (last >= 0) {
+      try (StorageObject header = s3StorageServiceImpl.openStream(screenShot.getKey(), 0, last)) {
+        String sniffed = ImageTypes.sniff(header.getContent());
+        if (sniffed != null) {
+          return sniffed;
+        }
+      }
+    }
+    return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+  }
+
+  /**
+   * Resolves the keys of the images to send for a project's screenshots. When a width is given,
+   * each screenshot is replaced by its smallest thumbnail at least that wide, if it has one.
+   *
+   * @param project the project
+   * @param width the width wanted, or null for the originals
+   * @return the keys, in submission order
+   */
+  private List<String> screenShotKeys(Project project, Integer width) {
+    List<String> keys = new ArrayList<>();
+    for (String key : s3KeySplitting(project.getScreenShots())) {
+      keys.add(thumbnailService.select(key, project.getThumbnails(), width));
+    }
+    return keys;
+  }
+
+  /**
+   * Finds where a project's zip archive can be downloaded from directly, when downloads are
+   * redirected to storage. Only a project with a single archive can be redirected, since several
+   * archives are concatenated into one download by the service. The transaction is read-only and
+   * only reads committed data
+   *
+   * @param id the id of the project
+   * @return a short-lived URL of the archive, or null if the download must pass through the service
+   */
+  @Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
+  public URL zipLinkRedirect(String id) {
+    if (!redirectDownloads) {
+      return null;
+    }
+    List<String> keys = zipLinkKeys(id);
+    return keys.size() == 1 ? s3StorageServiceImpl.presignedUrl(keys.get(0)) : null;
+  }
+
+  /**
+   * Describes stored objects from the metadata saved with their project. Only objects saved
+   * without metadata, such as those of projects submitted before it was recorded, are looked up in
+   * storage.
+   *
+   * @param project the project the objects belong to
+   * @param keys the keys of the objects
+   * @param separator bytes written after each object, or null for none
+   * @return the objects as one download
+   */
+  private ObjectSequence describeObjects(Project project, List<String> keys, byte[] separator) {
+    Map<String, AssetMetadata> assets = new HashMap<>();
+    if (project.getAssets() != null) {
+      for (AssetMetadata asset : project.getAssets()) {
+        assets.put(asset.getKey(), asset);
+      }
+    }
+    List<StorageMetadata> objects = new ArrayList<>();
     for (String key : keys) {
-      String array1[] = key.split("/");
-      String newKey = array1[2].toString();
-      keyNames.add(newKey);
+      AssetMetadata asset = assets.get(key);
+      objects.add(
+          asset == null
+              ? s3StorageServiceImpl.getMetadata(key)
+              : new StorageMetadata(
+                  key,
+                  asset.getContentLength(),
+                  asset.getContentType(),
+                  asset.getETag(),
+                  asset.getLastModified(),
+                  asset.getContentEncoding(),
+                  asset.getDecodedLength()));
     }
-    try {
-      File newFile = new File("datamodels.txt");
-      if (newFile.createNewFile()) {
-        System.out.println("New file created in the root directory");
-      } else {
-        System.out.println("File already exist");
+    return new ObjectSequence(objects, separator);
+  }
+
+  /**
+   * Copies a byte range of a download to the argued stream. Only the objects the range overlaps
+   * are opened, and those cut by either end of the range are read with ranged reads, so no byte
+   * outside of the range is fetched from storage. An object whose size no longer matches its
+   * description, because it was stored again under the same key, ends the download with an error
+   * rather than sending a body of the wrong length.
+   *
+   * <p>Offsets are those of the decoded download. An object stored compressed is always read whole
+   * and decoded as it is copied, skipping whatever lies before the range.
+   *
+   * @param sequence the download, as returned by dataModelSequence or zipLinkSequence
+   * @param first the offset of the first byte to write
+   * @param last the offset of the last byte to write
+   * @param out the stream to write to
+   * @throws IOException if reading from storage or writing to the stream fails
+   */
+  public void writeSequence(ObjectSequence sequence, long first, long last, OutputStream out)
+      throws IOException {
+    byte[] separator = sequence.getSeparator();
+    long offset = 0;
+    for (StorageMetadata object : sequence.getObjects()) {
+      long length = object.getDecodedLength();
+      if (offset <= last && offset + length > first) {
+        long from = Math.max(first - offset, 0);
+        long to = Math.min(last - offset, length - 1);
+        if (object.getContentEncoding() != null) {
+          writeDecoded(object, from, to, out);
+        } else {
+          try (StorageObject part =
+              from == 0 && to == length - 1
+                  ? s3StorageServiceImpl.openStream(object.getKey())
+                  : s3StorageServiceImpl.openStream(object.getKey(), from, to)) {
+            if (part.getContentLength() != to - from + 1) {
+              throw new IOException(object.getKey() + " has changed since the download started");
+            }
+            part.transferTo(out);
+          }
+        }
       }
-      byte[] esc = {'\n', 'E', 'N', 'D', 'O', 'F', 'F', 'I', 'L', 'E'};
-      OutputStream outStream = null;
-      outStream = new FileOutputStream(newFile);
-      for (String key : keyNames) {
-        this.downloadInputStream = s3StorageServiceImpl.downloadFile(key);
-        this.downloadInputStream.write(esc);
-        this.downloadInputStream.writeTo(outStream);
-        file = newFile;
+      offset += length;
+      if (separator != null) {
+        if (offset <= last && offset + separator.length > first) {
+          int from = (int) Math.max(first - offset, 0);
+          int to = (int) Math.min(last - offset, separator.length - 1);
+          out.write(separator, from, to - from + 1);
+        }
+        offset += separator.length;
       }
-      outStream.close();
-      InputStream in = new FileInputStream(file.getName());
-      byte[] media = IOUtils.toByteArray(in);
-      return media;
-    } catch (IOException ioe) {
-      ioe.getMessage();
     }
-    return null;
+    out.flush();
   }
+
   /**
-   * This methods takes ziplinks downloaded from S3 buck and put then as a stream of bytes
+   * Copies a whole download to the argued stream as a single gzip member. Objects stored
+   * compressed are decoded and compressed again with the rest, since concatenated gzip members
+   * are not decoded past the first by every browser.
    *
-   * @param id
-   * @return a stream of byes representing the ziplinks
-   * @throws IOException
+   * @param sequence the download, as returned by dataModelSequence
+   * @param out the stream to write the compressed download to
+   * @throws IOException if reading from storage or writing to the stream fails
    */
-  @Transactional
-  public ByteArrayOutputStream codeBaseZipLinks(String id) {
-    Project project = findById(id);
-    List<String> keys = project.getZipLinks();
-    List<String> keyNames = new ArrayList<>();
-    for (String key : keys) {
-      String array1[] = key.split("/");
-      String newKey = array1[2].toString();
-      keyNames.add(newKey);
+  public void writeCompressedSequence(ObjectSequence sequence, OutputStream out)
+      throws IOException {
+    GZIPOutputStream gzip = new GZIPOutputStream(out, StreamUtils.BUFFER_SIZE);
+    writeSequence(sequence, 0, sequence.getContentLength() - 1, gzip);
+    gzip.finish();
+    out.flush();
+  }
+
+  /**
+   * Copies a byte range of an object stored compressed, decoding it as it is read.
+   *
+   * @param object the object, stored with a content encoding
+   * @param from the offset in the decoded content of the first byte to write
+   * @param to the offset in the decoded content of the last byte to write
+   * @param out the stream to write to
+   * @throws IOException if the object cannot be read or decoded, or writing to the stream fails
+   */
+  private void writeDecoded(StorageMetadata object, long from, long to, OutputStream out)
+      throws IOException {
+    if (!CompressingStorageService.GZIP.equals(object.getContentEncoding())) {
+      throw new IOException(
+          object.getKey() + " is stored with unknown encoding " + object.getContentEncoding());
     }
-    try {
-      OutputStream outStream = null;
-      outStream = new FileOutputStream(keyNames.toString());
-      for (String key : keyNames) {
-        this.downloadInputStream = s3StorageServiceImpl.downloadFile(key);
-        this.downloadInputStream.writeTo(outStream);
+    try (StorageObject part = s3StorageServiceImpl.openStream(object.getKey())) {
+      if (part.getContentLength() != object.getContentLength()) {
+        throw new IOException(object.getKey() + " has changed since the download started");
+      }
+      InputStream decoded = new GZIPInputStream(part.getContent(), StreamUtils.BUFFER_SIZE);
+      if (StreamUtils.copyRange(decoded, out, from, to) != to - from + 1) {
+        throw new IOException(object.getKey() + " is shorter than its decoded length");
       }
-      outStream.close();
-      return downloadInputStream;
-    } catch (IOException ioe) {
-      ioe.getMessage();
     }
-    return null;
   }
 
   /**
-   * Zips passed in file[] into a single zipped folder
+   * Copies a whole stored object, decoded, to the argued stream when its decoded length was not
+   * recorded, so it cannot be checked or read in ranges.
    *
-   * @param files
-   * @return Zipped Folder
-   * @throws IOException
+   * @param object the object
+   * @param out the stream to write to
+   * @throws IOException if reading from storage or writing to the stream fails
    */
-  @Transactional
-  public File zipFile(File[] files) throws IOException {
-
-    System.out.println("Entered the Zipping");
-    File zipper = new File("project-service/src/main/resources/tmp/compressed.zip");
-    zipper.getParentFile().mkdirs();
-    FileOutputStream fos = new FileOutputStream(zipper);
-    ZipOutputStream zipOut = new ZipOutputStream(fos);
-
-    for (File fileToZip : files) {
-      if (fileToZip == null || !fileToZip.exists()) {
-        System.out.println("File was not found or created");
-        continue;
+  private void writeUnknownLength(StorageMetadata object, OutputStream out) throws IOException {
+    if (object.getContentEncoding() != null
+        && !CompressingStorageService.GZIP.equals(object.getContentEncoding())) {
+      throw new IOException(
+          object.getKey() + " is stored with unknown encoding " + object.getContentEncoding());
+    }
+    try (StorageObject whole = s3StorageServiceImpl.openStream(object.getKey())) {
+      if (object.getContentEncoding() == null) {
+        whole.transferTo(out);
+      } else {
+        StreamUtils.copy(new GZIPInputStream(whole.getContent(), StreamUtils.BUFFER_SIZE), out);
+      }
+    }
+  }
+
+  /**
+   * Copies screenshots to the argued stream as the body of a multipart/mixed response, one part
+   * per screenshot holding its bytes as stored under its own Content-Type and Content-Length.
+   * Each screenshot is streamed from storage into its part without being held in memory.
+   *
+   * @param sequence the screenshots, as returned by screenShotSequence
+   * @param boundary the boundary between the parts, as given in the response's Content-Type
+   * @param out the stream to write to
+   * @throws IOException if reading from storage or writing to the stream fails
+   */
+  public void writeScreenShotParts(ObjectSequence sequence, String boundary, OutputStream out)
+      throws IOException {
+    for (StorageMetadata screenShot : sequence.getObjects()) {
+      String part =
+          "--"
+              + boundary
+              + "\r\nContent-Type: "
+              + screenShotType(screenShot)
+              + "\r\nContent-Length: "
+              + screenShot.getDecodedLength()
+              + "\r\nContent-Disposition: inline; filename=\""
+              + screenShot.getKey()
+              + "\"\r\n\r\n";
+      out.write(part.getBytes(StandardCharsets.US_ASCII));
+      writeObject(screenShot, out);
+      out.write(CRLF);
+    }
+    out.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+    out.flush();
+  }
+
+  /**
+   * Copies stored objects to the argued stream as a zip archive with one entry per object, named
+   * by its key. Objects that are already compressed, such as images and archives, are STORED
+   * rather than deflated again; the rest are deflated.
+   *
+   * <p>A STORED entry's CRC must be known before its bytes are written, so objects up to the
+   * buffer limit are read whole into memory. These reads are started up to bundlePrefetch objects
+   * ahead on the bundle prefetch pool, so the next objects are fetched from storage while the
+   * current one is written. Larger objects are streamed straight from storage into a deflated
+   * entry, at no compression when they are already compressed, and so are objects whose decoded
+   * length was not recorded.
+   *
+   * <p>If the archive cannot be finished, for instance because the client went away, the reads
+   * still in progress are abandoned: each stops at its next write and closes its storage stream,
+   * and this waits for them to do so before returning.
+   *
+   * @param sequence the objects, as returned by screenShotSequence or bundleSequence
+   * @param out the stream to write to, which is left open
+   * @throws IOException if reading from storage or writing to the stream fails
+   */
+  public void writeZip(ObjectSequence sequence, OutputStream out) throws IOException {
+    List<StorageMetadata> objects = sequence.getObjects();
+    List<String> names = entryNames(objects);
+    List<CompletableFuture<BufferedEntry>> prefetched = new ArrayList<>();
+    AtomicBoolean abandoned = new AtomicBoolean();
+    ZipOutputStream zip = new ZipOutputStream(out);
+    try {
+      for (int i = 0; i < objects.size(); i++) {
+        while (prefetched.size() < objects.size() && prefetched.size() <= i + bundlePrefetch) {
+          StorageMetadata object = objects.get(prefetched.size());
+          String name = names.get(prefetched.size());
+          prefetched.add(
+              object.getDecodedLength() >= 0 && object.getDecodedLength() <= bundleBufferLimit
+                  ? CompletableFuture.supplyAsync(
+                      () -> bufferEntry(name, object, abandoned), bundlePrefetchExecutor)
+                  : null);
+        }
+        CompletableFuture<BufferedEntry> buffered = prefetched.set(i, null);
+        if (buffered != null) {
+          await(buffered).writeTo(zip);
+        } else {
+          StorageMetadata object = objects.get(i);
+          zip.setLevel(
+              isCompressed(object) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+          zip.putNextEntry(new ZipEntry(names.get(i)));
+          writeObject(object, zip);
+          zip.closeEntry();
+        }
       }
-      System.out.println(fileToZip.getAbsolutePath());
-      FileInputStream fis = new FileInputStream(fileToZip);
-      ZipEntry zipEntry = new ZipEntry(fileToZip.getName());
-      zipOut.putNextEntry(zipEntry);
-      byte[] bytes = new byte[1024];
-      int length = fis.read(bytes);
-
-      while (length >= 0) {
-        zipOut.write(bytes, 0, length);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      abandoned.set(true);
+      for (CompletableFuture<BufferedEntry> buffered : prefetched) {
+        if (buffered != null) {
+          try {
+            buffered.join();
+          } catch (CompletionException e) {
+            // the archive has already failed, so all that matters is that the read is over
+          }
+        }
       }
-      fis.close();
     }
-    zipOut.close();
-    fos.close();
-    return zipper;
+    zip.finish();
+    out.flush();
   }
 
   /**
-   * Converting png Image from a ByteArray
+   * @param objects the objects to be zipped
+   * @return the name of each object's entry: its key, prefixed with a count for repeated keys
+   */
+  private List<String> entryNames(List<StorageMetadata> objects) {
+    Set<String> used = new HashSet<>();
+    List<String> names = new ArrayList<>();
+    for (StorageMetadata object : objects) {
+      String name = object.getKey();
+      for (int copy = 2; !used.add(name); copy++) {
+        name = copy + "-" + object.getKey();
+      }
+      names.add(name);
+    }
+    return names;
+  }
+
+  /**
+   * Reads a stored object into memory as the content of a zip entry, STORED if the object is
+   * already compressed.
    *
-   * @param fileBStream
-   * @param filename
-   * @return BufferedImage - Returns BufferedImage of png to be used. If no image was created or
-   *     file does not exist, returns null
+   * @param name the name of the entry
+   * @param object the object
+   * @param abandoned set once the entry is no longer wanted, which stops the read
+   * @return the entry and its content
+   * @throws UncheckedIOException if reading from storage fails, or the read is abandoned
    */
-  public File convertImageFromByteArray(ByteArrayOutputStream fileBStream, File file) {
+  private BufferedEntry bufferEntry(String name, StorageMetadata object, AtomicBoolean abandoned) {
+    if (abandoned.get()) {
+      throw new UncheckedIOException(new IOException("The zip archive was abandoned"));
+    }
+    ByteArrayOutputStream content = new ByteArrayOutputStream((int) object.getDecodedLength());
+    CRC32 crc = new CRC32();
     try {
-      byte[] data = fileBStream.toByteArray();
-      ByteArrayInputStream bis = new ByteArrayInputStream(data);
-      BufferedImage bImage2 = ImageIO.read(bis);
-      ImageIO.write(bImage2, "png", file);
-      System.out.println("image created: " + file.getName());
-      return file;
+      writeObject(
+          object, new CheckedOutputStream(new AbandonableOutputStream(content, abandoned), crc));
     } catch (IOException e) {
-      System.out.println("Converting Image failed");
-      e.printStackTrace();
+      throw new UncheckedIOException(e);
+    }
+    ZipEntry entry = new ZipEntry(name);
+    if (isCompressed(object)) {
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(content.size());
+      entry.setCompressedSize(content.size());
+      entry.setCrc(crc.getValue());
+    }
+    return new BufferedEntry(entry, content);
+  }
+
+  /**
+   * @param object a stored object
+   * @return whether its content is already compressed, so deflating it again would not shrink it
+   */
+  private boolean isCompressed(StorageMetadata object) {
+    String extension = StringUtils.getFilenameExtension(object.getKey());
+    return COMPRESSED_TYPES.contains(object.getContentType())
+        || (extension != null && COMPRESSED_EXTENSIONS.contains(extension.toLowerCase()));
+  }
+
+  /**
+   * Copies a single stored object, decoded, to the argued stream.
+   *
+   * @param object the object
+   * @param out the stream to write to
+   * @throws IOException if reading from storage or writing to the stream fails
+   */
+  private void writeObject(StorageMetadata object, OutputStream out) throws IOException {
+    if (object.getDecodedLength() < 0) {
+      writeUnknownLength(object, out);
+      return;
     }
-    return null;
+    writeSequence(
+        new ObjectSequence(Collections.singletonList(object), null),
+        0,
+        object.getDecodedLength() - 1,
+        out);
   }
 
   /**
-   * Downloads screenshots from a s3 bucket using the StorageService. All screenshots downloaded
-   * should be a png file so that we can not worry about compression.
+   * Downloads screenshots from a s3 bucket using the StorageService. Screenshots are stored in a
+   * format browsers display, so their bytes are passed on as stored, without being decoded. The
+   * downloads are all started up front and overlap, while the screenshots are still combined in
+   * their original order into a single array sized up front.
    *
    * @param keyNames
-   * @return List<Byte> - list of all bytes of the screenshots together in sequential order.
+   * @return byte[] - all bytes of the screenshots together in sequential order.
    * @throws IOException
    */
-  private List<Byte> s3downloadScreenshots(List<String> keyNames) throws IOException {
-    List<Byte> bList = new ArrayList<>();
-    FileInputStream fis = null;
+  private byte[] s3downloadScreenshots(List<String> keyNames) throws IOException {
+    List<CompletableFuture<ByteArrayOutputStream>> downloads = new ArrayList<>();
     for (String key : keyNames) {
-      this.downloadInputStream = s3StorageServiceImpl.downloadFile(key);
-      File file = new File("project-service/src/main/resources/tmp/" + key);
-      file.getParentFile().mkdirs();
-      file.createNewFile();
-      fis = new FileInputStream(convertImageFromByteArray(this.downloadInputStream, file));
-      byte[] bArr = IOUtils.toByteArray(fis);
-      List<Byte> byteList = Arrays.asList(ArrayUtils.toObject(bArr));
-      bList.addAll(byteList);
+      downloads.add(asyncStorageService.downloadFile(key));
+    }
+    List<ByteArrayOutputStream> screenShots = new ArrayList<>();
+    int length = 0;
+    for (CompletableFuture<ByteArrayOutputStream> download : downloads) {
+      ByteArrayOutputStream screenShot = await(download);
+      screenShots.add(screenShot);
+      length += screenShot.size();
     }
-    if (fis != null) fis.close();
-    return bList;
+    ByteArrayOutputStream combined = new ByteArrayOutputStream(length);
+    for (ByteArrayOutputStream screenShot : screenShots) {
+      screenShot.writeTo(combined);
+    }
+    return combined.toByteArray();
   }
 
   /**
@@ -574,12 +1482,59 @@ public class ProjectService {
     System.out.println("The keys before loop is: " + _screenshotUrls);
     for (String key : _screenshotUrls) {
       System.out.println("The key before split is: " + key);
-      String[] keySplit = key.split("/");
-      String newKey = keySplit[(keySplit.length - 1)];
+      String newKey = StorageKeys.fromLink(key);
       System.out.println("The key after split is: " + newKey);
       _screenshotNames.add(newKey);
     }
     System.out.println("The keys after loop is: " + _screenshotNames);
     return _screenshotNames;
   }
+
+  /** Passes writes on until it is abandoned, and then fails them, so a copy into it stops. */
+  private static class AbandonableOutputStream extends FilterOutputStream {
+
+    private final AtomicBoolean abandoned;
+
+    AbandonableOutputStream(OutputStream out, AtomicBoolean abandoned) {
+      super(out);
+      this.abandoned = abandoned;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      checkAbandoned();
+      out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      checkAbandoned();
+      out.write(b, off, len);
+    }
+
+    private void checkAbandoned() throws IOException {
+      if (abandoned.get()) {
+        throw new IOException("The zip archive was abandoned");
+      }
+    }
+  }
+
+  /** A zip entry whose content has been read from storage ahead of being written. */
+  private static class BufferedEntry {
+
+    private final ZipEntry entry;
+    private final ByteArrayOutputStream content;
+
+    BufferedEntry(ZipEntry entry, ByteArrayOutputStream content) {
+      this.entry = entry;
+      this.content = content;
+    }
+
+    void writeTo(ZipOutputStream zip) throws IOException {
+      zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+      zip.putNextEntry(entry);
+      content.writeTo(zip);
+      zip.closeEntry();
+    }
+  }
 }
@@ -2,19 +2,52 @@ package com.revature.rpm.services;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.HttpMethod;
+import com.amazonaws.SdkClientException;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.retry.PredefinedBackoffStrategies;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.ResponseHeaderOverrides;
 import com.amazonaws.services.s3.model.S3Object;
-import com.revature.rpm.util.FileHelper;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import com.amazonaws.services.s3.transfer.Upload;
+import com.revature.rpm.config.StorageConfig;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
@@ -23,6 +56,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 @Service
 @Profile("!local")
+@Qualifier(StorageConfig.STORAGE_BACKEND)
 public class S3StorageServiceImpl implements StorageService {
 
   @Value("${aws.config.aws-access-key-id}")
@@ -40,13 +74,61 @@ public class S3StorageServiceImpl implements StorageService {
   @Value("${aws.config.s3-endpoint}")
   private String s3EndPoint;
 
+  /** Objects larger than this many bytes are uploaded in parts rather than in a single PUT. */
+  @Value("${aws.config.multipart.threshold:16777216}")
+  private long multipartThreshold;
+
+  /** Size in bytes of each part of a multipart upload; S3 requires at least 5 MB. */
+  @Value("${aws.config.multipart.part-size:8388608}")
+  private long multipartPartSize;
+
+  /** Number of parts of a multipart upload that are sent to S3 concurrently. */
+  @Value("${aws.config.multipart.threads:4}")
+  private int multipartThreads;
+
+  /** Incomplete multipart uploads older than this many hours are aborted at startup. */
+  @Value("${aws.config.multipart.abort-after-hours:24}")
+  private long abortAfterHours;
+
+  /** Number of seconds a presigned download URL stays valid. */
+  @Value("${storage.presigned.ttl-seconds:300}")
+  private long presignedTtlSeconds;
+
+  /** Most times a request that failed with a retryable error is sent again. */
+  @Value("${aws.config.retry.max-retries:3}")
+  private int maxRetries;
+
+  /** Base of the exponential delay, in milliseconds, a retry is drawn at random below. */
+  @Value("${aws.config.retry.base-delay-ms:100}")
+  private int retryBaseDelayMs;
+
+  /** Longest delay, in milliseconds, before a retry. */
+  @Value("${aws.config.retry.max-delay-ms:5000}")
+  private int retryMaxDelayMs;
+
+  /** Milliseconds a GET or HEAD, retries included, may take to return its response headers. */
+  @Value("${aws.config.read-deadline-ms:10000}")
+  private int readDeadlineMs;
+
+  /** User metadata holding the decoded length of an object stored with a content encoding. */
+  private static final String DECODED_LENGTH = "decoded-length";
+
+  /** The most keys S3 accepts in a single multi-object delete. */
+  private static final int MAX_KEYS_PER_DELETE = 1000;
+
+  private static final Logger logger = LoggerFactory.getLogger(S3StorageServiceImpl.class);
+
   private AWSCredentials credentials;
   private AmazonS3 s3Client;
+  private RetryPolicy retryPolicy;
+  private TransferManager transferManager;
   private ProjectService projectService;
 
   /**
    * init draws on environment variables setting up an s3Client used to store objects
-   * Added @Transactional
+   * Added @Transactional. Requests that fail with a retryable error (throttling, server errors,
+   * dropped connections) are retried after a random delay below an exponentially growing bound,
+   * so that clients retrying together do not hit S3 in lockstep.
    */
   @Transactional
   @PostConstruct
@@ -54,26 +136,66 @@ public class S3StorageServiceImpl implements StorageService {
     System.out.println(awsAccessKeyId);
     System.out.println(awsSecretAccessKey);
     credentials = new BasicAWSCredentials(awsAccessKeyId, awsSecretAccessKey);
+    retryPolicy =
+        new RetryPolicy(
+            PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION,
+            new PredefinedBackoffStrategies.FullJitterBackoffStrategy(
+                retryBaseDelayMs, retryMaxDelayMs),
+            maxRetries,
+            false);
     s3Client =
         AmazonS3ClientBuilder.standard()
             .withCredentials(new AWSStaticCredentialsProvider(credentials))
+            .withClientConfiguration(new ClientConfiguration().withRetryPolicy(retryPolicy))
             .withRegion(bucketRegion)
             .build();
+    transferManager =
+        TransferManagerBuilder.standard()
+            .withS3Client(s3Client)
+            .withMultipartUploadThreshold(multipartThreshold)
+            .withMinimumUploadPartSize(multipartPartSize)
+            .withExecutorFactory(() -> Executors.newFixedThreadPool(multipartThreads))
+            .build();
+    abortOrphanedUploads();
   }
 
   /**
-   * store puts an object in the configured s3 bucket Added @Transactional
+   * Aborts multipart uploads left incomplete by a previous run of the service. S3 keeps (and bills
+   * for) the parts of such uploads until they are aborted.
+   */
+  private void abortOrphanedUploads() {
+    Date cutoff = new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(abortAfterHours));
+    try {
+      transferManager.abortMultipartUploads(bucketName, cutoff);
+    } catch (AmazonClientException ace) {
+      logger.warn("Could not abort orphaned multipart uploads: {}", ace.getMessage());
+    }
+  }
+
+  /** Releases the upload threads; the s3Client itself is left open for in-flight downloads. */
+  @PreDestroy
+  public void shutdown() {
+    if (transferManager != null) {
+      transferManager.shutdownNow(false);
+    }
+  }
+
+  /**
+   * store puts an object in the configured s3 bucket Added @Transactional. The upload is streamed
+   * from the request straight to S3 rather than written to a local file first.
    *
    * @param multipartFile the file representation of the object desired to store
    * @return the link to the new object
    */
+  @Override
   @Transactional
   public String store(MultipartFile multipartFile) {
-
-    try {
-      s3Client.putObject(
-          bucketName, multipartFile.getOriginalFilename(), FileHelper.convert(multipartFile));
-      return s3EndPoint + '/' + bucketName + '/' + multipartFile.getOriginalFilename();
+    try (InputStream content = multipartFile.getInputStream()) {
+      return store(
+          multipartFile.getOriginalFilename(),
+          content,
+          multipartFile.getSize(),
+          multipartFile.getContentType());
     } catch (IOException e) {
       e.printStackTrace();
       return "";
@@ -81,7 +203,9 @@ public class S3StorageServiceImpl implements StorageService {
   }
 
   /**
-   * store puts an object in the configured s3 bucket
+   * store puts an object in the configured s3 bucket. Files larger than the multipart threshold
+   * are split into parts that are uploaded in parallel; if any part fails the whole upload is
+   * aborted so no orphaned parts are left behind.
    *
    * @transactional added
    * @param file the file representation fo the object desired to store
@@ -89,12 +213,85 @@ public class S3StorageServiceImpl implements StorageService {
    */
   @Transactional
   public String store(File file) {
-    s3Client.putObject(bucketName, file.getName(), file);
-    return s3EndPoint + '/' + bucketName + '/' + file.getName();
+    return store(file.getName(), file);
+  }
+
+  /**
+   * store puts a file in the configured s3 bucket under the given key, uploading it in parallel
+   * parts when it is larger than the multipart threshold
+   *
+   * @param keyName the key to store the object under
+   * @param file the file representation of the object desired to store
+   * @return the link to the new object
+   */
+  @Override
+  @Transactional
+  public String store(String keyName, File file) {
+    upload(new PutObjectRequest(bucketName, keyName, file));
+    return s3EndPoint + '/' + bucketName + '/' + keyName;
+  }
+
+  /**
+   * store puts the content of a stream in the configured s3 bucket. Content larger than the
+   * multipart threshold is sent in parts, buffering one part at a time.
+   *
+   * @param keyName the key to store the object under
+   * @param content the content of the object
+   * @param contentLength the number of bytes in the content
+   * @param contentType the media type of the content, or null if it is unknown
+   * @return the link to the new object
+   */
+  @Override
+  @Transactional
+  public String store(String keyName, InputStream content, long contentLength, String contentType) {
+    return store(new StorageMetadata(keyName, contentLength, contentType, null), content);
   }
 
   /**
-   * Goes to the AWS S3 Bucket to fetch uploaded files @Transactional
+   * store puts the content of a stream in the configured s3 bucket. An encoded object is stored
+   * with a Content-Encoding header, which S3 hands back on every GET, and its decoded length is
+   * kept in the object's user metadata.
+   *
+   * @param metadata the key, length, media type and encoding of the content
+   * @param content the content of the object, encoded as described
+   * @return the link to the new object
+   */
+  @Override
+  @Transactional
+  public String store(StorageMetadata metadata, InputStream content) {
+    ObjectMetadata objectMetadata = new ObjectMetadata();
+    objectMetadata.setContentLength(metadata.getContentLength());
+    if (metadata.getContentType() != null) {
+      objectMetadata.setContentType(metadata.getContentType());
+    }
+    if (metadata.getContentEncoding() != null) {
+      objectMetadata.setContentEncoding(metadata.getContentEncoding());
+      objectMetadata.addUserMetadata(DECODED_LENGTH, Long.toString(metadata.getDecodedLength()));
+    }
+    upload(new PutObjectRequest(bucketName, metadata.getKey(), content, objectMetadata));
+    return s3EndPoint + '/' + bucketName + '/' + metadata.getKey();
+  }
+
+  /**
+   * Runs an upload through the TransferManager and waits for it to finish. If the upload is
+   * interrupted it is aborted, so none of its parts are left behind.
+   *
+   * @param request the object to upload
+   */
+  private void upload(PutObjectRequest request) {
+    Upload upload = transferManager.upload(request);
+    try {
+      upload.waitForCompletion();
+    } catch (InterruptedException e) {
+      upload.abort();
+      Thread.currentThread().interrupt();
+      throw new AmazonClientException("Interrupted while uploading " + request.getKey(), e);
+    }
+  }
+
+  /**
+   * Goes to the AWS S3 Bucket to fetch uploaded files @Transactional. A connection that fails
+   * while the content is being read is retried with the same jittered backoff as failed requests.
    *
    * @param file name to be fetched
    * @return return the file from the S3 bucket
@@ -102,34 +299,214 @@ public class S3StorageServiceImpl implements StorageService {
   @Transactional
   @Override
   public ByteArrayOutputStream downloadFile(String keyName) {
-    try {
-      S3Object s3object = s3Client.getObject(new GetObjectRequest(bucketName, keyName));
-
-      InputStream is = s3object.getObjectContent();
-      ByteArrayOutputStream baos = new ByteArrayOutputStream();
-      int len;
-      byte[] buffer = new byte[4096];
-      while ((len = is.read(buffer, 0, buffer.length)) != -1) {
-        baos.write(buffer, 0, len);
+    for (int retries = 0; ; retries++) {
+      GetObjectRequest request = withDeadline(new GetObjectRequest(bucketName, keyName));
+      try (S3Object s3object = s3Client.getObject(request)) {
+        InputStream is = s3object.getObjectContent();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        int len;
+        byte[] buffer = new byte[4096];
+        while ((len = is.read(buffer, 0, buffer.length)) != -1) {
+          baos.write(buffer, 0, len);
+        }
+
+        return baos;
+      } catch (IOException ioe) {
+        System.out.println("IOException: " + ioe.getMessage());
+        SdkClientException failure = new SdkClientException("Could not read " + keyName, ioe);
+        if (retries >= maxRetries) {
+          throw failure;
+        }
+        backOff(request, failure, retries);
+      } catch (AmazonServiceException ase) {
+        System.out.println("Caught an AmazonServiceException from GET requests, rejected reasons:");
+        System.out.println("Error Message:    " + ase.getMessage());
+        System.out.println("HTTP Status Code: " + ase.getStatusCode());
+        System.out.println("AWS Error Code:   " + ase.getErrorCode());
+        System.out.println("Error Type:       " + ase.getErrorType());
+        System.out.println("Request ID:       " + ase.getRequestId());
+        throw ase;
+      } catch (AmazonClientException ace) {
+        System.out.println("Caught an AmazonClientException: ");
+        System.out.println("Error Message: " + ace.getMessage());
+        throw ace;
       }
+    }
+  }
 
-      return baos;
-    } catch (IOException ioe) {
-      System.out.println("IOException: " + ioe.getMessage());
-    } catch (AmazonServiceException ase) {
-      System.out.println("Caught an AmazonServiceException from GET requests, rejected reasons:");
-      System.out.println("Error Message:    " + ase.getMessage());
-      System.out.println("HTTP Status Code: " + ase.getStatusCode());
-      System.out.println("AWS Error Code:   " + ase.getErrorCode());
-      System.out.println("Error Type:       " + ase.getErrorType());
-      System.out.println("Request ID:       " + ase.getRequestId());
-      throw ase;
-    } catch (AmazonClientException ace) {
-      System.out.println("Caught an AmazonClientException: ");
-      System.out.println("Error Message: " + ace.getMessage());
-      throw ace;
+  /**
+   * Waits out the retry policy's delay before the next attempt at a request.
+   *
+   * @param request the request about to be retried
+   * @param failure why the last attempt failed
+   * @param retries the number of retries already made
+   */
+  private void backOff(AmazonWebServiceRequest request, SdkClientException failure, int retries) {
+    try {
+      long delay = retryPolicy.getBackoffStrategy().delayBeforeNextRetry(request, failure, retries);
+      Thread.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AmazonClientException("Interrupted while retrying " + failure.getMessage(), e);
     }
+  }
+
+  /**
+   * Bounds how long a read may wait for S3 to respond, across all of its retries. The deadline
+   * covers the time to the response headers; reading the content is not counted against it.
+   *
+   * @param request the GET or HEAD request
+   * @return the same request
+   */
+  private <T extends AmazonWebServiceRequest> T withDeadline(T request) {
+    request.setSdkClientExecutionTimeout(readDeadlineMs);
+    return request;
+  }
+
+  /**
+   * Opens an object in the AWS S3 Bucket without copying it into memory. The returned handle holds
+   * an open connection to S3 until it is closed.
+   *
+   * @param keyName name of the object to be opened
+   * @return an open handle on the object
+   */
+  @Override
+  public StorageObject openStream(String keyName) {
+    S3Object s3object = s3Client.getObject(withDeadline(new GetObjectRequest(bucketName, keyName)));
+    ObjectMetadata metadata = s3object.getObjectMetadata();
+    return new StorageObject(
+        keyName,
+        metadata.getContentLength(),
+        metadata.getContentType(),
+        s3object.getObjectContent());
+  }
+
+  /**
+   * Opens part of an object in the AWS S3 Bucket with a ranged GET, so S3 only sends the requested
+   * bytes.
+   *
+   * @param keyName name of the object to be opened
+   * @param first the offset of the first byte to read
+   * @param last the offset of the last byte to read
+   * @return an open handle on the requested bytes
+   */
+  @Override
+  public StorageObject openStream(String keyName, long first, long last) {
+    S3Object s3object =
+        s3Client.getObject(
+            withDeadline(new GetObjectRequest(bucketName, keyName).withRange(first, last)));
+    ObjectMetadata metadata = s3object.getObjectMetadata();
+    return new StorageObject(
+        keyName,
+        metadata.getContentLength(),
+        metadata.getContentType(),
+        s3object.getObjectContent());
+  }
+
+  /**
+   * Looks up an object in the AWS S3 Bucket with a HEAD request
+   *
+   * @param keyName name of the object to describe
+   * @return the object's metadata
+   */
+  @Override
+  public StorageMetadata getMetadata(String keyName) {
+    ObjectMetadata metadata =
+        s3Client.getObjectMetadata(withDeadline(new GetObjectMetadataRequest(bucketName, keyName)));
+    String decodedLength = metadata.getUserMetaDataOf(DECODED_LENGTH);
+    return new StorageMetadata(
+        keyName,
+        metadata.getContentLength(),
+        metadata.getContentType(),
+        metadata.getETag(),
+        metadata.getLastModified().getTime(),
+        metadata.getContentEncoding(),
+        decodedLength == null ? -1 : Long.parseLong(decodedLength));
+  }
+
+  /**
+   * Lists the AWS S3 Bucket a page of up to 1000 objects at a time
+   *
+   * @param consumer called with the metadata of each object in turn
+   */
+  @Override
+  public void listObjects(Consumer<StorageMetadata> consumer) {
+    ListObjectsV2Request request = new ListObjectsV2Request().withBucketName(bucketName);
+    ListObjectsV2Result page;
+    do {
+      page = s3Client.listObjectsV2(request);
+      for (S3ObjectSummary summary : page.getObjectSummaries()) {
+        consumer.accept(
+            new StorageMetadata(
+                summary.getKey(),
+                summary.getSize(),
+                null,
+                summary.getETag(),
+                summary.getLastModified().getTime()));
+      }
+      request.setContinuationToken(page.getNextContinuationToken());
+    } while (page.isTruncated());
+  }
+
+  /**
+   * Presigns a GET of an object in the AWS S3 Bucket. The URL asks S3 to serve the object as an
+   * attachment, like the service's own download endpoints do.
+   *
+   * @param keyName name of the object to link to
+   * @return a URL valid for storage.presigned.ttl-seconds
+   */
+  @Override
+  public URL presignedUrl(String keyName) {
+    Date expiration = new Date(System.currentTimeMillis() + presignedTtlSeconds * 1000);
+    GeneratePresignedUrlRequest request =
+        new GeneratePresignedUrlRequest(bucketName, keyName)
+            .withMethod(HttpMethod.GET)
+            .withExpiration(expiration)
+            .withResponseHeaders(
+                new ResponseHeaderOverrides()
+                    .withContentDisposition("attachment; filename=\"" + keyName + "\""));
+    return s3Client.generatePresignedUrl(request);
+  }
 
-    return null;
+  /**
+   * Checks whether an object exists in the AWS S3 Bucket
+   *
+   * @param keyName name of the object to look up
+   * @return true if the object exists
+   */
+  @Override
+  public boolean exists(String keyName) {
+    return s3Client.doesObjectExist(bucketName, keyName);
+  }
+
+  /**
+   * Removes an object from the AWS S3 Bucket
+   *
+   * @param keyName name of the object to remove
+   */
+  @Override
+  public void delete(String keyName) {
+    s3Client.deleteObject(bucketName, keyName);
+  }
+
+  /**
+   * Removes objects from the AWS S3 Bucket with multi-object deletes of up to 1000 keys each
+   *
+   * @param keyNames the keys of the objects to remove
+   * @throws MultiObjectDeleteException if S3 could not delete some of the objects
+   */
+  @Override
+  public void deleteAll(Collection<String> keyNames) {
+    List<KeyVersion> keys = new ArrayList<>();
+    for (String keyName : keyNames) {
+      keys.add(new KeyVersion(keyName));
+      if (keys.size() == MAX_KEYS_PER_DELETE) {
+        s3Client.deleteObjects(new DeleteObjectsRequest(bucketName).withKeys(keys).withQuiet(true));
+        keys = new ArrayList<>();
+      }
+    }
+    if (!keys.isEmpty()) {
+      s3Client.deleteObjects(new DeleteObjectsRequest(bucketName).withKeys(keys).withQuiet(true));
+    }
   }
 }
@@ -0,0 +1,118 @@
+package com.revature.rpm.services;
+
+import com.revature.rpm.util.ImageTypes;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import javax.imageio.ImageIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * ScreenShotNormalizer stores submitted screenshots in a format every browser can display, under
+ * the media type their content actually has. Screenshots are then served as stored, without being
+ * decoded again on every download.
+ *
+ * <p>A PNG, JPEG, GIF or WebP screenshot is stored as uploaded, with its media type corrected if
+ * the client sent a wrong one. Any other image ImageIO can read is converted to PNG on the
+ * thumbnail pool. Uploads that are not readable images, or that have more pixels than
+ * screenshot.max-pixels, are stored as they are without being decoded.
+ */
+@Service
+public class ScreenShotNormalizer {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScreenShotNormalizer.class);
+
+  private AsyncStorageService asyncStorageService;
+  private Executor thumbnailExecutor;
+
+  @Value("${screenshot.max-pixels:25000000}")
+  private long maxPixels = 25_000_000;
+
+  @Autowired
+  public ScreenShotNormalizer(
+      AsyncStorageService asyncStorageService,
+      @Qualifier("thumbnailExecutor") Executor thumbnailExecutor) {
+    this.asyncStorageService = asyncStorageService;
+    this.thumbnailExecutor = thumbnailExecutor;
+  }
+
+  /**
+   * Stores a screenshot, converting it first if it is not in a format browsers display.
+   *
+   * @param screenShot the submitted screenshot
+   * @return completes with the link to the stored screenshot
+   */
+  public CompletableFuture<String> store(MultipartFile screenShot) {
+    String mediaType = sniff(screenShot);
+    if (mediaType != null && ImageTypes.WEB_SAFE.contains(mediaType)) {
+      if (mediaType.equals(screenShot.getContentType())) {
+        return asyncStorageService.store(screenShot);
+      }
+      try {
+        byte[] content = screenShot.getBytes();
+        return asyncStorageService.store(
+            screenShot.getOriginalFilename(),
+            new ByteArrayInputStream(content),
+            content.length,
+            mediaType);
+      } catch (IOException e) {
+        logger.warn("Could not read {}: {}", screenShot.getOriginalFilename(), e.getMessage());
+        return asyncStorageService.store(screenShot);
+      }
+    }
+    return CompletableFuture.supplyAsync(() -> toPng(screenShot), thumbnailExecutor)
+        .thenCompose(
+            png ->
+                png == null
+                    ? asyncStorageService.store(screenShot)
+                    : asyncStorageService.store(
+                        StringUtils.stripFilenameExtension(screenShot.getOriginalFilename())
+                            + ".png",
+                        new ByteArrayInputStream(png),
+                        png.length,
+                        "image/png"));
+  }
+
+  /** @return the sniffed media type of the screenshot, or null if it cannot be told */
+  private String sniff(MultipartFile screenShot) {
+    try (InputStream in = screenShot.getInputStream()) {
+      return ImageTypes.sniff(in);
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return the screenshot converted to PNG, or null if ImageIO cannot read it or it is too large
+   *     to decode
+   */
+  private byte[] toPng(MultipartFile screenShot) {
+    try {
+      BufferedImage image;
+      try (InputStream in = screenShot.getInputStream()) {
+        image = ImageTypes.read(in, maxPixels);
+      }
+      if (image == null) {
+        return null;
+      }
+      ByteArrayOutputStream png = new ByteArrayOutputStream();
+      ImageIO.write(image, "png", png);
+      return png.toByteArray();
+    } catch (IOException | RuntimeException e) {
+      logger.warn(
+          "Could not convert {} to PNG: {}", screenShot.getOriginalFilename(), e.getMessage());
+      return null;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.revature.rpm.services;
+
+/**
+ * StorageMetadata describes a stored object without reading its content: its size, its media type
+ * and a version tag that changes whenever the object is replaced. An object stored compressed also
+ * carries its content encoding and the size of its content once decoded.
+ */
+public class StorageMetadata {
+
+  private final String key;
+  private final long contentLength;
+  private final String contentType;
+  private final String eTag;
+  private final long lastModified;
+  private final String contentEncoding;
+  private final long decodedLength;
+
+  public StorageMetadata(String key, long contentLength, String contentType, String eTag) {
+    this(key, contentLength, contentType, eTag, -1);
+  }
+
+  public StorageMetadata(
+      String key, long contentLength, String contentType, String eTag, long lastModified) {
+    this(key, contentLength, contentType, eTag, lastModified, null, contentLength);
+  }
+
+  /**
+   * @param key the key of the object
+   * @param contentLength the length of the stored content in bytes
+   * @param contentType the media type of the content once decoded
+   * @param eTag the backend's version tag for the object, or null when storing it
+   * @param lastModified when the object was last stored, or -1 if it is unknown
+   * @param contentEncoding the encoding of the stored content, such as gzip, or null for none
+   * @param decodedLength the length of the content once decoded
+   */
+  public StorageMetadata(
+      String key,
+      long contentLength,
+      String contentType,
+      String eTag,
+      long lastModified,
+      String contentEncoding,
+      long decodedLength) {
+    this.key = key;
+    this.contentLength = contentLength;
+    this.contentType = contentType;
+    this.eTag = eTag;
+    this.lastModified = lastModified;
+    this.contentEncoding = contentEncoding;
+    this.decodedLength = decodedLength;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /** @return the length of the content as stored, in bytes */
+  public long getContentLength() {
+    return contentLength;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  /** @return the backend's version tag for the object, without surrounding quotes */
+  public String getETag() {
+    return eTag;
+  }
+
+  /** @return when the object was last stored, in epoch milliseconds, or -1 if it is unknown */
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  /** @return the encoding of the stored content, such as gzip, or null if it is stored as is */
+  public String getContentEncoding() {
+    return contentEncoding;
+  }
+
+  /** @return the length of the content once decoded, in bytes */
+  public long getDecodedLength() {
+    return contentEncoding == null ? contentLength : decodedLength;
+  }
+
+  @Override
+  public String toString() {
+    return "StorageMetadata [key="
+        + key
+        + ", contentLength="
+        + contentLength
+        + ", contentType="
+        + contentType
+        + ", eTag="
+        + eTag
+        + ", lastModified="
+        + lastModified
+        + ", contentEncoding="
+        + contentEncoding
+        + ", decodedLength="
+        + decodedLength
+        + "]";
+  }
+}
@@ -0,0 +1,85 @@
+package com.revature.rpm.services;
+
+import com.revature.rpm.util.ByteBufferInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * StorageObject is an open handle on an object held by a StorageService. The content is read
+ * lazily from the backing store, so callers must close the handle once they are done with it.
+ */
+public class StorageObject implements Closeable {
+
+  /** Size of the buffer used when copying content to another stream. */
+  private static final int BUFFER_SIZE = 8192;
+
+  private final String key;
+  private final long contentLength;
+  private final String contentType;
+  private final InputStream content;
+
+  public StorageObject(String key, long contentLength, String contentType, InputStream content) {
+    this.key = key;
+    this.contentLength = contentLength;
+    this.contentType = contentType;
+    this.content = content;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /** @return the length of the content in bytes, or -1 if the backing store did not report it */
+  public long getContentLength() {
+    return contentLength;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  public InputStream getContent() {
+    return content;
+  }
+
+  /**
+   * Copies the remaining content to the argued stream through a fixed-size buffer, so memory use
+   * does not depend on the size of the object. Content that is already held in a buffer, such as a
+   * cached or memory-mapped object, is written from that buffer directly.
+   *
+   * @param out the stream to write the content to
+   * @return the number of bytes copied
+   * @throws IOException if reading the content or writing to the stream fails
+   */
+  public long transferTo(OutputStream out) throws IOException {
+    if (content instanceof ByteBufferInputStream) {
+      return ((ByteBufferInputStream) content).transferTo(out);
+    }
+    byte[] buffer = new byte[BUFFER_SIZE];
+    long total = 0;
+    int len;
+    while ((len = content.read(buffer)) != -1) {
+      out.write(buffer, 0, len);
+      total += len;
+    }
+    return total;
+  }
+
+  @Override
+  public void close() throws IOException {
+    content.close();
+  }
+
+  @Override
+  public String toString() {
+    return "StorageObject [key="
+        + key
+        + ", contentLength="
+        + contentLength
+        + ", contentType="
+        + contentType
+        + "]";
+  }
+}
@@ -2,6 +2,10 @@ package com.revature.rpm.services;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collection;
+import java.util.function.Consumer;
 import org.springframework.web.multipart.MultipartFile;
 
 /** init draws on environment variables setting up an s3Client used to store objects */
@@ -26,5 +30,131 @@ public interface StorageService {
    */
   String store(File file);
 
+  /**
+   * store puts a file in the configured s3 bucket under the given key
+   *
+   * @param keyName the key to store the object under
+   * @param file the file representation of the object desired to store
+   * @return the link to the new object
+   */
+  String store(String keyName, File file);
+
+  /**
+   * store puts the content of a stream in the configured s3 bucket without staging it on disk
+   *
+   * @param keyName the key to store the object under
+   * @param content the content of the object; it is read to the end
+   * @param contentLength the number of bytes in the content
+   * @param contentType the media type of the content, or null if it is unknown
+   * @return the link to the new object
+   */
+  String store(String keyName, InputStream content, long contentLength, String contentType);
+
+  /**
+   * store puts the content of a stream in the configured s3 bucket along with its content
+   * encoding, so content stored compressed can be told apart from content stored as is. Every
+   * backend must record the encoding, since decorators such as CompressingStorageService rely on
+   * it being read back with the object.
+   *
+   * @param metadata the key, length, media type and encoding of the content; the version tag and
+   *     modification time are ignored
+   * @param content the content of the object, encoded as described; it is read to the end
+   * @return the link to the new object
+   */
+  String store(StorageMetadata metadata, InputStream content);
+
   ByteArrayOutputStream downloadFile(String keyName);
+
+  /**
+   * openStream opens the object stored under the given key without buffering its content, so it
+   * can be copied to its destination with constant memory. The caller must close the result.
+   *
+   * @param keyName the key of the object to open
+   * @return an open handle on the object's content and metadata
+   */
+  StorageObject openStream(String keyName);
+
+  /**
+   * openStream opens part of the object stored under the given key, reading only the requested
+   * bytes from the backing store. The caller must close the result.
+   *
+   * @param keyName the key of the object to open
+   * @param first the offset of the first byte to read
+   * @param last the offset of the last byte to read; it must lie within the object
+   * @return an open handle on the requested bytes
+   */
+  StorageObject openStream(String keyName, long first, long last);
+
+  /**
+   * getMetadata looks up the size, media type and version tag of an object without reading it
+   *
+   * @param keyName the key of the object to describe
+   * @return the object's metadata
+   */
+  StorageMetadata getMetadata(String keyName);
+
+  /**
+   * presignedUrl creates a short-lived URL a client can fetch the object from directly, without
+   * its content passing through this service. The URL stays valid for
+   * storage.presigned.ttl-seconds.
+   *
+   * @param keyName the key of the object to link to
+   * @return the URL, or null if the backend cannot presign URLs
+   */
+  default URL presignedUrl(String keyName) {
+    return null;
+  }
+
+  /**
+   * listObjects walks every stored object, fetching the listing a page at a time so it never has
+   * to be held in memory as a whole
+   *
+   * @param consumer called with the metadata of each object in turn
+   */
+  void listObjects(Consumer<StorageMetadata> consumer);
+
+  /**
+   * exists checks whether an object is stored under the given key
+   *
+   * @param keyName the key to look up
+   * @return true if the object exists
+   */
+  boolean exists(String keyName);
+
+  /**
+   * delete removes the object stored under the given key, if there is one
+   *
+   * @param keyName the key of the object to remove
+   */
+  void delete(String keyName);
+
+  /**
+   * deleteAll removes several objects in as few requests as the backend allows
+   *
+   * @param keyNames the keys of the objects to remove
+   */
+  default void deleteAll(Collection<String> keyNames) {
+    keyNames.forEach(this::delete);
+  }
+
+  /**
+   * deleteOrphans removes objects that no project links to. Backends that count references also
+   * remove objects whose counts were last raised before the argued time, since such counts were
+   * left behind by submissions that failed part way rather than by a submission still in flight.
+   *
+   * @param keyNames the keys of the objects no project links to
+   * @param referencedBefore the time, in milliseconds since the epoch, before which a reference
+   *     that no project holds is considered leaked
+   */
+  default void deleteOrphans(Collection<String> keyNames, long referencedBefore) {
+    deleteAll(keyNames);
+  }
+
+  /**
+   * release drops one project's reference to an object. Backends that do not count references keep
+   * the object, since other projects may link to an object stored under the same key.
+   *
+   * @param keyName the key of the object no longer referenced
+   */
+  default void release(String keyName) {}
 }
@@ -0,0 +1,172 @@
+package com.revature.rpm.services;
+
+import com.revature.rpm.entities.Thumbnail;
+import com.revature.rpm.util.ImageTypes;
+import com.revature.rpm.util.StorageKeys;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import javax.imageio.ImageIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * ThumbnailService scales submitted screenshots down to a few fixed widths and stores the results
+ * next to the originals, so gallery views can download a small image instead of the full-size one.
+ * The scaling is CPU-bound, so it runs on a pool of its own rather than on the asset upload pool.
+ *
+ * <p>Thumbnails are PNG, keep the screenshot's aspect ratio and are only made for widths smaller
+ * than the screenshot itself. The widths are configured with screenshot.thumbnail.widths, and
+ * screenshots with more pixels than screenshot.max-pixels are not decoded at all.
+ */
+@Service
+public class ThumbnailService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+  private StorageService storageService;
+  private Executor thumbnailExecutor;
+  private int[] widths;
+
+  @Value("${screenshot.max-pixels:25000000}")
+  private long maxPixels = 25_000_000;
+
+  @Autowired
+  public ThumbnailService(
+      StorageService storageService,
+      @Qualifier("thumbnailExecutor") Executor thumbnailExecutor,
+      @Value("${screenshot.thumbnail.widths:160,320,640}") int[] widths) {
+    this.storageService = storageService;
+    this.thumbnailExecutor = thumbnailExecutor;
+    this.widths = widths.clone();
+    Arrays.sort(this.widths);
+  }
+
+  /**
+   * Generates and stores the thumbnails of a screenshot on the thumbnail pool. A screenshot that
+   * cannot be read as an image gets no thumbnails, and its downloads fall back to the original. The
+   * upload is read before this returns, so the thumbnails can still be made after the request it
+   * came with has finished.
+   *
+   * @param screenShot the submitted screenshot
+   * @param link the link the screenshot was stored under
+   * @return completes with the stored thumbnails, smallest first; never fails
+   */
+  public CompletableFuture<List<Thumbnail>> generate(MultipartFile screenShot, String link) {
+    if (!StringUtils.hasText(link)) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+    byte[] content;
+    try {
+      content = screenShot.getBytes();
+    } catch (IOException e) {
+      logger.warn("Could not read {}: {}", screenShot.getOriginalFilename(), e.getMessage());
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+    return CompletableFuture.supplyAsync(() -> thumbnails(content, link), thumbnailExecutor);
+  }
+
+  /**
+   * Picks the stored image to send for a screenshot when a client asks for a given width.
+   *
+   * @param key the storage key of the screenshot
+   * @param thumbnails the thumbnails of the project the screenshot belongs to, or null
+   * @param width the width the client wants, or null for the original
+   * @return the key of the smallest thumbnail at least that wide, or of the screenshot itself if
+   *     none is
+   */
+  public String select(String key, List<Thumbnail> thumbnails, Integer width) {
+    if (width == null || thumbnails == null) {
+      return key;
+    }
+    Thumbnail selected = null;
+    for (Thumbnail thumbnail : thumbnails) {
+      if (key.equals(thumbnail.getSource())
+          && thumbnail.getWidth() >= width
+          && (selected == null || thumbnail.getWidth() < selected.getWidth())) {
+        selected = thumbnail;
+      }
+    }
+    return selected == null ? key : StorageKeys.fromLink(selected.getLink());
+  }
+
+  private List<Thumbnail> thumbnails(byte[] screenShot, String link) {
+    String key = StorageKeys.fromLink(link);
+    try {
+      BufferedImage image = ImageTypes.read(new ByteArrayInputStream(screenShot), maxPixels);
+      if (image == null) {
+        logger.warn("No thumbnails made of {}: not a readable image", key);
+        return Collections.emptyList();
+      }
+      List<Thumbnail> thumbnails = new ArrayList<>();
+      for (int width : widths) {
+        if (width >= image.getWidth()) {
+          break;
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(scale(image, width), "png", png);
+        String thumbnailLink =
+            storageService.store(
+                thumbnailKey(key, width),
+                new ByteArrayInputStream(png.toByteArray()),
+                png.size(),
+                "image/png");
+        thumbnails.add(new Thumbnail(key, width, thumbnailLink));
+      }
+      return thumbnails;
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Could not make thumbnails of {}: {}", key, e.getMessage());
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * Scales an image down to the argued width. The image is halved in steps until it is less than
+   * twice the target width, which keeps bilinear filtering from dropping detail on large ratios.
+   */
+  private BufferedImage scale(BufferedImage image, int width) {
+    int type =
+        image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+    int height =
+        Math.max(1, (int) Math.round((double) image.getHeight() * width / image.getWidth()));
+    BufferedImage scaled = image;
+    int currentWidth = image.getWidth();
+    int currentHeight = image.getHeight();
+    do {
+      currentWidth = Math.max(width, currentWidth / 2);
+      currentHeight = Math.max(height, currentHeight / 2);
+      BufferedImage step = new BufferedImage(currentWidth, currentHeight, type);
+      Graphics2D graphics = step.createGraphics();
+      graphics.setRenderingHint(
+          RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.drawImage(scaled, 0, 0, currentWidth, currentHeight, null);
+      graphics.dispose();
+      scaled = step;
+    } while (currentWidth != width || currentHeight != height);
+    return scaled;
+  }
+
+  /**
+   * @return the key a thumbnail of the argued width is stored under, e.g.
+   *     thumbnail-320w-shot.jpg.png. The whole key of the screenshot is kept, so screenshots that
+   *     differ only in their extension get thumbnails of their own.
+   */
+  private String thumbnailKey(String key, int width) {
+    return "thumbnail-" + width + "w-" + key + ".png";
+  }
+}
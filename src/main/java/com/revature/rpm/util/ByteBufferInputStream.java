@@ -0,0 +1,75 @@
+package com.revature.rpm.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * ByteBufferInputStream reads the remaining bytes of a ByteBuffer. It lets memory-mapped and
+ * direct buffers be handed to code that expects a stream without first copying them onto the heap.
+ */
+public class ByteBufferInputStream extends InputStream {
+
+  private final ByteBuffer buffer;
+
+  /** @param buffer the buffer to read; reading advances its position */
+  public ByteBufferInputStream(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  @Override
+  public int read() {
+    return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+  }
+
+  @Override
+  public int read(byte[] bytes, int off, int len) {
+    if (len == 0) {
+      return 0;
+    }
+    if (!buffer.hasRemaining()) {
+      return -1;
+    }
+    int count = Math.min(len, buffer.remaining());
+    buffer.get(bytes, off, count);
+    return count;
+  }
+
+  @Override
+  public long skip(long n) {
+    int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+    buffer.position(buffer.position() + count);
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return buffer.remaining();
+  }
+
+  /**
+   * Writes the remaining bytes to a stream without staging them in a copy of their own. A heap
+   * buffer is written straight from its backing array in one call; a direct or mapped buffer is
+   * handed to a channel over the stream, which moves it across in small chunks.
+   *
+   * @param out the stream to write to
+   * @return the number of bytes written
+   * @throws IOException if writing to the stream fails
+   */
+  public long transferTo(OutputStream out) throws IOException {
+    int count = buffer.remaining();
+    if (buffer.hasArray()) {
+      out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), count);
+      buffer.position(buffer.limit());
+    } else {
+      WritableByteChannel channel = Channels.newChannel(out);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+    return count;
+  }
+}
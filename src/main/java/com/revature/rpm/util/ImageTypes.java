@@ -0,0 +1,123 @@
+package com.revature.rpm.util;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * The ImageTypes class defines static methods for telling the format of an image from its first
+ * bytes, so the media type of a screenshot does not depend on what the uploading client claimed,
+ * and for decoding untrusted images within a pixel budget.
+ */
+public class ImageTypes {
+
+  /** How many leading bytes sniff needs to recognize every format it knows. */
+  public static final int HEADER_LENGTH = 12;
+
+  /** Formats every browser displays, which screenshots are stored in as they were uploaded. */
+  public static final Set<String> WEB_SAFE =
+      Collections.unmodifiableSet(
+          new HashSet<>(Arrays.asList("image/png", "image/jpeg", "image/gif", "image/webp")));
+
+  private ImageTypes() {}
+
+  /**
+   * ImageTypes.sniff recognizes PNG, JPEG, GIF, WebP and BMP images by their magic numbers
+   *
+   * @param header the first bytes of the content, ideally HEADER_LENGTH of them
+   * @param length how many bytes of the header are filled
+   * @return the media type of the image, or null if it is not one of those formats
+   */
+  public static String sniff(byte[] header, int length) {
+    if (startsWith(header, length, 0, 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n')) {
+      return "image/png";
+    }
+    if (startsWith(header, length, 0, 0xFF, 0xD8, 0xFF)) {
+      return "image/jpeg";
+    }
+    if (startsWith(header, length, 0, 'G', 'I', 'F', '8')) {
+      return "image/gif";
+    }
+    if (startsWith(header, length, 0, 'R', 'I', 'F', 'F')
+        && startsWith(header, length, 8, 'W', 'E', 'B', 'P')) {
+      return "image/webp";
+    }
+    if (startsWith(header, length, 0, 'B', 'M')) {
+      return "image/bmp";
+    }
+    return null;
+  }
+
+  /**
+   * ImageTypes.sniff reads the first bytes of a stream and recognizes the image format
+   *
+   * @param content the stream, which is read from but not closed
+   * @return the media type of the image, or null if it is not a format sniff knows
+   * @throws IOException if reading from the stream fails
+   */
+  public static String sniff(InputStream content) throws IOException {
+    byte[] header = new byte[HEADER_LENGTH];
+    int length = 0;
+    int read;
+    while (length < header.length
+        && (read = content.read(header, length, header.length - length)) != -1) {
+      length += read;
+    }
+    return sniff(header, length);
+  }
+
+  /**
+   * ImageTypes.read decodes an image, checking the dimensions in its header before any pixels are
+   * decoded. A small upload can declare an image large enough to exhaust the heap once decoded, so
+   * images over the budget are refused instead.
+   *
+   * @param content the encoded image, which is read from but not closed
+   * @param maxPixels the largest width times height accepted
+   * @return the decoded image, or null if no installed reader recognizes the format
+   * @throws IOException if reading fails or the image has more than maxPixels pixels
+   */
+  public static BufferedImage read(InputStream content, long maxPixels) throws IOException {
+    try (ImageInputStream images = ImageIO.createImageInputStream(content)) {
+      if (images == null) {
+        return null;
+      }
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(images);
+      if (!readers.hasNext()) {
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(images, true, true);
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        if ((long) width * height > maxPixels) {
+          throw new IOException(
+              "The image is " + width + "x" + height + ", more than " + maxPixels + " pixels");
+        }
+        return reader.read(0);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  private static boolean startsWith(byte[] header, int length, int offset, int... magic) {
+    if (length < offset + magic.length) {
+      return false;
+    }
+    for (int i = 0; i < magic.length; i++) {
+      if ((header[offset + i] & 0xFF) != magic[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
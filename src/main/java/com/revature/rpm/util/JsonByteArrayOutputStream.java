@@ -0,0 +1,89 @@
+package com.revature.rpm.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JsonByteArrayOutputStream writes the bytes written to it as a JSON array of numbers, each byte
+ * as its signed decimal value, which is how Jackson writes a Byte[]. The array is encoded as the
+ * bytes arrive, without ever holding them as boxed Bytes. finish must be called once all bytes are
+ * written to close the array.
+ */
+public class JsonByteArrayOutputStream extends FilterOutputStream {
+
+  /** The JSON text of every byte value, indexed by the unsigned value of the byte. */
+  private static final byte[][] ENCODED = new byte[256][];
+
+  static {
+    for (int i = 0; i < ENCODED.length; i++) {
+      ENCODED[i] = Integer.toString((byte) i).getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+
+  private final byte[] buffer = new byte[8192];
+  private int count;
+  private boolean empty = true;
+  private boolean finished;
+
+  /** @param out the stream the JSON text is written to */
+  public JsonByteArrayOutputStream(OutputStream out) {
+    super(out);
+    buffer[count++] = '[';
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    byte[] encoded = ENCODED[b & 0xFF];
+    if (count + encoded.length + 1 > buffer.length) {
+      drain();
+    }
+    if (!empty) {
+      buffer[count++] = ',';
+    }
+    System.arraycopy(encoded, 0, buffer, count, encoded.length);
+    count += encoded.length;
+    empty = false;
+  }
+
+  @Override
+  public void write(byte[] bytes, int off, int len) throws IOException {
+    for (int i = off; i < off + len; i++) {
+      write(bytes[i]);
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    drain();
+    out.flush();
+  }
+
+  /**
+   * Closes the JSON array and flushes it, leaving the underlying stream open.
+   *
+   * @throws IOException if writing to the underlying stream fails
+   */
+  public void finish() throws IOException {
+    if (!finished) {
+      if (count == buffer.length) {
+        drain();
+      }
+      buffer[count++] = ']';
+      finished = true;
+    }
+    flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    finish();
+    out.close();
+  }
+
+  private void drain() throws IOException {
+    out.write(buffer, 0, count);
+    count = 0;
+  }
+}
@@ -0,0 +1,22 @@
+package com.revature.rpm.util;
+
+/**
+ * The StorageKeys class defines how the storage key of an object is read back from the link it was
+ * stored under. Every backend returns links ending in the key exactly as it was stored, so the
+ * downloads, the orphaned object sweep and anything else that maps links to keys must agree on
+ * this one rule.
+ */
+public class StorageKeys {
+
+  private StorageKeys() {}
+
+  /**
+   * StorageKeys.fromLink returns the storage key a link points at
+   *
+   * @param link a link returned by a StorageService
+   * @return the last path segment of the link, as it is
+   */
+  public static String fromLink(String link) {
+    return link.substring(link.lastIndexOf('/') + 1);
+  }
+}
@@ -0,0 +1,142 @@
+package com.revature.rpm.tests.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revature.rpm.util.JsonByteArrayOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares how the screenshot download turns downloaded screenshots into its JSON response: the
+ * old path, which boxed every byte into a List of Byte and had Jackson write the resulting Byte[],
+ * against the primitive path, which combines the screenshots into one byte[] and encodes it with
+ * JsonByteArrayOutputStream. Both write the same text.
+ *
+ * <p>Run with the GC profiler, so heap allocated per operation (gc.alloc.rate.norm) is reported
+ * alongside throughput:
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath com.revature.rpm.tests.benchmarks.ScreenShotEncodingBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScreenShotEncodingBenchmark {
+
+  /** Size of each screenshot in bytes; screenshots are limited to 1MB at submission. */
+  @Param({"100000", "1000000"})
+  public int screenShotSize;
+
+  /** Number of screenshots in the project. */
+  @Param({"3"})
+  public int screenShotCount;
+
+  private List<ByteArrayOutputStream> downloads;
+
+  private ObjectMapper objectMapper;
+
+  @Setup
+  public void setUp() throws IOException {
+    Random random = new Random(screenShotSize);
+    downloads = new ArrayList<>();
+    for (int i = 0; i < screenShotCount; i++) {
+      byte[] screenShot = new byte[screenShotSize];
+      random.nextBytes(screenShot);
+      ByteArrayOutputStream download = new ByteArrayOutputStream();
+      download.write(screenShot);
+      downloads.add(download);
+    }
+    objectMapper = new ObjectMapper();
+  }
+
+  /** The old path: every byte boxed as by ArrayUtils.toObject, then written by Jackson. */
+  @Benchmark
+  public void boxed(Blackhole blackhole) throws IOException {
+    List<Byte> bList = new ArrayList<>();
+    for (ByteArrayOutputStream download : downloads) {
+      byte[] bArr = download.toByteArray();
+      Byte[] boxed = new Byte[bArr.length];
+      for (int i = 0; i < bArr.length; i++) {
+        boxed[i] = bArr[i];
+      }
+      bList.addAll(Arrays.asList(boxed));
+    }
+    Byte[] screenShots = bList.toArray(new Byte[0]);
+    objectMapper.writeValue(new BlackholeOutputStream(blackhole), screenShots);
+  }
+
+  /** The primitive path: one presized byte[], encoded as it is written. */
+  @Benchmark
+  public void primitive(Blackhole blackhole) throws IOException {
+    int length = 0;
+    for (ByteArrayOutputStream download : downloads) {
+      length += download.size();
+    }
+    ByteArrayOutputStream combined = new ByteArrayOutputStream(length);
+    for (ByteArrayOutputStream download : downloads) {
+      download.writeTo(combined);
+    }
+    byte[] screenShots = combined.toByteArray();
+    JsonByteArrayOutputStream json =
+        new JsonByteArrayOutputStream(new BlackholeOutputStream(blackhole));
+    json.write(screenShots);
+    json.finish();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options =
+        new OptionsBuilder()
+            .include(ScreenShotEncodingBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+    new Runner(options).run();
+  }
+
+  /** Hands everything written to it to a Blackhole, so the response text is not optimized away. */
+  private static class BlackholeOutputStream extends OutputStream {
+
+    private final Blackhole blackhole;
+
+    BlackholeOutputStream(Blackhole blackhole) {
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public void write(int b) {
+      blackhole.consume(b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int off, int len) {
+      blackhole.consume(bytes);
+      blackhole.consume(len);
+    }
+  }
+}
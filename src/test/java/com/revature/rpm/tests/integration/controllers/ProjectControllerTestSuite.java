@@ -1,16 +1,30 @@
 package com.revature.rpm.tests.integration.controllers;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.revature.rpm.controllers.ProjectController;
 import com.revature.rpm.dtos.ProjectDTO;
 import com.revature.rpm.dtos.ProjectErrorResponse;
+import com.revature.rpm.entities.IngestionJob;
 import com.revature.rpm.entities.Project;
 import com.revature.rpm.exceptions.ProjectNotAddedException;
 import com.revature.rpm.exceptions.ProjectNotFoundException;
+import com.revature.rpm.services.IngestionService;
+import com.revature.rpm.services.ObjectSequence;
 import com.revature.rpm.services.ProjectService;
+import com.revature.rpm.services.StorageMetadata;
+import java.io.ByteArrayOutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -19,6 +33,11 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import java.io.IOException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** Testing suite for the Project Controller class */
 @RunWith(MockitoJUnitRunner.class)
@@ -30,6 +49,8 @@ public class ProjectControllerTestSuite {
 
   @Mock ProjectService projectService;
 
+  @Mock IngestionService ingestionService;
+
   /** Test for handleExceptions in the case that */
   @Mock ProjectErrorResponse projectErrorResponse;
 
@@ -45,7 +66,7 @@ public class ProjectControllerTestSuite {
   @Before
   public void setup() {
     project = new Project.ProjectBuilder().build();
-    projectController = new ProjectController(projectService);
+    projectController = new ProjectController(projectService, ingestionService);
     projectDTO =
         new ProjectDTO.ProjectDTOBuilder()
             .setBatch("Cabbage")
@@ -182,4 +203,268 @@ public class ProjectControllerTestSuite {
     when(projectService.findById("3")).thenReturn(project);
     assertEquals(project, projectController.getProjectById("3"));
   }
+
+  // downloads
+  // --------------------------------------------------------------------------
+
+  /** A single stored archive of 100 bytes. */
+  private ObjectSequence archive() {
+    return new ObjectSequence(
+        Collections.singletonList(new StorageMetadata("repo.zip", 100, null, "etag")), null);
+  }
+
+  /** Test that a download without a Range header is sent whole. */
+  @Test
+  public void T_downloadZipLinks_Whole() {
+    when(projectService.zipLinkSequence("3")).thenReturn(archive());
+    ResponseEntity<StreamingResponseBody> response =
+        projectController.downloadZipLinks("3", null, null, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(100, response.getHeaders().getContentLength());
+    assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+  }
+
+  /** Test that a single satisfiable range is sent as partial content. */
+  @Test
+  public void T_downloadZipLinks_Range() {
+    ObjectSequence archive = archive();
+    when(projectService.zipLinkSequence("3")).thenReturn(archive);
+    String eTag = "\"" + archive.getETag() + "\"";
+    ResponseEntity<StreamingResponseBody> response =
+        projectController.downloadZipLinks("3", "bytes=40-", eTag, null);
+    assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+    assertEquals("bytes 40-99/100", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    assertEquals(60, response.getHeaders().getContentLength());
+  }
+
+  /** Test that a range guarded by an outdated If-Range is ignored. */
+  @Test
+  public void T_downloadZipLinks_StaleIfRange() {
+    when(projectService.zipLinkSequence("3")).thenReturn(archive());
+    ResponseEntity<StreamingResponseBody> response =
+        projectController.downloadZipLinks("3", "bytes=40-", "\"outdated\"", null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(100, response.getHeaders().getContentLength());
+  }
+
+  /** Test that a download redirected to storage is answered with a 307 and no body. */
+  @Test
+  public void T_downloadZipLinks_Redirect() throws MalformedURLException {
+    URL presigned = new URL("https://bucket.s3.amazonaws.com/repo.zip?X-Amz-Signature=abc");
+    when(projectService.zipLinkRedirect("3")).thenReturn(presigned);
+    ResponseEntity<StreamingResponseBody> response =
+        projectController.downloadZipLinks("3", null, null, null);
+    assertEquals(HttpStatus.TEMPORARY_REDIRECT, response.getStatusCode());
+    assertEquals(presigned.toString(), response.getHeaders().getLocation().toString());
+    assertNull(response.getBody());
+    verify(projectService, never()).zipLinkSequence("3");
+  }
+
+  /** Test that a range starting past the end cannot be satisfied. */
+  @Test
+  public void T_downloadZipLinks_Unsatisfiable() {
+    when(projectService.zipLinkSequence("3")).thenReturn(archive());
+    ResponseEntity<StreamingResponseBody> response =
+        projectController.downloadZipLinks("3", "bytes=100-200", null, null);
+    assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+    assertEquals("bytes */100", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+  }
+
+  /** Test that a client holding the current ETag gets a 304 without a body. */
+  @Test
+  public void T_downloadZipLinks_NotModified() {
+    ObjectSequence archive = archive();
+    when(projectService.zipLinkSequence("3")).thenReturn(archive);
+    String eTag = "\"" + archive.getETag() + "\"";
+    ResponseEntity<StreamingResponseBody> response =
+        projectController.downloadZipLinks("3", null, null, "\"other\", " + eTag);
+    assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    assertEquals(eTag, response.getHeaders().getETag());
+    assertNull(response.getBody());
+  }
+
+  /** Test that downloads carry the validators a client revalidates its copy with. */
+  @Test
+  public void T_downloadDataModels_Validators() {
+    ObjectSequence model =
+        new ObjectSequence(
+            Collections.singletonList(
+                new StorageMetadata("model.sql", 10, "text/plain", "etag", 1_500_000_000_000L)),
+            null);
+    when(projectService.dataModelSequence("3")).thenReturn(model);
+    ResponseEntity<StreamingResponseBody> response =
+        projectController.downloadDataModels("3", null, null, "\"outdated\"", null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("\"" + model.getETag() + "\"", response.getHeaders().getETag());
+    assertEquals(1_500_000_000_000L, response.getHeaders().getLastModified());
+    assertEquals("no-cache", response.getHeaders().getCacheControl());
+  }
+
+  /** Test that a client accepting gzip is sent the whole data model compressed. */
+  @Test
+  public void T_downloadDataModels_Gzip() {
+    ObjectSequence model =
+        new ObjectSequence(
+            Collections.singletonList(new StorageMetadata("model.sql", 10, "text/plain", "etag")),
+            null);
+    when(projectService.dataModelSequence("3")).thenReturn(model);
+    ResponseEntity<StreamingResponseBody> response =
+        projectController.downloadDataModels("3", null, null, null, "deflate, gzip;q=0.8");
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals("\"" + model.getETag() + "-gzip\"", response.getHeaders().getETag());
+    assertEquals(
+        Collections.singletonList(HttpHeaders.ACCEPT_ENCODING), response.getHeaders().getVary());
+    assertEquals(-1, response.getHeaders().getContentLength());
+  }
+
+  /** Test that a range, or a client refusing gzip, is sent without compression. */
+  @Test
+  public void T_downloadDataModels_Identity() {
+    ObjectSequence model =
+        new ObjectSequence(
+            Collections.singletonList(new StorageMetadata("model.sql", 10, "text/plain", "etag")),
+            null);
+    when(projectService.dataModelSequence("3")).thenReturn(model);
+    ResponseEntity<StreamingResponseBody> refused =
+        projectController.downloadDataModels("3", null, null, null, "gzip;q=0, *");
+    ResponseEntity<StreamingResponseBody> ranged =
+        projectController.downloadDataModels("3", "bytes=0-4", null, null, "gzip");
+    assertNull(refused.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(10, refused.getHeaders().getContentLength());
+    assertEquals(HttpStatus.PARTIAL_CONTENT, ranged.getStatusCode());
+    assertNull(ranged.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+  }
+
+  /** Test that screenshots are written as the JSON array of numbers clients expect. */
+  @Test
+  public void T_downloadScreenShots_Json() throws IOException {
+    when(projectService.screenShotSequence("3", null)).thenReturn(archive());
+    when(projectService.codeBaseScreenShots("3", null)).thenReturn(new byte[] {1, -2, 127});
+    ResponseEntity<StreamingResponseBody> response =
+        projectController.downloadSceenShots("3", null, "*/*", null);
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    response.getBody().writeTo(body);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("[1,-2,127]", body.toString("US-ASCII"));
+  }
+
+  /** Test that a storage failure is not sent to a JSON client as an empty success. */
+  @Test(expected = IOException.class)
+  public void T_downloadScreenShots_JsonFailure() throws IOException {
+    when(projectService.screenShotSequence("3", null)).thenReturn(archive());
+    when(projectService.codeBaseScreenShots("3", null)).thenThrow(new IOException("unavailable"));
+    projectController.downloadSceenShots("3", null, "*/*", null);
+  }
+
+  /** Test that a single screenshot is sent as stored, under its own media type. */
+  @Test
+  public void T_downloadScreenShot_MediaType() throws IOException {
+    StorageMetadata shot = new StorageMetadata("shot.jpg", 50, "image/jpeg", "etag");
+    ObjectSequence sequence = new ObjectSequence(Collections.singletonList(shot), null);
+    when(projectService.screenShotSequence("3", 0, 320)).thenReturn(sequence);
+    when(projectService.screenShotType(shot)).thenReturn("image/jpeg");
+    ResponseEntity<StreamingResponseBody> response =
+        projectController.downloadScreenShot("3", 0, 320, null, null, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("image/jpeg", response.getHeaders().getContentType().toString());
+    assertEquals(50, response.getHeaders().getContentLength());
+  }
+
+  /** Test that current screenshots are not read from storage again. */
+  @Test
+  public void T_downloadScreenShots_NotModified() throws IOException {
+    ObjectSequence screenShots = archive();
+    when(projectService.screenShotSequence("3", null)).thenReturn(screenShots);
+    ResponseEntity<StreamingResponseBody> response =
+        projectController.downloadSceenShots(
+            "3", null, null, "\"" + screenShots.getETag() + "\"");
+    assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    verify(projectService, never()).codeBaseScreenShots(anyString(), any());
+  }
+
+  /** Test that a client preferring multipart/mixed gets one part per screenshot. */
+  @Test
+  public void T_downloadScreenShots_Multipart() throws IOException {
+    ObjectSequence screenShots = archive();
+    String boundary = "screenshots-" + screenShots.getETag();
+    when(projectService.screenShotSequence("3", null)).thenReturn(screenShots);
+    ResponseEntity<StreamingResponseBody> response =
+        projectController.downloadSceenShots(
+            "3", null, "application/json;q=0.5, multipart/mixed", null);
+    response.getBody().writeTo(new ByteArrayOutputStream());
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(
+        "multipart/mixed;boundary=" + boundary,
+        response.getHeaders().getContentType().toString());
+    assertEquals("\"" + screenShots.getETag() + "-mixed\"", response.getHeaders().getETag());
+    assertEquals(HttpHeaders.ACCEPT, response.getHeaders().getFirst(HttpHeaders.VARY));
+    verify(projectService).writeScreenShotParts(same(screenShots), eq(boundary), any());
+    verify(projectService, never()).codeBaseScreenShots(anyString(), any());
+  }
+
+  /** Test that a client accepting only zip archives gets the screenshots zipped. */
+  @Test
+  public void T_downloadScreenShots_Zip() throws IOException {
+    ObjectSequence screenShots = archive();
+    when(projectService.screenShotSequence("3", null)).thenReturn(screenShots);
+    ResponseEntity<StreamingResponseBody> response =
+        projectController.downloadSceenShots("3", null, "application/zip", null);
+    response.getBody().writeTo(new ByteArrayOutputStream());
+    assertEquals("application/zip", response.getHeaders().getContentType().toString());
+    assertEquals("\"" + screenShots.getETag() + "-zip\"", response.getHeaders().getETag());
+    verify(projectService).writeZip(same(screenShots), any());
+  }
+
+  /** Test that a project's bundle is streamed as a zip archive. */
+  @Test
+  public void T_downloadBundle() throws IOException {
+    ObjectSequence bundle = archive();
+    when(projectService.bundleSequence("3")).thenReturn(bundle);
+    ResponseEntity<StreamingResponseBody> response = projectController.downloadBundle("3", null);
+    response.getBody().writeTo(new ByteArrayOutputStream());
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("application/zip", response.getHeaders().getContentType().toString());
+    assertEquals(
+        "attachment; filename=\"project-3.zip\"",
+        response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    verify(projectService).writeZip(same(bundle), any());
+  }
+
+  /** Test that an asynchronous submission is accepted with its job, and where to follow it. */
+  @Test
+  public void T_addProjectAsync_Accepted() {
+    IngestionJob job = new IngestionJob();
+    job.setId("job-1");
+    job.setStatus(IngestionJob.QUEUED);
+    when(ingestionService.submit(projectDTO)).thenReturn(job);
+
+    ResponseEntity<IngestionJob> response =
+        projectController.addProjectAsync(
+            projectDTO.getName(),
+            projectDTO.getBatch(),
+            projectDTO.getTrainer(),
+            projectDTO.getGroupMembers(),
+            projectDTO.getScreenShots(),
+            projectDTO.getZipLinks(),
+            projectDTO.getDescription(),
+            projectDTO.getTechStack(),
+            projectDTO.getStatus(),
+            projectDTO.getDataModel(),
+            projectDTO.getUserId());
+
+    assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    assertEquals("/ingestions/job-1", response.getHeaders().getLocation().toString());
+    assertEquals(job, response.getBody());
+    verify(projectService, never()).createProjectFromDTO(any());
+  }
+
+  /** Test that the progress of an ingestion job can be looked up. */
+  @Test
+  public void T_getIngestion() {
+    IngestionJob job = new IngestionJob();
+    when(ingestionService.findById("job-1")).thenReturn(job);
+
+    assertEquals(job, projectController.getIngestion("job-1"));
+  }
 }
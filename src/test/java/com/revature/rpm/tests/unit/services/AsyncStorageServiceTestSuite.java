@@ -0,0 +1,70 @@
+package com.revature.rpm.tests.unit.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.when;
+
+import com.revature.rpm.exceptions.BadRequestException;
+import com.revature.rpm.services.AsyncStorageServiceImpl;
+import com.revature.rpm.services.StorageService;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/** Test suite for AsyncStorageServiceImpl. */
+public class AsyncStorageServiceTestSuite {
+
+  private StorageService testStorage = Mockito.mock(StorageService.class);
+
+  private ExecutorService ioExecutor;
+
+  private AsyncStorageServiceImpl classUnderTest;
+
+  /** Ran before each test */
+  @Before
+  public void setup() {
+    ioExecutor = Executors.newSingleThreadExecutor(task -> new Thread(task, "storage-io-test"));
+    classUnderTest = new AsyncStorageServiceImpl(testStorage, ioExecutor);
+  }
+
+  /** Ran after each test */
+  @After
+  public void teardown() {
+    ioExecutor.shutdownNow();
+  }
+
+  /** Test that downloads run on the I/O pool rather than the calling thread. */
+  @Test
+  public void T_downloadFile_RunsOnIoPool() {
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    String[] thread = new String[1];
+    when(testStorage.downloadFile("shot.png"))
+        .thenAnswer(
+            invocation -> {
+              thread[0] = Thread.currentThread().getName();
+              return content;
+            });
+
+    assertThat(classUnderTest.downloadFile("shot.png").join()).isSameAs(content);
+    assertThat(thread[0]).isEqualTo("storage-io-test");
+  }
+
+  /** Test that a failed transfer completes the future with the original exception. */
+  @Test
+  public void T_delete_FailurePropagates() {
+    BadRequestException failure = new BadRequestException("Invalid storage key: ..");
+    Mockito.doThrow(failure).when(testStorage).delete("..");
+
+    CompletableFuture<Void> deletion = classUnderTest.delete("..");
+
+    assertThatExceptionOfType(CompletionException.class)
+        .isThrownBy(deletion::join)
+        .withCause(failure);
+  }
+}
@@ -0,0 +1,96 @@
+package com.revature.rpm.tests.unit.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.revature.rpm.services.CachingStorageService;
+import com.revature.rpm.services.CaffeineObjectCache;
+import com.revature.rpm.services.StorageObject;
+import com.revature.rpm.services.StorageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/** Test suite for CachingStorageService. */
+public class CachingStorageServiceTestSuite {
+
+  private StorageService backend = Mockito.mock(StorageService.class);
+
+  private MeterRegistry registry = new SimpleMeterRegistry();
+
+  private CachingStorageService classUnderTest;
+
+  /** Ran before each test */
+  @Before
+  public void setup() {
+    CaffeineObjectCache cache = new CaffeineObjectCache(1024, false);
+    cache.bindTo(registry);
+    classUnderTest = new CachingStorageService(backend, cache, 100);
+  }
+
+  /** Test that a second read of a small object is served from the cache. */
+  @Test
+  public void T_openStream_CachesSmallObjects() throws IOException {
+    byte[] content = {1, 2, 3};
+    when(backend.openStream("shot.png")).thenAnswer(invocation -> object("shot.png", content));
+
+    assertArrayEquals(content, read("shot.png"));
+    assertArrayEquals(content, read("shot.png"));
+    assertArrayEquals(content, classUnderTest.downloadFile("shot.png").toByteArray());
+
+    verify(backend, times(1)).openStream("shot.png");
+    assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count())
+        .isEqualTo(2.0);
+  }
+
+  /** Test that objects over the per-object cap are always read from the backend. */
+  @Test
+  public void T_openStream_SkipsLargeObjects() throws IOException {
+    byte[] content = new byte[200];
+    when(backend.openStream("archive.zip"))
+        .thenAnswer(invocation -> object("archive.zip", content));
+
+    assertArrayEquals(content, read("archive.zip"));
+    assertArrayEquals(content, read("archive.zip"));
+
+    verify(backend, times(2)).openStream("archive.zip");
+  }
+
+  /** Test that storing an object under a cached key drops the cached copy. */
+  @Test
+  public void T_store_InvalidatesCachedObject() throws IOException {
+    when(backend.openStream("model.sql"))
+        .thenAnswer(invocation -> object("model.sql", new byte[1]));
+
+    read("model.sql");
+    classUnderTest.store("model.sql", new ByteArrayInputStream(new byte[2]), 2, null);
+    read("model.sql");
+
+    verify(backend).store(eq("model.sql"), any(InputStream.class), anyLong(), any());
+    verify(backend, times(2)).openStream("model.sql");
+  }
+
+  private StorageObject object(String key, byte[] content) {
+    return new StorageObject(key, content.length, null, new ByteArrayInputStream(content));
+  }
+
+  private byte[] read(String key) throws IOException {
+    try (StorageObject object = classUnderTest.openStream(key)) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      object.transferTo(out);
+      return out.toByteArray();
+    }
+  }
+}
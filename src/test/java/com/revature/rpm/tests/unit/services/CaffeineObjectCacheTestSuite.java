@@ -0,0 +1,73 @@
+package com.revature.rpm.tests.unit.services;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.revature.rpm.services.CaffeineObjectCache;
+import com.revature.rpm.services.StorageObject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Test;
+
+/** Test suite for CaffeineObjectCache. */
+public class CaffeineObjectCacheTestSuite {
+
+  /** Test that content cached off the heap reads back unchanged. */
+  @Test
+  public void T_put_OffHeapRoundTrip() throws IOException {
+    CaffeineObjectCache classUnderTest = new CaffeineObjectCache(64 * 1024, true);
+    byte[] content = randomBytes(20000);
+
+    assertArrayEquals(content, read(classUnderTest.put(object("shot.png", content))));
+    assertArrayEquals(content, read(classUnderTest.get("shot.png")));
+  }
+
+  /** Test that handles on the same cached object do not move each other's position. */
+  @Test
+  public void T_get_IndependentHandles() throws IOException {
+    CaffeineObjectCache classUnderTest = new CaffeineObjectCache(1024, true);
+    byte[] content = randomBytes(100);
+    classUnderTest.put(object("model.sql", content)).close();
+
+    try (StorageObject first = classUnderTest.get("model.sql");
+        StorageObject second = classUnderTest.get("model.sql")) {
+      assertEquals(content[0], (byte) first.getContent().read());
+      assertArrayEquals(content, read(second));
+    }
+  }
+
+  /** Test that an object shorter than its reported length is not cached. */
+  @Test
+  public void T_put_ShortObject() {
+    CaffeineObjectCache classUnderTest = new CaffeineObjectCache(1024, false);
+    StorageObject truncated =
+        new StorageObject("model.sql", 10, null, new ByteArrayInputStream(new byte[4]));
+
+    assertThatExceptionOfType(EOFException.class)
+        .isThrownBy(() -> classUnderTest.put(truncated));
+    assertNull(classUnderTest.get("model.sql"));
+  }
+
+  private StorageObject object(String key, byte[] content) {
+    return new StorageObject(key, content.length, "image/png", new ByteArrayInputStream(content));
+  }
+
+  private byte[] read(StorageObject object) throws IOException {
+    try (StorageObject open = object) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      assertEquals(open.getContentLength(), open.transferTo(out));
+      return out.toByteArray();
+    }
+  }
+
+  private byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    new Random(length).nextBytes(bytes);
+    return bytes;
+  }
+}
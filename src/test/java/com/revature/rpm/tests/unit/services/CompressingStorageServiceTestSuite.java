@@ -0,0 +1,88 @@
+package com.revature.rpm.tests.unit.services;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.revature.rpm.services.CompressingStorageService;
+import com.revature.rpm.services.StorageMetadata;
+import com.revature.rpm.services.StorageService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+/** Test suite for CompressingStorageService. */
+public class CompressingStorageServiceTestSuite {
+
+  private static final String SCRIPT =
+      "insert into batch values ('a');\ninsert into batch values ('b');\n"
+          + "insert into batch values ('c');\ninsert into batch values ('d');\n";
+
+  private StorageService backend = Mockito.mock(StorageService.class);
+
+  private CompressingStorageService classUnderTest =
+      new CompressingStorageService(backend, 1024 * 1024);
+
+  /** Test that a text upload is stored gzip-encoded along with its decoded length. */
+  @Test
+  public void T_store_CompressesText() throws IOException {
+    MultipartFile file =
+        new MockMultipartFile("file", "model.sql", "application/octet-stream", SCRIPT.getBytes());
+    ArgumentCaptor<StorageMetadata> metadata = ArgumentCaptor.forClass(StorageMetadata.class);
+    ArgumentCaptor<InputStream> content = ArgumentCaptor.forClass(InputStream.class);
+    when(backend.store(metadata.capture(), content.capture())).thenReturn("link");
+
+    assertEquals("link", classUnderTest.store(file));
+
+    assertEquals("model.sql", metadata.getValue().getKey());
+    assertEquals(CompressingStorageService.GZIP, metadata.getValue().getContentEncoding());
+    assertEquals(SCRIPT.length(), metadata.getValue().getDecodedLength());
+    ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+    StreamUtils.copy(new GZIPInputStream(content.getValue()), decoded);
+    assertEquals(SCRIPT, decoded.toString("UTF-8"));
+  }
+
+  /** Test that an upload that is not text is stored as is. */
+  @Test
+  public void T_store_SkipsImages() {
+    MultipartFile file = new MockMultipartFile("file", "shot.png", "image/png", new byte[64]);
+    when(backend.store(file)).thenReturn("link");
+
+    assertEquals("link", classUnderTest.store(file));
+    verify(backend, never()).store(any(StorageMetadata.class), any(InputStream.class));
+  }
+
+  /** Test that a text upload compression would not shrink is stored as is. */
+  @Test
+  public void T_store_SkipsIncompressible() {
+    MultipartFile file = new MockMultipartFile("file", "a.txt", "text/plain", "a".getBytes());
+    when(backend.store(file)).thenReturn("link");
+
+    assertEquals("link", classUnderTest.store(file));
+    verify(backend, never()).store(any(StorageMetadata.class), any(InputStream.class));
+  }
+
+  /** Test that a text upload which cannot be read fails instead of returning an empty link. */
+  @Test
+  public void T_store_FailsOnUnreadableUpload() throws IOException {
+    MultipartFile file = Mockito.mock(MultipartFile.class);
+    when(file.getOriginalFilename()).thenReturn("model.sql");
+    when(file.getSize()).thenReturn(100L);
+    when(file.getInputStream()).thenThrow(new IOException("gone"));
+
+    assertThatExceptionOfType(UncheckedIOException.class)
+        .isThrownBy(() -> classUnderTest.store(file));
+    verify(backend, never()).store(any(StorageMetadata.class), any(InputStream.class));
+  }
+}
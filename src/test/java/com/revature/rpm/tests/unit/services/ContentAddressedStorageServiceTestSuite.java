@@ -0,0 +1,174 @@
+package com.revature.rpm.tests.unit.services;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.revature.rpm.entities.ObjectReference;
+import com.revature.rpm.services.ContentAddressedStorageService;
+import com.revature.rpm.services.ObjectReferenceCounter;
+import com.revature.rpm.services.StorageService;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.web.multipart.MultipartFile;
+
+/** Test suite for ContentAddressedStorageService. */
+public class ContentAddressedStorageServiceTestSuite {
+
+  // SHA-256 of the bytes "abc"
+  private static final String ABC_KEY =
+      "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad.sql";
+
+  private StorageService backend = Mockito.mock(StorageService.class);
+
+  private ObjectReferenceCounter referenceCounter = Mockito.mock(ObjectReferenceCounter.class);
+
+  private ContentAddressedStorageService classUnderTest;
+
+  /** Ran before each test */
+  @Before
+  public void setup() {
+    classUnderTest = new ContentAddressedStorageService(backend, referenceCounter);
+  }
+
+  /** Test that new content is uploaded under its digest and its link is recorded. */
+  @Test
+  public void T_store_UploadsNewContent() {
+    when(referenceCounter.increment(ABC_KEY)).thenReturn(reference(1, null));
+    when(backend.store(eq(ABC_KEY), any(InputStream.class), anyLong(), any()))
+        .thenReturn("link");
+
+    assertEquals("link", classUnderTest.store("model.SQL", stream("abc"), 3, "text/plain"));
+    verify(referenceCounter).recordLink(ABC_KEY, "link");
+  }
+
+  /** Test that content which is already stored is not uploaded again. */
+  @Test
+  public void T_store_SkipsDuplicateContent() {
+    when(referenceCounter.increment(ABC_KEY)).thenReturn(reference(2, "link"));
+    when(backend.exists(ABC_KEY)).thenReturn(true);
+
+    assertEquals("link", classUnderTest.store("other.sql", stream("abc"), 3, null));
+    verify(backend, never()).store(anyString(), any(InputStream.class), anyLong(), any());
+  }
+
+  /** Test that a failed upload gives its reference back. */
+  @Test
+  public void T_store_FailedUploadDecrements() {
+    when(referenceCounter.increment(ABC_KEY)).thenReturn(reference(1, null));
+    when(backend.store(eq(ABC_KEY), any(InputStream.class), anyLong(), any()))
+        .thenThrow(new IllegalStateException());
+
+    assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(() -> classUnderTest.store("model.sql", stream("abc"), 3, null));
+    verify(referenceCounter).decrement(ABC_KEY);
+  }
+
+  /**
+   * Test that the object is deleted once its last reference is released, while it is marked as
+   * being deleted.
+   */
+  @Test
+  public void T_release_DeletesUnreferenced() {
+    when(referenceCounter.decrement(ABC_KEY)).thenReturn(0L);
+    when(referenceCounter.markDeleting(ABC_KEY)).thenReturn(true);
+
+    classUnderTest.release(ABC_KEY);
+
+    InOrder inOrder = Mockito.inOrder(referenceCounter, backend);
+    inOrder.verify(referenceCounter).markDeleting(ABC_KEY);
+    inOrder.verify(backend).delete(ABC_KEY);
+    inOrder.verify(referenceCounter).finishDeleting(ABC_KEY);
+  }
+
+  /** Test that an object referenced again before it could be marked is kept. */
+  @Test
+  public void T_release_KeepsObjectReferencedMeanwhile() {
+    when(referenceCounter.decrement(ABC_KEY)).thenReturn(0L);
+    when(referenceCounter.markDeleting(ABC_KEY)).thenReturn(false);
+
+    classUnderTest.release(ABC_KEY);
+
+    verify(backend, never()).delete(anyString());
+    verify(referenceCounter, never()).finishDeleting(anyString());
+  }
+
+  /** Test that a failed deletion still drops its mark, so the content can be stored again. */
+  @Test
+  public void T_release_FinishesFailedDeletion() {
+    when(referenceCounter.decrement(ABC_KEY)).thenReturn(0L);
+    when(referenceCounter.markDeleting(ABC_KEY)).thenReturn(true);
+    Mockito.doThrow(new IllegalStateException()).when(backend).delete(ABC_KEY);
+
+    assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(() -> classUnderTest.release(ABC_KEY));
+    verify(referenceCounter).finishDeleting(ABC_KEY);
+  }
+
+  /** Test that an object still referenced elsewhere is kept. */
+  @Test
+  public void T_release_KeepsReferenced() {
+    when(referenceCounter.decrement(ABC_KEY)).thenReturn(1L);
+
+    classUnderTest.release(ABC_KEY);
+
+    verify(backend, never()).delete(anyString());
+  }
+
+  /** Test that an orphan kept alive only by a leaked reference count is deleted. */
+  @Test
+  public void T_deleteOrphans_ReclaimsLeakedReferences() {
+    when(referenceCounter.markDeletingIfStale(ABC_KEY, 1_000L)).thenReturn(true);
+
+    classUnderTest.deleteOrphans(Collections.singletonList(ABC_KEY), 1_000L);
+
+    verify(backend).deleteAll(Collections.singletonList(ABC_KEY));
+    verify(referenceCounter).finishDeleting(ABC_KEY);
+  }
+
+  /** Test that an orphan just referenced by a submission in flight is kept. */
+  @Test
+  public void T_deleteOrphans_KeepsRecentReferences() {
+    when(referenceCounter.markDeletingIfStale(ABC_KEY, 1_000L)).thenReturn(false);
+
+    classUnderTest.deleteOrphans(Collections.singletonList(ABC_KEY), 1_000L);
+
+    verify(backend, never()).deleteAll(any());
+  }
+
+  /** Test that an upload which cannot be read fails instead of returning an empty link. */
+  @Test
+  public void T_storeMultipart_FailsOnUnreadableUpload() throws IOException {
+    MultipartFile upload = Mockito.mock(MultipartFile.class);
+    when(upload.getOriginalFilename()).thenReturn("model.sql");
+    when(upload.getInputStream()).thenThrow(new IOException("gone"));
+
+    assertThatExceptionOfType(UncheckedIOException.class)
+        .isThrownBy(() -> classUnderTest.store(upload));
+    verify(referenceCounter, never()).increment(anyString());
+  }
+
+  private ObjectReference reference(long references, String link) {
+    ObjectReference reference = new ObjectReference();
+    reference.setReferences(references);
+    reference.setLink(link);
+    return reference;
+  }
+
+  private InputStream stream(String content) {
+    return new ByteArrayInputStream(content.getBytes());
+  }
+}
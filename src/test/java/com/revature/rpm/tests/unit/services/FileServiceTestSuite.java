@@ -1,18 +1,32 @@
 package com.revature.rpm.tests.unit.services;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
 import com.revature.rpm.exceptions.FileSizeTooLargeException;
 import com.revature.rpm.services.FileServiceImpl;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
 
 @RunWith(MockitoJUnitRunner.class)
 public class FileServiceTestSuite {
 
+  private static final String ARCHIVE_URI = "https://github.com/revature/repo/archive/master.zip";
+
   private FileServiceImpl classUnderTest = new FileServiceImpl();
 
   @Test
@@ -33,4 +47,85 @@ public class FileServiceTestSuite {
     }
     assertTrue(thrown);
   }
+
+  /** Test that a download is streamed to a file named by the response, in its own directory. */
+  @Test
+  public void T_download_StreamsToFile() throws IOException {
+    byte[] content = new byte[200_000];
+    new Random(1).nextBytes(content);
+    RestTemplate restTemplate = new RestTemplate();
+    MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+    server
+        .expect(requestTo(ARCHIVE_URI))
+        .andExpect(method(HttpMethod.GET))
+        .andRespond(
+            withSuccess(content, MediaType.APPLICATION_OCTET_STREAM)
+                .headers(named("repo-master.zip")));
+
+    File file = new FileServiceImpl(restTemplate).download(ARCHIVE_URI);
+    try {
+      assertEquals("repo-master.zip", file.getName());
+      assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+      server.verify();
+    } finally {
+      file.delete();
+      file.getParentFile().delete();
+    }
+  }
+
+  /** Test that a file name sent by the server cannot place the download outside its directory. */
+  @Test
+  public void T_download_IgnoresDirectoriesInName() throws IOException {
+    RestTemplate restTemplate = new RestTemplate();
+    MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+    server
+        .expect(requestTo(ARCHIVE_URI))
+        .andRespond(
+            withSuccess(new byte[] {1, 2, 3}, MediaType.APPLICATION_OCTET_STREAM)
+                .headers(named("../../repo.zip")));
+
+    File file = new FileServiceImpl(restTemplate).download(ARCHIVE_URI);
+    try {
+      assertEquals("repo.zip", file.getName());
+      assertTrue(file.getParentFile().getName().startsWith("download"));
+    } finally {
+      file.delete();
+      file.getParentFile().delete();
+    }
+  }
+
+  /** Test that a download whose Content-Length is over the limit is rejected unread. */
+  @Test(expected = FileSizeTooLargeException.class)
+  public void T_download_RejectsContentLength() throws IOException {
+    RestTemplate restTemplate = new RestTemplate();
+    MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+    HttpHeaders headers = named("repo.zip");
+    headers.setContentLength(2_000);
+    server
+        .expect(requestTo(ARCHIVE_URI))
+        .andRespond(
+            withSuccess(new byte[2_000], MediaType.APPLICATION_OCTET_STREAM).headers(headers));
+
+    new FileServiceImpl(restTemplate).download(ARCHIVE_URI, 1_000);
+  }
+
+  /** Test that a download without a Content-Length is abandoned once it passes the limit. */
+  @Test(expected = FileSizeTooLargeException.class)
+  public void T_download_AbortsAtLimit() throws IOException {
+    RestTemplate restTemplate = new RestTemplate();
+    MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+    server
+        .expect(requestTo(ARCHIVE_URI))
+        .andRespond(
+            withSuccess(new byte[200_000], MediaType.APPLICATION_OCTET_STREAM)
+                .headers(named("repo.zip")));
+
+    new FileServiceImpl(restTemplate).download(ARCHIVE_URI, 100_000);
+  }
+
+  private HttpHeaders named(String fileName) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName);
+    return headers;
+  }
 }
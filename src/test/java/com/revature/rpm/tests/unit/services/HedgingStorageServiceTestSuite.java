@@ -0,0 +1,168 @@
+package com.revature.rpm.tests.unit.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.revature.rpm.config.StorageConfig;
+import com.revature.rpm.services.HedgingStorageService;
+import com.revature.rpm.services.ObjectReferenceCounter;
+import com.revature.rpm.services.StorageMetadata;
+import com.revature.rpm.services.StorageObject;
+import com.revature.rpm.services.StorageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/** Test suite for HedgingStorageService. */
+public class HedgingStorageServiceTestSuite {
+
+  private StorageService backend = Mockito.mock(StorageService.class);
+
+  private ExecutorService executor = Executors.newCachedThreadPool();
+
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private HedgingStorageService classUnderTest =
+      new HedgingStorageService(backend, executor, meterRegistry, 20, 5, 1000);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  /** Test that a read answered in time is sent once. */
+  @Test
+  public void T_getMetadata_NotHedged() {
+    StorageMetadata metadata = new StorageMetadata("shot.png", 10, "image/png", "abc");
+    when(backend.getMetadata("shot.png")).thenReturn(metadata);
+
+    assertSame(metadata, classUnderTest.getMetadata("shot.png"));
+    verify(backend, times(1)).getMetadata("shot.png");
+    assertEquals(0, meterRegistry.get("storage.reads.hedged").counter().count(), 0);
+  }
+
+  /** Test that a slow read is sent again and the faster copy is used. */
+  @Test
+  public void T_downloadFile_Hedged() {
+    ByteArrayOutputStream slow = new ByteArrayOutputStream();
+    ByteArrayOutputStream fast = new ByteArrayOutputStream();
+    AtomicInteger calls = new AtomicInteger();
+    when(backend.downloadFile("shot.png"))
+        .thenAnswer(
+            invocation -> {
+              if (calls.incrementAndGet() == 1) {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(5));
+                return slow;
+              }
+              return fast;
+            });
+
+    long started = System.nanoTime();
+    assertSame(fast, classUnderTest.downloadFile("shot.png"));
+    assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(4));
+    assertEquals(1, meterRegistry.get("storage.reads.hedged").counter().count(), 0);
+    assertEquals(1, meterRegistry.get("storage.reads.hedge.wins").counter().count(), 0);
+  }
+
+  /**
+   * Test that a screenshot missing from the read cache is hedged in the storage stack as it is
+   * configured, where the cache loads missed objects by opening them, and that the copy which loses
+   * is closed.
+   */
+  @Test
+  public void T_downloadFile_HedgedBehindCache() {
+    StorageConfig config = new StorageConfig();
+    ReflectionTestUtils.setField(config, "hedgeReads", true);
+    ReflectionTestUtils.setField(config, "hedgeInitialDelayMs", 20L);
+    ReflectionTestUtils.setField(config, "hedgeMinDelayMs", 5L);
+    ReflectionTestUtils.setField(config, "cacheMaxBytes", 1_000_000L);
+    ReflectionTestUtils.setField(config, "cacheMaxObjectBytes", 1_000_000L);
+    StorageService storage =
+        config.storageService(
+            backend, Mockito.mock(ObjectReferenceCounter.class), executor, meterRegistry);
+    byte[] content = "screenshot".getBytes(StandardCharsets.UTF_8);
+    when(backend.getMetadata("shot.png"))
+        .thenReturn(new StorageMetadata("shot.png", content.length, "image/png", "abc"));
+    StorageObject slow = Mockito.spy(screenShot(content));
+    AtomicInteger calls = new AtomicInteger();
+    when(backend.openStream("shot.png"))
+        .thenAnswer(
+            invocation -> {
+              if (calls.incrementAndGet() == 1) {
+                Thread.sleep(500);
+                return slow;
+              }
+              return screenShot(content);
+            });
+
+    assertArrayEquals(content, storage.downloadFile("shot.png").toByteArray());
+    verify(backend, times(2)).openStream("shot.png");
+    assertEquals(1, meterRegistry.get("storage.reads.hedged").counter().count(), 0);
+    assertArrayEquals(content, storage.downloadFile("shot.png").toByteArray());
+    verify(backend, times(2)).openStream("shot.png");
+    verify(slow, Mockito.timeout(5000)).close();
+  }
+
+  /** Test that opening an object larger than the cap is not hedged, however slow. */
+  @Test
+  public void T_openStream_LargeObjectNotHedged() {
+    byte[] content = "archive".getBytes(StandardCharsets.UTF_8);
+    when(backend.getMetadata("repo.zip"))
+        .thenReturn(new StorageMetadata("repo.zip", 5_000_000_000L, "application/zip", "abc"));
+    when(backend.openStream("repo.zip"))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(200);
+              return screenShot(content);
+            });
+
+    classUnderTest.openStream("repo.zip");
+
+    verify(backend, times(1)).openStream("repo.zip");
+    assertEquals(0, meterRegistry.get("storage.reads.hedged").counter().count(), 0);
+  }
+
+  /** Test that each kind of read is timed apart, so downloads do not delay hedged lookups. */
+  @Test
+  public void T_downloadFile_TimedApart() {
+    when(backend.downloadFile("shot.png")).thenReturn(new ByteArrayOutputStream());
+
+    classUnderTest.downloadFile("shot.png");
+
+    assertEquals(1, readTimer("download").count());
+    assertEquals(0, readTimer("metadata").count());
+  }
+
+  /** Test that a failed read surfaces the backend's own exception. */
+  @Test(expected = IllegalArgumentException.class)
+  public void T_getMetadata_Failure() {
+    when(backend.getMetadata("missing.png")).thenThrow(new IllegalArgumentException("missing"));
+
+    classUnderTest.getMetadata("missing.png");
+  }
+
+  private Timer readTimer(String operation) {
+    return meterRegistry.get("storage.reads").tag("operation", operation).timer();
+  }
+
+  private StorageObject screenShot(byte[] content) {
+    return new StorageObject(
+        "shot.png", content.length, "image/png", new ByteArrayInputStream(content));
+  }
+}
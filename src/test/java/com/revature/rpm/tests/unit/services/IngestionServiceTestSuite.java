@@ -0,0 +1,320 @@
+package com.revature.rpm.tests.unit.services;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.revature.rpm.dtos.ProjectDTO;
+import com.revature.rpm.entities.IngestionAsset;
+import com.revature.rpm.entities.IngestionJob;
+import com.revature.rpm.exceptions.FileSizeTooLargeException;
+import com.revature.rpm.exceptions.ProjectNotAddedException;
+import com.revature.rpm.exceptions.ProjectNotFoundException;
+import com.revature.rpm.repositories.IngestionJobRepository;
+import com.revature.rpm.services.IngestionJobLeases;
+import com.revature.rpm.services.IngestionService;
+import com.revature.rpm.services.ProjectService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Test suite for IngestionService. */
+public class IngestionServiceTestSuite {
+
+  private ProjectService projectService = mock(ProjectService.class);
+
+  // A simulated IngestionJobRepository, keeping saved jobs in memory
+  private IngestionJobRepository jobRepository = mock(IngestionJobRepository.class);
+
+  private Map<String, IngestionJob> jobs = new HashMap<>();
+
+  // Claims always succeed unless a test says otherwise
+  private IngestionJobLeases jobLeases = mock(IngestionJobLeases.class);
+
+  // Jobs are queued here instead of running, so a test decides when they run
+  private List<Runnable> queued = new ArrayList<>();
+
+  private IngestionService classUnderTest;
+
+  @Before
+  public void setup() {
+    when(jobRepository.save(any()))
+        .thenAnswer(
+            invocation -> {
+              IngestionJob job = invocation.getArgument(0);
+              if (job.getId() == null) {
+                job.setId("job-" + jobs.size());
+              }
+              jobs.put(job.getId(), job);
+              return job;
+            });
+    when(jobRepository.findById(anyString()))
+        .thenAnswer(invocation -> Optional.ofNullable(jobs.get(invocation.getArgument(0))));
+    when(jobLeases.claim(anyString(), anyString(), anyLong()))
+        .thenAnswer(invocation -> jobs.get(invocation.getArgument(0)));
+    when(jobLeases.saveProgress(any(), anyString(), anyLong()))
+        .thenAnswer(
+            invocation -> {
+              IngestionJob job = invocation.getArgument(0);
+              jobs.put(job.getId(), job);
+              return true;
+            });
+    classUnderTest = new IngestionService(projectService, jobRepository, jobLeases, queued::add);
+  }
+
+  /** Test that a submission saves the project and answers with a queued job for each repo. */
+  @Test
+  public void T_submit_QueuesJob() {
+    ProjectDTO projectDTO = projectDTO("repo1", "repo2");
+    IngestionJob job = classUnderTest.submit(projectDTO);
+
+    assertEquals(IngestionJob.QUEUED, job.getStatus());
+    assertNotNull(job.getOwner());
+    verify(projectService).createIngestingProject(job.getProjectId(), projectDTO);
+    assertEquals(2, job.getAssets().size());
+    assertEquals("repo1", job.getAssets().get(0).getSource());
+    assertEquals(IngestionAsset.PENDING, job.getAssets().get(1).getStatus());
+    assertEquals(1, queued.size());
+    verify(projectService, never()).storeZipArchive(anyString());
+  }
+
+  /**
+   * Test that a job stores every archive and completes the project with them in submission order,
+   * though the first archive is the last to be stored.
+   */
+  @Test
+  public void T_run_CompletesProject() {
+    CompletableFuture<List<String>> slow = new CompletableFuture<>();
+    when(projectService.storeZipArchive("repo1")).thenReturn(slow);
+    when(projectService.storeZipArchive("repo2"))
+        .thenReturn(CompletableFuture.completedFuture(Collections.singletonList("zip2")));
+    IngestionJob job = submit("repo1", "repo2");
+    CompletableFuture.runAsync(
+        () -> {
+          sleep(100);
+          slow.complete(Collections.singletonList("zip1"));
+        });
+    queued.get(0).run();
+
+    assertEquals(IngestionJob.COMPLETED, job.getStatus());
+    assertEquals(IngestionAsset.DONE, job.getAssets().get(0).getStatus());
+    assertEquals("zip1", job.getAssets().get(0).getLink());
+    verify(projectService).completeIngestion(job.getProjectId(), Arrays.asList("zip1", "zip2"));
+  }
+
+  /** Test that an archive that cannot be downloaded is left out, as it is synchronously. */
+  @Test
+  public void T_run_SkipsMissingArchive() {
+    when(projectService.storeZipArchive("repo1"))
+        .thenReturn(CompletableFuture.completedFuture(Collections.emptyList()));
+    when(projectService.storeZipArchive("repo2"))
+        .thenReturn(CompletableFuture.completedFuture(Collections.singletonList("zip2")));
+    IngestionJob job = submit("repo1", "repo2");
+    queued.get(0).run();
+
+    assertEquals(IngestionJob.COMPLETED, job.getStatus());
+    assertEquals(IngestionAsset.SKIPPED, job.getAssets().get(0).getStatus());
+    verify(projectService).completeIngestion(job.getProjectId(), Arrays.asList("zip2"));
+  }
+
+  /** Test that an oversized archive fails the job and removes what was stored for the project. */
+  @Test
+  public void T_run_FailsOnOversizedArchive() {
+    CompletableFuture<List<String>> oversized = new CompletableFuture<>();
+    oversized.completeExceptionally(new FileSizeTooLargeException("too large"));
+    when(projectService.storeZipArchive("repo1")).thenReturn(oversized);
+    when(projectService.storeZipArchive("repo2"))
+        .thenReturn(CompletableFuture.completedFuture(Collections.singletonList("zip2")));
+    IngestionJob job = submit("repo1", "repo2");
+    queued.get(0).run();
+
+    assertEquals(IngestionJob.FAILED, job.getStatus());
+    assertEquals("repo1: too large", job.getMessage());
+    assertEquals(IngestionAsset.FAILED, job.getAssets().get(0).getStatus());
+    assertEquals("too large", job.getAssets().get(0).getMessage());
+    verify(projectService).abandonIngestion(job.getProjectId(), Arrays.asList("zip2"));
+    verify(projectService, never()).completeIngestion(anyString(), anyList());
+  }
+
+  /** Test that a project that cannot be completed fails its job. */
+  @Test
+  public void T_run_FailsOnInvalidProject() {
+    when(projectService.storeZipArchive("repo1"))
+        .thenReturn(CompletableFuture.completedFuture(Collections.emptyList()));
+    when(projectService.completeIngestion(anyString(), eq(Collections.emptyList())))
+        .thenThrow(new ProjectNotAddedException("Empty/Invalid fields found on project"));
+    IngestionJob job = submit("repo1");
+    queued.get(0).run();
+
+    assertEquals(IngestionJob.FAILED, job.getStatus());
+    assertEquals("Empty/Invalid fields found on project", job.getMessage());
+    verify(projectService).abandonIngestion(job.getProjectId(), Collections.emptyList());
+  }
+
+  /** Test that jobs left unfinished are run again, without storing what they already stored. */
+  @Test
+  public void T_resume_RunsUnfinishedJobs() {
+    IngestionJob job = new IngestionJob();
+    job.setId("job-7");
+    job.setProjectId("p7");
+    job.setStatus(IngestionJob.RUNNING);
+    IngestionAsset done = new IngestionAsset("repo1");
+    done.setStatus(IngestionAsset.DONE);
+    done.setLink("zip1");
+    IngestionAsset interrupted = new IngestionAsset("repo2");
+    interrupted.setStatus(IngestionAsset.RUNNING);
+    job.setAssets(Arrays.asList(done, interrupted));
+    jobs.put(job.getId(), job);
+    when(jobRepository.findByStatusIn(anyList())).thenReturn(Arrays.asList(job));
+    when(projectService.storeZipArchive("repo2"))
+        .thenReturn(CompletableFuture.completedFuture(Collections.singletonList("zip2")));
+
+    classUnderTest.resume();
+    queued.get(0).run();
+
+    assertEquals(IngestionJob.COMPLETED, job.getStatus());
+    verify(projectService, never()).storeZipArchive("repo1");
+    verify(projectService).completeIngestion("p7", Arrays.asList("zip1", "zip2"));
+  }
+
+  /** Test that a job another instance has claimed is left to it. */
+  @Test
+  public void T_resume_SkipsJobClaimedElsewhere() {
+    IngestionJob job = new IngestionJob();
+    job.setId("job-7");
+    job.setStatus(IngestionJob.QUEUED);
+    when(jobRepository.findByStatusIn(anyList())).thenReturn(Arrays.asList(job));
+    when(jobLeases.claim(eq("job-7"), anyString(), anyLong())).thenReturn(null);
+
+    classUnderTest.resume();
+
+    assertTrue(queued.isEmpty());
+  }
+
+  /** Test that a job this instance is already running is not queued again, only renewed. */
+  @Test
+  public void T_resume_RenewsRunningJob() {
+    IngestionJob job = submit("repo1");
+    when(jobRepository.findByStatusIn(anyList())).thenReturn(Arrays.asList(job));
+
+    classUnderTest.resume();
+
+    assertEquals(1, queued.size());
+    verify(jobLeases).claim(eq(job.getId()), eq(job.getOwner()), anyLong());
+  }
+
+  /** Test that the job is saved before its project, and removed if the project is rejected. */
+  @Test
+  public void T_submit_SavesJobBeforeProject() {
+    ProjectDTO projectDTO = projectDTO("repo1");
+    when(projectService.createIngestingProject(anyString(), eq(projectDTO)))
+        .thenAnswer(
+            invocation -> {
+              assertEquals(1, jobs.size());
+              throw new ProjectNotAddedException("Empty/Invalid fields found on project");
+            });
+
+    assertThatExceptionOfType(ProjectNotAddedException.class)
+        .isThrownBy(() -> classUnderTest.submit(projectDTO));
+    verify(jobRepository).deleteById("job-0");
+    assertTrue(queued.isEmpty());
+  }
+
+  /** Test that a job the ingestion pool has no room for stays queued for any instance to run. */
+  @Test
+  public void T_submit_KeepsRejectedJobQueued() {
+    classUnderTest =
+        new IngestionService(
+            projectService,
+            jobRepository,
+            jobLeases,
+            command -> {
+              throw new RejectedExecutionException("full");
+            });
+
+    IngestionJob job = submit("repo1");
+
+    assertEquals(IngestionJob.QUEUED, job.getStatus());
+    verify(jobLeases).release(job.getId(), job.getOwner());
+    verify(projectService, never()).storeZipArchive(anyString());
+  }
+
+  /** Test that an unexpected error fails the job instead of leaving it running. */
+  @Test
+  public void T_run_FailsOnUnexpectedError() {
+    when(projectService.storeZipArchive("repo1"))
+        .thenReturn(CompletableFuture.completedFuture(Collections.singletonList("zip1")));
+    when(projectService.storeZipArchive("repo2")).thenThrow(new IllegalStateException("broken"));
+    IngestionJob job = submit("repo1", "repo2");
+    queued.get(0).run();
+
+    assertEquals(IngestionJob.FAILED, job.getStatus());
+    assertEquals("broken", job.getMessage());
+    verify(projectService).abandonIngestion(job.getProjectId(), Arrays.asList("zip1"));
+  }
+
+  /** Test that a job stops, leaving the project alone, once another instance has claimed it. */
+  @Test
+  public void T_run_StopsOnceClaimedElsewhere() {
+    IngestionJob job = submit("repo1");
+    when(jobLeases.saveProgress(any(), anyString(), anyLong())).thenReturn(false);
+    queued.get(0).run();
+
+    verify(jobLeases).saveProgress(job, job.getOwner(), 300_000L);
+    verify(projectService, never()).storeZipArchive(anyString());
+    verify(projectService, never()).abandonIngestion(anyString(), anyList());
+    verify(projectService, never()).completeIngestion(anyString(), anyList());
+  }
+
+  /** Test that a job that has already finished is not run again. */
+  @Test
+  public void T_run_SkipsFinishedJob() {
+    IngestionJob job = submit("repo1");
+    job.setStatus(IngestionJob.COMPLETED);
+    queued.get(0).run();
+
+    verify(projectService, never()).storeZipArchive(anyString());
+    assertNull(job.getMessage());
+  }
+
+  /** Test that looking up a job that does not exist throws ProjectNotFoundException. */
+  @Test(expected = ProjectNotFoundException.class)
+  public void T_findById_Missing() {
+    classUnderTest.findById("missing");
+  }
+
+  private IngestionJob submit(String... zipLinks) {
+    return classUnderTest.submit(projectDTO(zipLinks));
+  }
+
+  private ProjectDTO projectDTO(String... zipLinks) {
+    return new ProjectDTO.ProjectDTOBuilder().setZipLinks(Arrays.asList(zipLinks)).build();
+  }
+
+  private void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
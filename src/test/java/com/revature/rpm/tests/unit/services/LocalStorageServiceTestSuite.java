@@ -0,0 +1,229 @@
+package com.revature.rpm.tests.unit.services;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.revature.rpm.exceptions.BadRequestException;
+import com.revature.rpm.services.LocalStorageServiceImpl;
+import com.revature.rpm.services.StorageMetadata;
+import com.revature.rpm.services.StorageObject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+/** Test suite for LocalStorageServiceImpl. */
+public class LocalStorageServiceTestSuite {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private LocalStorageServiceImpl classUnderTest;
+
+  /** Points the service at an empty directory before each test. */
+  @Before
+  public void setup() throws IOException {
+    classUnderTest = new LocalStorageServiceImpl();
+    ReflectionTestUtils.setField(
+        classUnderTest, "rootDirectory", folder.newFolder("storage").getAbsolutePath());
+    ReflectionTestUtils.setField(classUnderTest, "mmapThreshold", 1024L);
+    classUnderTest.init();
+  }
+
+  /** Test that a small object stored from a stream reads back unchanged. */
+  @Test
+  public void T_storeStream_RoundTrip() throws IOException {
+    byte[] content = randomBytes(100);
+    String link =
+        classUnderTest.store("small.sql", new ByteArrayInputStream(content), 100, "text/plain");
+
+    assertTrue(link.endsWith("/small.sql"));
+    assertArrayEquals(content, read("small.sql"));
+  }
+
+  /** Test that an object above the mmap threshold reads back unchanged through the mapping. */
+  @Test
+  public void T_storeFile_MappedRoundTrip() throws IOException {
+    byte[] content = randomBytes(64 * 1024);
+    File file = folder.newFile("archive.zip");
+    Files.write(file.toPath(), content);
+
+    classUnderTest.store(file);
+
+    assertArrayEquals(content, read("archive.zip"));
+    assertArrayEquals(content, classUnderTest.downloadFile("archive.zip").toByteArray());
+  }
+
+  /** Test that storing under an existing key replaces the object and leaves no temp files. */
+  @Test
+  public void T_store_ReplacesExisting() throws IOException {
+    classUnderTest.store("model.sql", new ByteArrayInputStream(new byte[] {1, 2, 3}), 3, null);
+    classUnderTest.store("model.sql", new ByteArrayInputStream(new byte[] {4, 5}), 2, null);
+
+    assertArrayEquals(new byte[] {4, 5}, read("model.sql"));
+    assertEquals(1, folder.getRoot().toPath().resolve("storage").toFile().list().length);
+  }
+
+  /** Test that ranged reads return exactly the requested bytes, mapped or not. */
+  @Test
+  public void T_openStreamRange_ReadsRequestedBytes() throws IOException {
+    byte[] content = randomBytes(8 * 1024);
+    classUnderTest.store(
+        "archive.zip", new ByteArrayInputStream(content), content.length, "application/zip");
+
+    assertArrayEquals(Arrays.copyOfRange(content, 10, 20), read("archive.zip", 10, 19));
+    assertArrayEquals(
+        Arrays.copyOfRange(content, 2048, content.length), read("archive.zip", 2048, 99999));
+    assertEquals(content.length, classUnderTest.getMetadata("archive.zip").getContentLength());
+  }
+
+  /** Test that the encoding of compressed content is kept with the object until it is replaced. */
+  @Test
+  public void T_storeEncoded_RoundTrip() throws IOException {
+    classUnderTest.store(
+        new StorageMetadata("model.sql", 3, "text/plain", null, -1, "gzip", 10),
+        new ByteArrayInputStream(new byte[] {1, 2, 3}));
+
+    StorageMetadata metadata = classUnderTest.getMetadata("model.sql");
+    assertEquals("gzip", metadata.getContentEncoding());
+    assertEquals(3, metadata.getContentLength());
+    assertEquals(10, metadata.getDecodedLength());
+
+    classUnderTest.store("model.sql", new ByteArrayInputStream(new byte[] {4, 5}), 2, null);
+    assertNull(classUnderTest.getMetadata("model.sql").getContentEncoding());
+    assertEquals(1, folder.getRoot().toPath().resolve("storage").toFile().list().length);
+  }
+
+  /** Test that a failed write leaves the previous object's encoding in place. */
+  @Test
+  public void T_storeEncoded_FailedWriteKeepsEncoding() throws IOException {
+    classUnderTest.store(
+        new StorageMetadata("model.sql", 3, "text/plain", null, -1, "gzip", 10),
+        new ByteArrayInputStream(new byte[] {1, 2, 3}));
+
+    assertThatExceptionOfType(UncheckedIOException.class)
+        .isThrownBy(
+            () ->
+                classUnderTest.store(
+                    new StorageMetadata("model.sql", 5, "text/plain", null, -1, "br", 20),
+                    new ByteArrayInputStream(new byte[] {4})));
+    StorageMetadata metadata = classUnderTest.getMetadata("model.sql");
+    assertEquals("gzip", metadata.getContentEncoding());
+    assertEquals(10, metadata.getDecodedLength());
+    assertArrayEquals(new byte[] {1, 2, 3}, read("model.sql"));
+  }
+
+  /** Test that storing a file as is drops the encoding of the object it replaces. */
+  @Test
+  public void T_storeFile_ClearsEncoding() throws IOException {
+    classUnderTest.store(
+        new StorageMetadata("model.sql", 3, "text/plain", null, -1, "gzip", 10),
+        new ByteArrayInputStream(new byte[] {1, 2, 3}));
+    File file = folder.newFile("model.sql");
+    Files.write(file.toPath(), new byte[] {4, 5});
+
+    classUnderTest.store(file);
+
+    assertNull(classUnderTest.getMetadata("model.sql").getContentEncoding());
+    assertEquals(1, folder.getRoot().toPath().resolve("storage").toFile().list().length);
+  }
+
+  /** Test that a link ends in the key as it is, so a key with a space can be read back by it. */
+  @Test
+  public void T_store_LinkEndsInKey() throws IOException {
+    String link =
+        classUnderTest.store(
+            "Screen Shot 1.png", new ByteArrayInputStream(new byte[] {1, 2}), 2, "image/png");
+
+    String key = link.substring(link.lastIndexOf('/') + 1);
+    assertEquals("Screen Shot 1.png", key);
+    assertArrayEquals(new byte[] {1, 2}, read(key));
+  }
+
+  /** Test that content shorter than its declared length is rejected rather than truncated. */
+  @Test
+  public void T_store_RejectsShortContent() {
+    assertThatExceptionOfType(UncheckedIOException.class)
+        .isThrownBy(
+            () ->
+                classUnderTest.store(
+                    "model.sql", new ByteArrayInputStream(new byte[50]), 100, "text/plain"));
+    assertEquals(0, folder.getRoot().toPath().resolve("storage").toFile().list().length);
+  }
+
+  /** Test that content delivered a few bytes per read is copied to its end. */
+  @Test
+  public void T_store_CopiesSlowStream() throws IOException {
+    byte[] content = randomBytes(10_000);
+    InputStream slow =
+        new ByteArrayInputStream(content) {
+          @Override
+          public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 7));
+          }
+        };
+
+    classUnderTest.store("slow.sql", slow, content.length, "text/plain");
+
+    assertArrayEquals(content, read("slow.sql"));
+  }
+
+  /** Test that an upload that cannot be read fails the store instead of returning no link. */
+  @Test
+  public void T_storeMultipart_FailsOnUnreadableUpload() throws IOException {
+    MultipartFile upload = Mockito.mock(MultipartFile.class);
+    Mockito.when(upload.getOriginalFilename()).thenReturn("shot.png");
+    Mockito.when(upload.getInputStream()).thenThrow(new IOException("connection reset"));
+
+    assertThatExceptionOfType(UncheckedIOException.class)
+        .isThrownBy(() -> classUnderTest.store(upload));
+  }
+
+  /** Test that keys that would escape the storage directory are rejected. */
+  @Test
+  public void T_store_RejectsTraversal() {
+    assertThatExceptionOfType(BadRequestException.class)
+        .isThrownBy(
+            () ->
+                classUnderTest.store(
+                    "../escaped.sql", new ByteArrayInputStream(new byte[] {1}), 1, null));
+  }
+
+  private byte[] read(String key, long first, long last) throws IOException {
+    try (StorageObject object = classUnderTest.openStream(key, first, last)) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      object.transferTo(out);
+      assertEquals(object.getContentLength(), out.size());
+      return out.toByteArray();
+    }
+  }
+
+  private byte[] read(String key) throws IOException {
+    try (StorageObject object = classUnderTest.openStream(key)) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      object.transferTo(out);
+      assertEquals(object.getContentLength(), out.size());
+      return out.toByteArray();
+    }
+  }
+
+  private byte[] randomBytes(int length) {
+    byte[] bytes = new byte[length];
+    new Random(length).nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,176 @@
+package com.revature.rpm.tests.unit.services;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.revature.rpm.dtos.SweepReport;
+import com.revature.rpm.entities.Project;
+import com.revature.rpm.repositories.ProjectRepository;
+import com.revature.rpm.services.LocalStorageServiceImpl;
+import com.revature.rpm.services.OrphanedObjectSweeper;
+import com.revature.rpm.services.StorageMetadata;
+import com.revature.rpm.services.StorageService;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/** Test suite for OrphanedObjectSweeper. */
+public class OrphanedObjectSweeperTestSuite {
+
+  private static final long OLD = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(7);
+
+  private ProjectRepository projectRepository = Mockito.mock(ProjectRepository.class);
+
+  private StorageService storage = Mockito.mock(StorageService.class);
+
+  private OrphanedObjectSweeper classUnderTest;
+
+  private List<StorageMetadata> stored = new ArrayList<>();
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    classUnderTest = new OrphanedObjectSweeper(projectRepository, storage);
+    ReflectionTestUtils.setField(classUnderTest, "minAgeHours", 24L);
+    ReflectionTestUtils.setField(classUnderTest, "batchSize", 2);
+    ReflectionTestUtils.setField(classUnderTest, "deletesPerSecond", 1_000_000);
+
+    Project oldVersion = new Project();
+    oldVersion.setScreenShots(Arrays.asList("https://bucket.s3.amazonaws.com/old.png"));
+    Project project = new Project();
+    project.setScreenShots(Arrays.asList("https://bucket.s3.amazonaws.com/shot.png"));
+    project.setOldProject(oldVersion);
+    when(projectRepository.findAllAssetLinks()).thenReturn(Collections.singletonList(project));
+
+    doAnswer(
+            invocation -> {
+              stored.forEach(invocation.<Consumer<StorageMetadata>>getArgument(0));
+              return null;
+            })
+        .when(storage)
+        .listObjects(any(Consumer.class));
+  }
+
+  /** Test that a dry run reports orphans without deleting anything. */
+  @Test
+  public void T_sweep_DryRun() {
+    stored.add(new StorageMetadata("shot.png", 10, "image/png", "a", OLD));
+    stored.add(new StorageMetadata("lost.png", 20, "image/png", "b", OLD));
+
+    SweepReport report = classUnderTest.sweep(true);
+
+    assertEquals(2, report.getScannedObjects());
+    assertEquals(1, report.getOrphanedObjects());
+    assertEquals(20, report.getOrphanedBytes());
+    assertEquals(Collections.singletonList("lost.png"), report.getSampleOrphans());
+    assertEquals(0, report.getDeletedObjects());
+    verify(storage, never()).deleteOrphans(anyCollection(), anyLong());
+  }
+
+  /** Test that orphans are deleted in batches. */
+  @Test
+  public void T_sweep_DeletesInBatches() {
+    stored.add(new StorageMetadata("a.zip", 1, "application/zip", "a", OLD));
+    stored.add(new StorageMetadata("b.zip", 1, "application/zip", "b", OLD));
+    stored.add(new StorageMetadata("c.zip", 1, "application/zip", "c", OLD));
+
+    SweepReport report = classUnderTest.sweep(false);
+
+    assertEquals(3, report.getDeletedObjects());
+    verify(storage).deleteOrphans(eq(Arrays.asList("a.zip", "b.zip")), anyLong());
+    verify(storage).deleteOrphans(eq(Collections.singletonList("c.zip")), anyLong());
+  }
+
+  /** Test that referenced, recent and undated objects are all kept. */
+  @Test
+  public void T_sweep_KeepsReferencedAndRecent() {
+    stored.add(new StorageMetadata("old.png", 1, "image/png", "a", OLD));
+    stored.add(new StorageMetadata("new.png", 1, "image/png", "b", System.currentTimeMillis()));
+    stored.add(new StorageMetadata("undated.png", 1, "image/png", "c"));
+
+    SweepReport report = classUnderTest.sweep(false);
+
+    assertEquals(3, report.getScannedObjects());
+    assertEquals(0, report.getOrphanedObjects());
+    verify(storage, never()).deleteOrphans(anyCollection(), anyLong());
+  }
+
+  /** Test that a failed batch is counted and does not stop the sweep. */
+  @Test
+  public void T_sweep_FailedBatch() {
+    stored.add(new StorageMetadata("a.zip", 1, "application/zip", "a", OLD));
+    stored.add(new StorageMetadata("b.zip", 1, "application/zip", "b", OLD));
+    stored.add(new StorageMetadata("c.zip", 1, "application/zip", "c", OLD));
+    Mockito.doThrow(new IllegalStateException("throttled"))
+        .when(storage)
+        .deleteOrphans(eq(Arrays.asList("a.zip", "b.zip")), anyLong());
+
+    SweepReport report = classUnderTest.sweep(false);
+
+    assertEquals(2, report.getFailedDeletes());
+    assertEquals(1, report.getDeletedObjects());
+    assertSame(report, classUnderTest.getLastReport());
+  }
+
+  /**
+   * Test that an object whose key has a space is seen as referenced through the link the local
+   * backend returned for it, and is kept.
+   */
+  @Test
+  public void T_sweep_KeepsKeyWithSpace() throws IOException {
+    LocalStorageServiceImpl local = new LocalStorageServiceImpl();
+    ReflectionTestUtils.setField(
+        local, "rootDirectory", folder.newFolder("storage").getAbsolutePath());
+    ReflectionTestUtils.setField(local, "mmapThreshold", 1024L);
+    local.init();
+    String link =
+        local.store("Screen Shot 1.png", new ByteArrayInputStream(new byte[] {1}), 1, "image/png");
+    local.store("lost.png", new ByteArrayInputStream(new byte[] {2}), 1, "image/png");
+    Project project = new Project();
+    project.setScreenShots(Collections.singletonList(link));
+    when(projectRepository.findAllAssetLinks()).thenReturn(Collections.singletonList(project));
+    OrphanedObjectSweeper sweeper = new OrphanedObjectSweeper(projectRepository, local);
+    // a negative grace period makes every object old enough to sweep
+    ReflectionTestUtils.setField(sweeper, "minAgeHours", -1L);
+    ReflectionTestUtils.setField(sweeper, "batchSize", 10);
+    ReflectionTestUtils.setField(sweeper, "deletesPerSecond", 1_000_000);
+
+    SweepReport report = sweeper.sweep(false);
+
+    assertEquals(Collections.singletonList("lost.png"), report.getSampleOrphans());
+    assertTrue(local.exists("Screen Shot 1.png"));
+    assertFalse(local.exists("lost.png"));
+  }
+
+  /** Test that a pace of zero deletes per second is rejected when the sweeper is set up. */
+  @Test
+  public void T_init_RejectsZeroDeletesPerSecond() {
+    ReflectionTestUtils.setField(classUnderTest, "deletesPerSecond", 0);
+
+    assertThatExceptionOfType(IllegalStateException.class).isThrownBy(classUnderTest::init);
+  }
+}
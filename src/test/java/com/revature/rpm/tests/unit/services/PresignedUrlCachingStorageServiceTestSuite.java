@@ -0,0 +1,55 @@
+package com.revature.rpm.tests.unit.services;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.revature.rpm.services.PresignedUrlCachingStorageService;
+import com.revature.rpm.services.StorageService;
+import java.net.MalformedURLException;
+import java.net.URL;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/** Test suite for PresignedUrlCachingStorageService. */
+public class PresignedUrlCachingStorageServiceTestSuite {
+
+  private StorageService backend = Mockito.mock(StorageService.class);
+
+  /** Test that a URL is signed once and then reused while it is fresh. */
+  @Test
+  public void T_presignedUrl_Reused() throws MalformedURLException {
+    URL presigned = new URL("https://bucket.s3.amazonaws.com/repo.zip?X-Amz-Signature=abc");
+    when(backend.presignedUrl("repo.zip")).thenReturn(presigned);
+    PresignedUrlCachingStorageService classUnderTest =
+        new PresignedUrlCachingStorageService(backend, 300, 60);
+
+    assertSame(presigned, classUnderTest.presignedUrl("repo.zip"));
+    assertSame(presigned, classUnderTest.presignedUrl("repo.zip"));
+    verify(backend, times(1)).presignedUrl("repo.zip");
+  }
+
+  /** Test that URLs whose safety margin covers their whole lifetime are never reused. */
+  @Test
+  public void T_presignedUrl_NotReusedWithinMargin() throws MalformedURLException {
+    when(backend.presignedUrl("repo.zip"))
+        .thenReturn(new URL("https://bucket.s3.amazonaws.com/repo.zip?X-Amz-Signature=abc"));
+    PresignedUrlCachingStorageService classUnderTest =
+        new PresignedUrlCachingStorageService(backend, 60, 60);
+
+    classUnderTest.presignedUrl("repo.zip");
+    classUnderTest.presignedUrl("repo.zip");
+    verify(backend, times(2)).presignedUrl("repo.zip");
+  }
+
+  /** Test that a backend that cannot presign URLs leaves downloads unredirected. */
+  @Test
+  public void T_presignedUrl_Unsupported() {
+    PresignedUrlCachingStorageService classUnderTest =
+        new PresignedUrlCachingStorageService(backend, 300, 60);
+
+    assertNull(classUnderTest.presignedUrl("repo.zip"));
+  }
+}
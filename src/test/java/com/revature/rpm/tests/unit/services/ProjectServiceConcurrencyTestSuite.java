@@ -0,0 +1,231 @@
+package com.revature.rpm.tests.unit.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import com.revature.rpm.entities.Project;
+import com.revature.rpm.repositories.ProjectRepository;
+import com.revature.rpm.services.AsyncStorageServiceImpl;
+import com.revature.rpm.services.CompressingStorageService;
+import com.revature.rpm.services.FileService;
+import com.revature.rpm.services.LocalStorageServiceImpl;
+import com.revature.rpm.services.ObjectSequence;
+import com.revature.rpm.services.ProjectService;
+import com.revature.rpm.services.ScreenShotNormalizer;
+import com.revature.rpm.services.StorageService;
+import com.revature.rpm.services.ThumbnailService;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Stress test for the download paths of ProjectService. Many downloads of different projects are
+ * started at once against real storage, and each must receive exactly its own project's bytes.
+ */
+public class ProjectServiceConcurrencyTestSuite {
+
+  private static final int PROJECTS = 16;
+
+  private static final int DOWNLOADS = 320;
+
+  private static final byte[] SEPARATOR = "\nENDOFFILE".getBytes(StandardCharsets.UTF_8);
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private ProjectRepository repo = Mockito.mock(ProjectRepository.class);
+
+  // The pool storage is read on, kept apart from the downloads so they cannot starve it
+  private ExecutorService storageExecutor;
+
+  // The pool the simultaneous downloads run on
+  private ExecutorService downloadExecutor;
+
+  private ProjectService classUnderTest;
+
+  // The bytes each object was stored with, by key
+  private Map<String, byte[]> stored = new HashMap<>();
+
+  // The expected data model download of each project, by id
+  private Map<String, byte[]> dataModels = new HashMap<>();
+
+  // The expected screenshot download of each project, by id
+  private Map<String, byte[]> screenShots = new HashMap<>();
+
+  /** Stores two data models and two screenshots for each project before each test. */
+  @Before
+  public void setup() throws IOException {
+    LocalStorageServiceImpl local = new LocalStorageServiceImpl();
+    ReflectionTestUtils.setField(
+        local, "rootDirectory", folder.newFolder("storage").getAbsolutePath());
+    ReflectionTestUtils.setField(local, "mmapThreshold", 4096L);
+    local.init();
+    StorageService storage = new CompressingStorageService(local, 1024 * 1024);
+    storageExecutor = Executors.newFixedThreadPool(8);
+    downloadExecutor = Executors.newFixedThreadPool(32);
+    AsyncStorageServiceImpl asyncStorage = new AsyncStorageServiceImpl(storage, storageExecutor);
+    classUnderTest =
+        new ProjectService(
+            repo,
+            Mockito.mock(MongoOperations.class),
+            storage,
+            asyncStorage,
+            Mockito.mock(FileService.class),
+            new ThumbnailService(storage, storageExecutor, new int[] {64}),
+            new ScreenShotNormalizer(asyncStorage, storageExecutor),
+            storageExecutor,
+            storageExecutor);
+
+    Random random = new Random(42);
+    for (int p = 0; p < PROJECTS; p++) {
+      String id = "project-" + p;
+      Project project = new Project();
+      List<String> models = new ArrayList<>();
+      List<String> shots = new ArrayList<>();
+      ByteArrayOutputStream modelDownload = new ByteArrayOutputStream();
+      ByteArrayOutputStream shotDownload = new ByteArrayOutputStream();
+      for (int i = 0; i < 2; i++) {
+        byte[] model = dataModel(random, p);
+        models.add(store(storage, id + "-" + i + ".sql", "text/plain", model));
+        modelDownload.write(model);
+        modelDownload.write(SEPARATOR);
+
+        byte[] shot = new byte[1000 + random.nextInt(8000)];
+        random.nextBytes(shot);
+        shots.add(store(storage, id + "-" + i + ".png", "image/png", shot));
+        shotDownload.write(shot);
+      }
+      project.setDataModel(models);
+      project.setScreenShots(shots);
+      dataModels.put(id, modelDownload.toByteArray());
+      screenShots.put(id, shotDownload.toByteArray());
+      when(repo.findById(id)).thenReturn(Optional.of(project));
+    }
+  }
+
+  /** Shuts down the pools after each test. */
+  @After
+  public void tearDown() {
+    downloadExecutor.shutdownNow();
+    storageExecutor.shutdownNow();
+  }
+
+  /**
+   * Test that simultaneous downloads of different projects, through every download path, each
+   * receive their own project's bytes and nothing else.
+   */
+  @Test
+  public void T_concurrentDownloads_ByteForByte() throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> results = new ArrayList<>();
+    for (int i = 0; i < DOWNLOADS; i++) {
+      String id = "project-" + (i % PROJECTS);
+      int path = (i / PROJECTS) % 5;
+      results.add(
+          downloadExecutor.submit(
+              () -> {
+                start.await();
+                download(id, path);
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> result : results) {
+      result.get(1, TimeUnit.MINUTES);
+    }
+  }
+
+  /** Downloads a project through one of the download paths and checks every byte received. */
+  private void download(String id, int path) throws IOException {
+    byte[] expected = dataModels.get(id);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    switch (path) {
+      case 0:
+        {
+          ObjectSequence sequence = classUnderTest.dataModelSequence(id);
+          classUnderTest.writeSequence(sequence, 0, sequence.getContentLength() - 1, out);
+          assertArrayEquals(id, expected, out.toByteArray());
+          break;
+        }
+      case 1:
+        {
+          ObjectSequence sequence = classUnderTest.dataModelSequence(id);
+          classUnderTest.writeSequence(sequence, 7, expected.length - 8, out);
+          assertArrayEquals(
+              id, Arrays.copyOfRange(expected, 7, expected.length - 7), out.toByteArray());
+          break;
+        }
+      case 2:
+        {
+          classUnderTest.writeCompressedSequence(classUnderTest.dataModelSequence(id), out);
+          byte[] decoded =
+              StreamUtils.copyToByteArray(
+                  new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+          assertArrayEquals(id, expected, decoded);
+          break;
+        }
+      case 3:
+        assertArrayEquals(id, screenShots.get(id), classUnderTest.codeBaseScreenShots(id, null));
+        break;
+      default:
+        {
+          classUnderTest.writeZip(classUnderTest.bundleSequence(id), out);
+          ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+          int entries = 0;
+          for (ZipEntry entry; (entry = zip.getNextEntry()) != null; entries++) {
+            assertArrayEquals(
+                id + "/" + entry.getName(),
+                stored.get(entry.getName()),
+                StreamUtils.copyToByteArray(zip));
+          }
+          assertEquals(id, 4, entries);
+        }
+    }
+  }
+
+  private String store(StorageService storage, String key, String contentType, byte[] content) {
+    stored.put(key, content);
+    return storage.store(new MockMultipartFile("file", key, contentType, content));
+  }
+
+  /** @return a few KB of SQL text unique to the project, which is stored compressed */
+  private byte[] dataModel(Random random, int project) {
+    StringBuilder model = new StringBuilder();
+    int rows = 50 + random.nextInt(150);
+    for (int i = 0; i < rows; i++) {
+      model
+          .append("insert into project_")
+          .append(project)
+          .append(" values (")
+          .append(random.nextInt())
+          .append(");\n");
+    }
+    return model.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
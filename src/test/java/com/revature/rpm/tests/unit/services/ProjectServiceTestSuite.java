@@ -4,24 +4,57 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
 import com.revature.rpm.dtos.ProjectDTO;
+import com.revature.rpm.entities.AssetMetadata;
 import com.revature.rpm.entities.Project;
+import com.revature.rpm.entities.Thumbnail;
 import com.revature.rpm.exceptions.BadRequestException;
 import com.revature.rpm.exceptions.FileSizeTooLargeException;
 import com.revature.rpm.exceptions.ProjectNotAddedException;
 import com.revature.rpm.exceptions.ProjectNotFoundException;
 import com.revature.rpm.repositories.ProjectRepository;
+import com.revature.rpm.services.AsyncStorageServiceImpl;
 import com.revature.rpm.services.FileServiceImpl;
+import com.revature.rpm.services.ObjectSequence;
 import com.revature.rpm.services.ProjectService;
 import com.revature.rpm.services.S3StorageServiceImpl;
+import com.revature.rpm.services.ScreenShotNormalizer;
+import com.revature.rpm.services.StorageMetadata;
+import com.revature.rpm.services.StorageObject;
+import com.revature.rpm.services.ThumbnailService;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.imageio.ImageIO;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -32,10 +65,18 @@ import org.junit.experimental.theories.Theories;
 import org.junit.experimental.theories.Theory;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 /** Test suite for ProjectService. */
@@ -51,12 +92,18 @@ public class ProjectServiceTestSuite {
   // A simulated ProjectRespository
   private ProjectRepository testRepo = Mockito.mock(ProjectRepository.class);
 
+  // A simulated MongoOperations, for the updates made in place
+  private MongoOperations mongoOperations = Mockito.mock(MongoOperations.class);
+
   // A simulated StorageService
   private S3StorageServiceImpl testStorage = Mockito.mock(S3StorageServiceImpl.class);
 
   // A simulated FileService
   private FileServiceImpl testFileService = Mockito.mock(FileServiceImpl.class);
 
+  // The pool assets are uploaded and downloaded on
+  private ExecutorService uploadExecutor;
+
   // A simulated ProjectDTO
   private ProjectDTO mockProjectDTO = Mockito.mock(ProjectDTO.class);
 
@@ -114,7 +161,19 @@ public class ProjectServiceTestSuite {
   /** Ran before each test */
   @Before
   public void preTestInit() {
-    classUnderTest = new ProjectService(testRepo, testStorage, testFileService);
+    uploadExecutor = Executors.newFixedThreadPool(4);
+    AsyncStorageServiceImpl asyncStorage = new AsyncStorageServiceImpl(testStorage, uploadExecutor);
+    classUnderTest =
+        new ProjectService(
+            testRepo,
+            mongoOperations,
+            testStorage,
+            asyncStorage,
+            testFileService,
+            new ThumbnailService(testStorage, uploadExecutor, new int[] {64}),
+            new ScreenShotNormalizer(asyncStorage, uploadExecutor),
+            uploadExecutor,
+            uploadExecutor);
     dummyList = new ArrayList<>();
     dummyListEmpty = new ArrayList<>();
     dummyList.add(dummyProject);
@@ -129,6 +188,7 @@ public class ProjectServiceTestSuite {
   /** Ran after each test */
   @After
   public void postTestCleanUp() {
+    uploadExecutor.shutdownNow();
     dummyList = null;
     dummyListEmpty = null;
     listZipLink = null;
@@ -344,6 +404,23 @@ public class ProjectServiceTestSuite {
     assertThat(classUnderTest.deleteById(dummyString)).isEqualTo(Boolean.TRUE);
   }
 
+  /** Assert that deleteById() releases every stored asset of the deleted project. */
+  @Test
+  public void T_deleteById_ReleasesAssets() {
+    when(testRepo.findById(dummyString)).thenReturn(Optional.of(dummyProject));
+    when(dummyProject.getScreenShots())
+        .thenReturn(Arrays.asList("https://bucket.s3.amazonaws.com/shot.png"));
+    when(dummyProject.getDataModel())
+        .thenReturn(Arrays.asList("https://bucket.s3.amazonaws.com/model.sql"));
+
+    assertThat(classUnderTest.deleteById(dummyString)).isEqualTo(Boolean.TRUE);
+
+    Mockito.verify(testRepo).deleteById(dummyString);
+    Mockito.verify(testStorage).release("shot.png");
+    Mockito.verify(testStorage).release("model.sql");
+    Mockito.verify(testStorage, Mockito.times(2)).release(Mockito.anyString());
+  }
+
   /**
    * Checks if userId, description, name, batch, groupmembers, Ziplinks, techStack, Status, or
    * Trainer is Null. All fields are valid.
@@ -645,8 +722,8 @@ public class ProjectServiceTestSuite {
     when(mockMultipartFile.getSize()).thenReturn(1_000_000L);
 
     try {
-      when(testFileService.download(Mockito.anyString())).thenReturn(mockFile);
-      when(mockFile.length()).thenReturn(1_000_000_001L);
+      when(testFileService.download(Mockito.anyString(), Mockito.eq(1_000_000_000L)))
+          .thenThrow(new FileSizeTooLargeException("The file size of: master.zip exceeds 1GB"));
       assertThatExceptionOfType(FileSizeTooLargeException.class)
           .isThrownBy(
               () -> {
@@ -677,8 +754,7 @@ public class ProjectServiceTestSuite {
     when(testRepo.save(Mockito.any())).thenReturn(new Project());
 
     try {
-      when(testFileService.download(Mockito.anyString())).thenReturn(mockFile);
-      when(mockFile.length()).thenReturn(1_000L);
+      when(testFileService.download(Mockito.anyString(), Mockito.anyLong())).thenReturn(mockFile);
       when(testStorage.store(mockMultipartFile)).thenReturn(dummyString);
 
       assertTrue(classUnderTest.createProjectFromDTO(mockProjectDTO) instanceof Project);
@@ -690,6 +766,218 @@ public class ProjectServiceTestSuite {
     }
   }
 
+  /**
+   * Test that links are listed in submission order even when the uploads finish out of order. The
+   * first screenshot is the slowest to upload.
+   */
+  @Test
+  public void T_createProjectFromDTO_PreservesOrder() throws IOException {
+    MultipartFile slowScreenShot = Mockito.mock(MultipartFile.class);
+    MultipartFile fastScreenShot = Mockito.mock(MultipartFile.class);
+    List<MultipartFile> screenShots = new ArrayList<>();
+    screenShots.add(slowScreenShot);
+    screenShots.add(fastScreenShot);
+
+    when(mockProjectDTO.getUserId()).thenReturn(1);
+    when(mockProjectDTO.getName()).thenReturn(dummyString);
+    when(mockProjectDTO.getBatch()).thenReturn(dummyString);
+    when(mockProjectDTO.getTrainer()).thenReturn(dummyString);
+    when(mockProjectDTO.getGroupMembers()).thenReturn(mockListString);
+    when(mockProjectDTO.getTechStack()).thenReturn(dummyString);
+    when(mockProjectDTO.getDescription()).thenReturn(dummyString);
+    when(mockProjectDTO.getScreenShots()).thenReturn(screenShots);
+    when(mockProjectDTO.getDataModel()).thenReturn(listMultipartFile);
+    when(mockProjectDTO.getZipLinks()).thenReturn(listZipLink);
+    when(testRepo.save(Mockito.any())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(testFileService.download(Mockito.anyString(), Mockito.anyLong())).thenReturn(mockFile);
+    when(testStorage.store(mockFile)).thenReturn("zip");
+    when(testStorage.store(mockMultipartFile)).thenReturn("model");
+    when(testStorage.store(fastScreenShot)).thenReturn("fast");
+    when(testStorage.store(slowScreenShot))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(200);
+              return "slow";
+            });
+
+    Project result = classUnderTest.createProjectFromDTO(mockProjectDTO);
+
+    assertEquals(Arrays.asList("slow", "fast"), result.getScreenShots());
+    assertEquals(Arrays.asList("model"), result.getDataModel());
+    assertEquals(Arrays.asList("zip"), result.getZipLinks());
+  }
+
+  /**
+   * Test that when one screenshot fails to upload, the submission is rejected and everything the
+   * other uploads stored is released, including an upload that finishes after the failure.
+   */
+  @Test
+  public void T_createProjectFromDTO_ReleasesStoredUploadsOnFailure() {
+    MultipartFile slowScreenShot = Mockito.mock(MultipartFile.class);
+    MultipartFile failingScreenShot = Mockito.mock(MultipartFile.class);
+
+    when(mockProjectDTO.getUserId()).thenReturn(1);
+    when(mockProjectDTO.getName()).thenReturn(dummyString);
+    when(mockProjectDTO.getBatch()).thenReturn(dummyString);
+    when(mockProjectDTO.getTrainer()).thenReturn(dummyString);
+    when(mockProjectDTO.getGroupMembers()).thenReturn(mockListString);
+    when(mockProjectDTO.getTechStack()).thenReturn(dummyString);
+    when(mockProjectDTO.getDescription()).thenReturn(dummyString);
+    when(mockProjectDTO.getScreenShots())
+        .thenReturn(Arrays.asList(slowScreenShot, failingScreenShot));
+    when(mockProjectDTO.getDataModel()).thenReturn(listMultipartFile);
+    when(mockProjectDTO.getZipLinks()).thenReturn(listZipLink);
+    when(testFileService.download(Mockito.anyString(), Mockito.anyLong())).thenReturn(mockFile);
+    when(testStorage.store(mockFile)).thenReturn("https://bucket.s3.amazonaws.com/repo.zip");
+    when(testStorage.store(mockMultipartFile)).thenReturn("https://bucket.s3.amazonaws.com/m.sql");
+    when(testStorage.store(failingScreenShot)).thenThrow(new IllegalStateException("unavailable"));
+    when(testStorage.store(slowScreenShot))
+        .thenAnswer(
+            invocation -> {
+              Thread.sleep(200);
+              return "https://bucket.s3.amazonaws.com/slow.png";
+            });
+
+    assertThatExceptionOfType(IllegalStateException.class)
+        .isThrownBy(() -> classUnderTest.createProjectFromDTO(mockProjectDTO))
+        .withMessage("unavailable");
+
+    Mockito.verify(testStorage).release("slow.png");
+    Mockito.verify(testStorage).release("m.sql");
+    Mockito.verify(testStorage).release("repo.zip");
+    Mockito.verify(testStorage, Mockito.times(3)).release(Mockito.anyString());
+    Mockito.verify(testRepo, Mockito.never()).save(Mockito.any());
+  }
+
+  /** Test that a project with invalid details is rejected before anything is stored. */
+  @Test
+  public void T_createProjectFromDTO_InvalidDetailsStoresNothing() {
+    when(mockProjectDTO.getUserId()).thenReturn(1);
+    when(mockProjectDTO.getName()).thenReturn("");
+    when(mockProjectDTO.getBatch()).thenReturn(dummyString);
+    when(mockProjectDTO.getTrainer()).thenReturn(dummyString);
+    when(mockProjectDTO.getGroupMembers()).thenReturn(mockListString);
+    when(mockProjectDTO.getTechStack()).thenReturn(dummyString);
+    when(mockProjectDTO.getDescription()).thenReturn(dummyString);
+    when(mockProjectDTO.getScreenShots()).thenReturn(listMultipartFile);
+    when(mockProjectDTO.getDataModel()).thenReturn(listMultipartFile);
+    when(mockProjectDTO.getZipLinks()).thenReturn(listZipLink);
+
+    assertThatExceptionOfType(ProjectNotAddedException.class)
+        .isThrownBy(() -> classUnderTest.createProjectFromDTO(mockProjectDTO));
+    Mockito.verify(testStorage, Mockito.never()).store(mockMultipartFile);
+    Mockito.verify(testFileService, Mockito.never())
+        .download(Mockito.anyString(), Mockito.anyLong());
+  }
+
+  /** Test that the uploads of a project left without any zip archive are released. */
+  @Test
+  public void T_createProjectFromDTO_ReleasesUploadsOfInvalidProject() {
+    when(mockProjectDTO.getUserId()).thenReturn(1);
+    when(mockProjectDTO.getName()).thenReturn(dummyString);
+    when(mockProjectDTO.getBatch()).thenReturn(dummyString);
+    when(mockProjectDTO.getTrainer()).thenReturn(dummyString);
+    when(mockProjectDTO.getGroupMembers()).thenReturn(mockListString);
+    when(mockProjectDTO.getTechStack()).thenReturn(dummyString);
+    when(mockProjectDTO.getDescription()).thenReturn(dummyString);
+    when(mockProjectDTO.getScreenShots()).thenReturn(listMultipartFile);
+    when(mockProjectDTO.getDataModel()).thenReturn(listMultipartFile);
+    when(mockProjectDTO.getZipLinks()).thenReturn(listZipLink);
+    when(testFileService.download(Mockito.anyString(), Mockito.anyLong())).thenReturn(null);
+    when(testStorage.store(mockMultipartFile)).thenReturn("https://bucket.s3.amazonaws.com/m.sql");
+
+    assertThatExceptionOfType(ProjectNotAddedException.class)
+        .isThrownBy(() -> classUnderTest.createProjectFromDTO(mockProjectDTO));
+    Mockito.verify(testStorage, Mockito.times(2)).release("m.sql");
+    Mockito.verify(testRepo, Mockito.never()).save(Mockito.any());
+  }
+
+  /** Test that the metadata of every stored asset is saved with the project. */
+  @Test
+  public void T_createProjectFromDTO_SavesAssetMetadata() {
+    when(mockProjectDTO.getUserId()).thenReturn(1);
+    when(mockProjectDTO.getName()).thenReturn(dummyString);
+    when(mockProjectDTO.getBatch()).thenReturn(dummyString);
+    when(mockProjectDTO.getTrainer()).thenReturn(dummyString);
+    when(mockProjectDTO.getGroupMembers()).thenReturn(mockListString);
+    when(mockProjectDTO.getTechStack()).thenReturn(dummyString);
+    when(mockProjectDTO.getDescription()).thenReturn(dummyString);
+    when(mockProjectDTO.getScreenShots()).thenReturn(listMultipartFile);
+    when(mockProjectDTO.getDataModel()).thenReturn(listMultipartFile);
+    when(mockProjectDTO.getZipLinks()).thenReturn(listZipLink);
+    when(testRepo.save(Mockito.any())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(testFileService.download(Mockito.anyString(), Mockito.anyLong())).thenReturn(mockFile);
+    when(testStorage.store(mockFile)).thenReturn("https://bucket.s3.amazonaws.com/repo.zip");
+    when(testStorage.store(mockMultipartFile)).thenReturn("https://bucket.s3.amazonaws.com/a.png");
+    when(testStorage.getMetadata("a.png"))
+        .thenReturn(new StorageMetadata("a.png", 10, "image/png", "etag-a", 1_000L));
+    when(testStorage.getMetadata("repo.zip")).thenThrow(new IllegalStateException("unavailable"));
+
+    Project result = classUnderTest.createProjectFromDTO(mockProjectDTO);
+
+    AssetMetadata screenShot = new AssetMetadata("a.png", 10, "image/png", "etag-a", 1_000L);
+    assertEquals(Arrays.asList(screenShot, screenShot), result.getAssets());
+  }
+
+  /** Test that thumbnails are made once the project is saved, and then pushed onto it. */
+  @Test
+  public void T_createProjectFromDTO_AddsThumbnailsAfterSave() throws IOException {
+    thumbnailSubmission();
+    when(mongoOperations.updateFirst(
+            Mockito.any(Query.class), Mockito.any(Update.class), Mockito.eq(Project.class)))
+        .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+    Project result = classUnderTest.createProjectFromDTO(mockProjectDTO);
+
+    assertNull(result.getThumbnails());
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    Mockito.verify(mongoOperations, Mockito.timeout(5000))
+        .updateFirst(
+            Mockito.eq(query(where("_id").is("p1"))),
+            update.capture(),
+            Mockito.eq(Project.class));
+    assertTrue(update.getValue().modifies("thumbnails"));
+    assertTrue(update.getValue().modifies("assets"));
+    Mockito.verify(testRepo).save(Mockito.any());
+    Mockito.verify(testStorage, Mockito.never()).release("thumbnail-64w-shot.png.png");
+  }
+
+  /** Test that thumbnails of a project deleted while they were being made are released. */
+  @Test
+  public void T_createProjectFromDTO_ReleasesThumbnailsOfDeletedProject() throws IOException {
+    thumbnailSubmission();
+    when(mongoOperations.updateFirst(
+            Mockito.any(Query.class), Mockito.any(Update.class), Mockito.eq(Project.class)))
+        .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+    classUnderTest.createProjectFromDTO(mockProjectDTO);
+
+    Mockito.verify(testStorage, Mockito.timeout(5000)).release("thumbnail-64w-shot.png.png");
+  }
+
+  /** Test that an archive whose transfer was cancelled while downloading is still deleted. */
+  @Test
+  public void T_storeZipArchive_DiscardsCancelledArchive() throws Exception {
+    File directory = Files.createTempDirectory("archive").toFile();
+    File zipArchive = new File(directory, "repo.zip");
+    assertTrue(zipArchive.createNewFile());
+    CountDownLatch cancelled = new CountDownLatch(1);
+    when(testFileService.download(Mockito.anyString(), Mockito.anyLong()))
+        .thenAnswer(
+            invocation -> {
+              cancelled.await();
+              return zipArchive;
+            });
+
+    assertTrue(classUnderTest.storeZipArchive("link").cancel(false));
+    cancelled.countDown();
+    uploadExecutor.shutdown();
+    assertTrue(uploadExecutor.awaitTermination(5, TimeUnit.SECONDS));
+
+    assertFalse(directory.exists());
+    Mockito.verify(testStorage, Mockito.never()).store(zipArchive);
+  }
+
   /** Passed in Null Ziplink to createProjectFromDTO(). Should throw exception. */
   @Test
   public void T_createProjectFromDTO_NullZiplinks() {
@@ -708,8 +996,7 @@ public class ProjectServiceTestSuite {
     when(testRepo.save(Mockito.any())).thenReturn(new Project());
 
     try {
-      when(testFileService.download(Mockito.anyString())).thenReturn(mockFile);
-      when(mockFile.length()).thenReturn(1_000L);
+      when(testFileService.download(Mockito.anyString(), Mockito.anyLong())).thenReturn(mockFile);
       when(testStorage.store(mockMultipartFile)).thenReturn(dummyString);
 
       assertThatExceptionOfType(ProjectNotAddedException.class)
@@ -743,8 +1030,7 @@ public class ProjectServiceTestSuite {
     when(testRepo.save(Mockito.any())).thenReturn(new Project());
 
     try {
-      when(testFileService.download(Mockito.anyString())).thenReturn(mockFile);
-      when(mockFile.length()).thenReturn(1_000L);
+      when(testFileService.download(Mockito.anyString(), Mockito.anyLong())).thenReturn(mockFile);
       when(testStorage.store(mockMultipartFile)).thenReturn(dummyString);
 
       assertThatExceptionOfType(ProjectNotAddedException.class)
@@ -778,8 +1064,7 @@ public class ProjectServiceTestSuite {
     when(testRepo.save(Mockito.any())).thenReturn(new Project());
 
     try {
-      when(testFileService.download(Mockito.anyString())).thenReturn(mockFile);
-      when(mockFile.length()).thenReturn(1_000L);
+      when(testFileService.download(Mockito.anyString(), Mockito.anyLong())).thenReturn(mockFile);
       when(testStorage.store(mockMultipartFile)).thenReturn(dummyString);
 
       assertThatExceptionOfType(ProjectNotAddedException.class)
@@ -833,4 +1118,582 @@ public class ProjectServiceTestSuite {
               classUnderTest.createProjectFromDTO(mockProjectDTO);
             });
   }
+
+  /**
+   * Test that an asynchronously submitted project is saved with its uploads and the Ingesting
+   * status, without waiting for its zip archives.
+   */
+  @Test
+  public void T_createIngestingProject_SkipsZipArchives() throws IOException {
+    when(mockProjectDTO.getUserId()).thenReturn(1);
+    when(mockProjectDTO.getName()).thenReturn(dummyString);
+    when(mockProjectDTO.getBatch()).thenReturn(dummyString);
+    when(mockProjectDTO.getTrainer()).thenReturn(dummyString);
+    when(mockProjectDTO.getGroupMembers()).thenReturn(mockListString);
+    when(mockProjectDTO.getTechStack()).thenReturn(dummyString);
+    when(mockProjectDTO.getDescription()).thenReturn(dummyString);
+    when(mockProjectDTO.getScreenShots()).thenReturn(listMultipartFile);
+    when(mockProjectDTO.getDataModel()).thenReturn(listMultipartFile);
+    when(mockProjectDTO.getZipLinks()).thenReturn(listZipLink);
+    when(testRepo.save(Mockito.any())).thenAnswer(invocation -> invocation.getArgument(0));
+    when(testStorage.store(mockMultipartFile)).thenReturn("upload");
+
+    Project result = classUnderTest.createIngestingProject("p1", mockProjectDTO);
+
+    assertEquals("p1", result.getId());
+    assertEquals("Ingesting", result.getStatus());
+    assertEquals(Arrays.asList("upload"), result.getScreenShots());
+    assertEquals(Arrays.asList("upload"), result.getDataModel());
+    assertNull(result.getZipLinks());
+    Mockito.verify(testFileService, Mockito.never())
+        .download(Mockito.anyString(), Mockito.anyLong());
+  }
+
+  /** Test that an asynchronous submission without zip links is rejected before storing anything. */
+  @Test
+  public void T_createIngestingProject_NoZipLinks() {
+    when(mockProjectDTO.getScreenShots()).thenReturn(listMultipartFile);
+    when(mockProjectDTO.getDataModel()).thenReturn(listMultipartFile);
+    when(mockProjectDTO.getZipLinks()).thenReturn(new ArrayList<>());
+
+    assertThatExceptionOfType(ProjectNotAddedException.class)
+        .isThrownBy(() -> classUnderTest.createIngestingProject("p1", mockProjectDTO));
+    Mockito.verify(testStorage, Mockito.never()).store(mockMultipartFile);
+    Mockito.verify(testRepo, Mockito.never()).save(Mockito.any());
+  }
+
+  /** Test that completing an ingestion adds the zip archives and moves the project on. */
+  @Test
+  public void T_completeIngestion_AddsZipLinks() {
+    when(testRepo.findById("p1")).thenReturn(Optional.of(ingestingProject()));
+    Project completed = ingestingProject();
+    completed.setStatus("Pending");
+    completed.setZipLinks(Arrays.asList("zip1", "zip2"));
+    when(mongoOperations.findAndModify(
+            Mockito.any(Query.class),
+            Mockito.any(Update.class),
+            Mockito.any(FindAndModifyOptions.class),
+            Mockito.eq(Project.class)))
+        .thenReturn(completed);
+
+    Project result = classUnderTest.completeIngestion("p1", Arrays.asList("zip1", "zip2"));
+
+    assertEquals(completed, result);
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    Mockito.verify(mongoOperations)
+        .findAndModify(
+            Mockito.eq(query(where("_id").is("p1").and("status").is("Ingesting"))),
+            update.capture(),
+            Mockito.any(FindAndModifyOptions.class),
+            Mockito.eq(Project.class));
+    Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+    assertEquals("Pending", set.get("status"));
+    assertTrue(update.getValue().modifies("zipLinks"));
+    assertTrue(update.getValue().modifies("assets"));
+    Mockito.verify(testRepo, Mockito.never()).save(Mockito.any());
+  }
+
+  /** Test that a project without any stored zip archive cannot be completed. */
+  @Test
+  public void T_completeIngestion_NoZipLinks() {
+    when(testRepo.findById("p1")).thenReturn(Optional.of(ingestingProject()));
+
+    assertThatExceptionOfType(ProjectNotAddedException.class)
+        .isThrownBy(() -> classUnderTest.completeIngestion("p1", new ArrayList<>()));
+    Mockito.verifyZeroInteractions(mongoOperations);
+  }
+
+  /** Test that a project already completed is not given its zip archives twice. */
+  @Test
+  public void T_completeIngestion_AlreadyCompleted() {
+    Project project = ingestingProject();
+    project.setStatus("Pending");
+    project.setZipLinks(new ArrayList<>(Arrays.asList("zip1")));
+    when(testRepo.findById("p1")).thenReturn(Optional.of(project));
+
+    Project result = classUnderTest.completeIngestion("p1", Arrays.asList("zip1"));
+
+    assertEquals(Arrays.asList("zip1"), result.getZipLinks());
+    Mockito.verifyZeroInteractions(mongoOperations);
+  }
+
+  /** Test that abandoning an ingestion releases the uploads and the archives stored so far. */
+  @Test
+  public void T_abandonIngestion_ReleasesAssets() {
+    when(testRepo.findById("p1")).thenReturn(Optional.of(ingestingProject()));
+
+    classUnderTest.abandonIngestion(
+        "p1", Arrays.asList("https://bucket.s3.amazonaws.com/repo.zip"));
+
+    Mockito.verify(testRepo).deleteById("p1");
+    Mockito.verify(testStorage).release("shot.png");
+    Mockito.verify(testStorage).release("model.sql");
+    Mockito.verify(testStorage).release("repo.zip");
+  }
+
+  /**
+   * Test that data models are streamed from storage in submission order, each followed by the
+   * ENDOFFILE marker, with a data model stored compressed decoded on the way.
+   */
+  @Test
+  public void T_writeSequence_DataModels() throws IOException {
+    byte[] compressed = gzip("create b;");
+    Project project = new Project();
+    project.setDataModel(
+        Arrays.asList(
+            "https://bucket.s3.amazonaws.com/a.sql", "https://bucket.s3.amazonaws.com/b.sql"));
+    project.setAssets(
+        Arrays.asList(
+            new AssetMetadata("a.sql", 9, "text/plain", "etag-a", 1_000L),
+            new AssetMetadata(
+                "b.sql", compressed.length, "text/plain", "etag-b", 2_000L, "gzip", 9)));
+    when(testRepo.findById(dummyString)).thenReturn(Optional.of(project));
+    when(testStorage.openStream("a.sql")).thenReturn(storageObject("a.sql", "create a;"));
+    when(testStorage.openStream("b.sql"))
+        .thenReturn(
+            new StorageObject(
+                "b.sql", compressed.length, "text/plain", new ByteArrayInputStream(compressed)));
+
+    ObjectSequence sequence = classUnderTest.dataModelSequence(dummyString);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    classUnderTest.writeSequence(sequence, 0, sequence.getContentLength() - 1, out);
+
+    assertEquals("create a;\nENDOFFILEcreate b;\nENDOFFILE", out.toString("UTF-8"));
+  }
+
+  /** Assert that writeSequence() only reads the bytes of the requested range from storage. */
+  @Test
+  public void T_writeSequence_Range() throws IOException {
+    ObjectSequence sequence =
+        new ObjectSequence(
+            Arrays.asList(
+                new StorageMetadata("a.sql", 9, "text/plain", "etag-a"),
+                new StorageMetadata("b.sql", 9, "text/plain", "etag-b")),
+            "\nENDOFFILE".getBytes("UTF-8"));
+    when(testStorage.openStream("a.sql", 5, 8)).thenReturn(storageObject("a.sql", "e a;"));
+    when(testStorage.openStream("b.sql", 0, 3)).thenReturn(storageObject("b.sql", "crea"));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    classUnderTest.writeSequence(sequence, 5, 22, out);
+
+    assertEquals(38, sequence.getContentLength());
+    assertEquals("e a;\nENDOFFILEcrea", out.toString("UTF-8"));
+    Mockito.verify(testStorage, Mockito.never()).openStream(Mockito.anyString());
+  }
+
+  /** Assert that dataModelSequence() describes the data models without asking storage. */
+  @Test
+  public void T_dataModelSequence_SavedMetadata() {
+    Project project = new Project();
+    project.setDataModel(
+        Arrays.asList(
+            "https://bucket.s3.amazonaws.com/a.sql", "https://bucket.s3.amazonaws.com/b.sql"));
+    project.setAssets(
+        Arrays.asList(
+            new AssetMetadata("a.sql", 9, "text/plain", "etag-a", 1_000L),
+            new AssetMetadata("b.sql", 7, "text/plain", "etag-b", 2_000L)));
+    when(testRepo.findById(dummyString)).thenReturn(Optional.of(project));
+
+    ObjectSequence sequence = classUnderTest.dataModelSequence(dummyString);
+
+    assertEquals(9 + 7 + 2 * "\nENDOFFILE".length(), sequence.getContentLength());
+    assertEquals(2_000L, sequence.getLastModified());
+    Mockito.verify(testStorage, Mockito.never()).getMetadata(Mockito.anyString());
+  }
+
+  /** Assert that screenShotSequence() describes thumbnails in place of their screenshots. */
+  @Test
+  public void T_screenShotSequence_Thumbnails() {
+    Project project = new Project();
+    project.setScreenShots(
+        Arrays.asList(
+            "https://bucket.s3.amazonaws.com/a.png", "https://bucket.s3.amazonaws.com/b.png"));
+    project.setThumbnails(
+        Arrays.asList(new Thumbnail("a.png", 64, "https://bucket.s3.amazonaws.com/a-64w.png")));
+    project.setAssets(
+        Arrays.asList(
+            new AssetMetadata("a-64w.png", 4, "image/png", "etag-a", 1_000L),
+            new AssetMetadata("b.png", 9, "image/png", "etag-b", 1_000L)));
+    when(testRepo.findById(dummyString)).thenReturn(Optional.of(project));
+
+    ObjectSequence sequence = classUnderTest.screenShotSequence(dummyString, 32);
+
+    assertEquals("a-64w.png", sequence.getObjects().get(0).getKey());
+    assertEquals("b.png", sequence.getObjects().get(1).getKey());
+    assertEquals(13, sequence.getContentLength());
+  }
+
+  /** Assert that screenShotType() trusts a recorded image type and sniffs any other. */
+  @Test
+  public void T_screenShotType() throws IOException {
+    byte[] header = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0};
+    when(testStorage.openStream("old.jpg", 0, 11))
+        .thenReturn(new StorageObject("old.jpg", 4, null, new ByteArrayInputStream(header)));
+
+    assertEquals(
+        "image/png",
+        classUnderTest.screenShotType(new StorageMetadata("new.png", 100, "image/png", "a")));
+    assertEquals(
+        "image/jpeg",
+        classUnderTest.screenShotType(
+            new StorageMetadata("old.jpg", 100, "application/octet-stream", "b")));
+  }
+
+  /** Assert that screenShotSequence() rejects a position past the last screenshot. */
+  @Test(expected = ProjectNotFoundException.class)
+  public void T_screenShotSequence_NoSuchScreenShot() {
+    Project project = new Project();
+    project.setScreenShots(Arrays.asList("https://bucket.s3.amazonaws.com/a.png"));
+    when(testRepo.findById(dummyString)).thenReturn(Optional.of(project));
+
+    classUnderTest.screenShotSequence(dummyString, 1, null);
+  }
+
+  /** Assert that zipLinkSequence() asks storage about archives saved without metadata. */
+  @Test
+  public void T_zipLinkSequence_MissingMetadata() {
+    Project project = new Project();
+    project.setZipLinks(Arrays.asList("https://bucket.s3.amazonaws.com/repo.zip"));
+    StorageMetadata archive = new StorageMetadata("repo.zip", 100, "application/zip", "etag");
+    when(testRepo.findById(dummyString)).thenReturn(Optional.of(project));
+    when(testStorage.getMetadata("repo.zip")).thenReturn(archive);
+
+    ObjectSequence sequence = classUnderTest.zipLinkSequence(dummyString);
+
+    assertEquals(Arrays.asList(archive), sequence.getObjects());
+  }
+
+  /** Assert that writeSequence() stops when an object no longer has its described size. */
+  @Test(expected = IOException.class)
+  public void T_writeSequence_ObjectChanged() throws IOException {
+    ObjectSequence sequence =
+        new ObjectSequence(
+            Arrays.asList(new StorageMetadata("a.sql", 9, "text/plain", "etag-a")), null);
+    when(testStorage.openStream("a.sql")).thenReturn(storageObject("a.sql", "create table a;"));
+
+    classUnderTest.writeSequence(sequence, 0, 8, new ByteArrayOutputStream());
+  }
+
+  /** Assert that writeSequence() decodes a compressed object and counts decoded offsets. */
+  @Test
+  public void T_writeSequence_Compressed() throws IOException {
+    byte[] compressed = gzip("create table a;");
+    ObjectSequence sequence =
+        new ObjectSequence(
+            Arrays.asList(
+                new StorageMetadata(
+                    "a.sql", compressed.length, "text/plain", "etag-a", -1, "gzip", 15)),
+            "\nENDOFFILE".getBytes("UTF-8"));
+    when(testStorage.openStream("a.sql"))
+        .thenReturn(
+            new StorageObject(
+                "a.sql", compressed.length, "text/plain", new ByteArrayInputStream(compressed)));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    classUnderTest.writeSequence(sequence, 7, 17, out);
+
+    assertEquals(25, sequence.getContentLength());
+    assertEquals("table a;\nEN", out.toString("UTF-8"));
+  }
+
+  /** Assert that writeCompressedSequence() sends the whole download as one gzip member. */
+  @Test
+  public void T_writeCompressedSequence() throws IOException {
+    byte[] compressed = gzip("create a;");
+    ObjectSequence sequence =
+        new ObjectSequence(
+            Arrays.asList(
+                new StorageMetadata(
+                    "a.sql", compressed.length, "text/plain", "etag-a", -1, "gzip", 9),
+                new StorageMetadata("b.sql", 9, "text/plain", "etag-b")),
+            "\nENDOFFILE".getBytes("UTF-8"));
+    when(testStorage.openStream("a.sql"))
+        .thenReturn(
+            new StorageObject(
+                "a.sql", compressed.length, "text/plain", new ByteArrayInputStream(compressed)));
+    when(testStorage.openStream("b.sql")).thenReturn(storageObject("b.sql", "create b;"));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    classUnderTest.writeCompressedSequence(sequence, out);
+
+    ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+    StreamUtils.copy(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), decoded);
+    assertEquals("create a;\nENDOFFILEcreate b;\nENDOFFILE", decoded.toString("UTF-8"));
+  }
+
+  /** Assert that writeScreenShotParts() sends each screenshot as a part under its own type. */
+  @Test
+  public void T_writeScreenShotParts() throws IOException {
+    ObjectSequence sequence =
+        new ObjectSequence(
+            Arrays.asList(
+                new StorageMetadata("a.png", 3, "image/png", "etag-a"),
+                new StorageMetadata("b.gif", 2, "image/gif", "etag-b")),
+            null);
+    when(testStorage.openStream("a.png")).thenReturn(storageObject("a.png", "png"));
+    when(testStorage.openStream("b.gif")).thenReturn(storageObject("b.gif", "gf"));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    classUnderTest.writeScreenShotParts(sequence, "xyz", out);
+
+    assertEquals(
+        "--xyz\r\nContent-Type: image/png\r\nContent-Length: 3\r\n"
+            + "Content-Disposition: inline; filename=\"a.png\"\r\n\r\npng\r\n"
+            + "--xyz\r\nContent-Type: image/gif\r\nContent-Length: 2\r\n"
+            + "Content-Disposition: inline; filename=\"b.gif\"\r\n\r\ngf\r\n"
+            + "--xyz--\r\n",
+        out.toString("US-ASCII"));
+  }
+
+  /** Assert that writeZip() stores screenshots without compressing them again. */
+  @Test
+  public void T_writeZip_ScreenShots() throws IOException {
+    ObjectSequence sequence =
+        new ObjectSequence(
+            Arrays.asList(
+                new StorageMetadata("a.png", 3, "image/png", "etag-a"),
+                new StorageMetadata("a.png", 3, "image/png", "etag-a")),
+            null);
+    when(testStorage.openStream("a.png"))
+        .thenReturn(storageObject("a.png", "png"), storageObject("a.png", "png"));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    classUnderTest.writeZip(sequence, out);
+
+    ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+    List<String> names = new ArrayList<>();
+    for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+      names.add(entry.getName());
+      assertEquals(ZipEntry.STORED, entry.getMethod());
+      assertEquals("png", StreamUtils.copyToString(zip, StandardCharsets.UTF_8));
+    }
+    assertEquals(Arrays.asList("a.png", "2-a.png"), names);
+  }
+
+  /** Assert that writeZip() deflates text and streams objects too large to buffer. */
+  @Test
+  public void T_writeZip_Bundle() throws IOException {
+    ReflectionTestUtils.setField(classUnderTest, "bundleBufferLimit", 16L);
+    ObjectSequence sequence =
+        new ObjectSequence(
+            Arrays.asList(
+                new StorageMetadata("a.png", 3, "image/png", "etag-a"),
+                new StorageMetadata("model.sql", 15, "text/plain", "etag-m"),
+                new StorageMetadata("repo.zip", 20, null, "etag-r")),
+            null);
+    when(testStorage.openStream("a.png")).thenReturn(storageObject("a.png", "png"));
+    when(testStorage.openStream("model.sql"))
+        .thenReturn(storageObject("model.sql", "create table a;"));
+    when(testStorage.openStream("repo.zip"))
+        .thenReturn(storageObject("repo.zip", "PK archive contents."));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    classUnderTest.writeZip(sequence, out);
+
+    ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+    ZipEntry entry = zip.getNextEntry();
+    assertEquals("a.png", entry.getName());
+    assertEquals(ZipEntry.STORED, entry.getMethod());
+    assertEquals("png", StreamUtils.copyToString(zip, StandardCharsets.UTF_8));
+    entry = zip.getNextEntry();
+    assertEquals("model.sql", entry.getName());
+    assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+    assertEquals("create table a;", StreamUtils.copyToString(zip, StandardCharsets.UTF_8));
+    entry = zip.getNextEntry();
+    assertEquals("repo.zip", entry.getName());
+    assertEquals("PK archive contents.", StreamUtils.copyToString(zip, StandardCharsets.UTF_8));
+    assertNull(zip.getNextEntry());
+  }
+
+  /** Assert that writeZip() streams an object whose decoded length was not recorded. */
+  @Test
+  public void T_writeZip_UnknownDecodedLength() throws IOException {
+    byte[] encoded = gzip("create table a;");
+    ObjectSequence sequence =
+        new ObjectSequence(
+            Arrays.asList(
+                new StorageMetadata(
+                    "model.sql", encoded.length, "text/plain", "etag-m", -1, "gzip", -1)),
+            null);
+    when(testStorage.openStream("model.sql"))
+        .thenReturn(
+            new StorageObject(
+                "model.sql", encoded.length, "text/plain", new ByteArrayInputStream(encoded)));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    classUnderTest.writeZip(sequence, out);
+
+    ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals("model.sql", zip.getNextEntry().getName());
+    assertEquals("create table a;", StreamUtils.copyToString(zip, StandardCharsets.UTF_8));
+    assertNull(zip.getNextEntry());
+  }
+
+  /**
+   * Assert that writeZip() stops the reads it started ahead of time when the archive cannot be
+   * written, and that their storage streams are closed by the time it returns.
+   */
+  @Test(timeout = 10000)
+  public void T_writeZip_AbandonsPrefetchOnFailure() throws IOException {
+    ObjectSequence sequence =
+        new ObjectSequence(
+            Arrays.asList(
+                new StorageMetadata("a.png", 3, "image/png", "etag-a"),
+                new StorageMetadata("b.png", 1000, "image/png", "etag-b")),
+            null);
+    CountDownLatch reading = new CountDownLatch(1);
+    AtomicBoolean closed = new AtomicBoolean();
+    // never ends, so the read ahead of b.png only stops once it is abandoned
+    InputStream endless =
+        new InputStream() {
+          @Override
+          public int read() {
+            reading.countDown();
+            return 'x';
+          }
+
+          @Override
+          public void close() {
+            closed.set(true);
+          }
+        };
+    when(testStorage.openStream("a.png")).thenReturn(storageObject("a.png", "png"));
+    when(testStorage.openStream("b.png"))
+        .thenReturn(new StorageObject("b.png", 1000, "image/png", endless));
+    OutputStream gone =
+        new OutputStream() {
+          @Override
+          public void write(int b) throws IOException {
+            try {
+              reading.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            throw new IOException("The client went away");
+          }
+        };
+
+    assertThatExceptionOfType(IOException.class)
+        .isThrownBy(() -> classUnderTest.writeZip(sequence, gone));
+    assertTrue(closed.get());
+  }
+
+  /** Assert that bundleSequence() lists screenshots, data models and archives in that order. */
+  @Test
+  public void T_bundleSequence() {
+    Project project = new Project();
+    project.setScreenShots(Arrays.asList("https://bucket.s3.amazonaws.com/a.png"));
+    project.setDataModel(Arrays.asList("https://bucket.s3.amazonaws.com/model.sql"));
+    project.setAssets(
+        Arrays.asList(
+            new AssetMetadata("a.png", 3, "image/png", "etag-a", -1),
+            new AssetMetadata("model.sql", 15, "text/plain", "etag-m", -1)));
+    when(testRepo.findById(dummyString)).thenReturn(Optional.of(project));
+
+    ObjectSequence sequence = classUnderTest.bundleSequence(dummyString);
+
+    assertEquals(2, sequence.getObjects().size());
+    assertEquals("a.png", sequence.getObjects().get(0).getKey());
+    assertEquals("model.sql", sequence.getObjects().get(1).getKey());
+  }
+
+  /** Assert that zipLinkRedirect() does not redirect unless redirects are turned on. */
+  @Test
+  public void T_zipLinkRedirect_Disabled() {
+    assertNull(classUnderTest.zipLinkRedirect(dummyString));
+    Mockito.verifyZeroInteractions(testRepo, testStorage);
+  }
+
+  /** Assert that zipLinkRedirect() presigns a project's only archive. */
+  @Test
+  public void T_zipLinkRedirect_SingleArchive() throws MalformedURLException {
+    ReflectionTestUtils.setField(classUnderTest, "redirectDownloads", true);
+    URL presigned = new URL("https://bucket.s3.amazonaws.com/repo.zip?X-Amz-Signature=abc");
+    when(testRepo.findById(dummyString)).thenReturn(Optional.of(dummyProject));
+    when(dummyProject.getZipLinks())
+        .thenReturn(Arrays.asList("https://bucket.s3.amazonaws.com/repo.zip"));
+    when(testStorage.presignedUrl("repo.zip")).thenReturn(presigned);
+
+    assertEquals(presigned, classUnderTest.zipLinkRedirect(dummyString));
+  }
+
+  /** Assert that zipLinkRedirect() leaves several archives to be concatenated by the service. */
+  @Test
+  public void T_zipLinkRedirect_SeveralArchives() {
+    ReflectionTestUtils.setField(classUnderTest, "redirectDownloads", true);
+    when(testRepo.findById(dummyString)).thenReturn(Optional.of(dummyProject));
+    when(dummyProject.getZipLinks()).thenReturn(Arrays.asList("a/one.zip", "b/two.zip"));
+
+    assertNull(classUnderTest.zipLinkRedirect(dummyString));
+    Mockito.verify(testStorage, Mockito.never()).presignedUrl(Mockito.anyString());
+  }
+
+  /** Compresses the argued text as a stored data model would be. */
+  /** @return a valid project whose zip archives are still being stored */
+  /**
+   * Stubs a valid submission with a single screenshot large enough to be given a 64 pixel wide
+   * thumbnail, saved as project p1.
+   */
+  private void thumbnailSubmission() throws IOException {
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(128, 64, BufferedImage.TYPE_INT_RGB), "png", png);
+    MultipartFile screenShot =
+        new MockMultipartFile("file", "shot.png", "image/png", png.toByteArray());
+    when(mockProjectDTO.getUserId()).thenReturn(1);
+    when(mockProjectDTO.getName()).thenReturn(dummyString);
+    when(mockProjectDTO.getBatch()).thenReturn(dummyString);
+    when(mockProjectDTO.getTrainer()).thenReturn(dummyString);
+    when(mockProjectDTO.getGroupMembers()).thenReturn(mockListString);
+    when(mockProjectDTO.getTechStack()).thenReturn(dummyString);
+    when(mockProjectDTO.getDescription()).thenReturn(dummyString);
+    when(mockProjectDTO.getScreenShots()).thenReturn(Arrays.asList(screenShot));
+    when(mockProjectDTO.getDataModel()).thenReturn(listMultipartFile);
+    when(mockProjectDTO.getZipLinks()).thenReturn(listZipLink);
+    when(testRepo.save(Mockito.any()))
+        .thenAnswer(
+            invocation -> {
+              Project saved = invocation.getArgument(0);
+              saved.setId("p1");
+              return saved;
+            });
+    when(testFileService.download(Mockito.anyString(), Mockito.anyLong())).thenReturn(mockFile);
+    when(testStorage.store(mockFile)).thenReturn("https://bucket.s3.amazonaws.com/repo.zip");
+    when(testStorage.store(mockMultipartFile)).thenReturn("https://bucket.s3.amazonaws.com/m.sql");
+    when(testStorage.store(screenShot)).thenReturn("https://bucket.s3.amazonaws.com/shot.png");
+    when(testStorage.store(
+            Mockito.eq("thumbnail-64w-shot.png.png"),
+            Mockito.any(InputStream.class),
+            Mockito.anyLong(),
+            Mockito.eq("image/png")))
+        .thenReturn("https://bucket.s3.amazonaws.com/thumbnail-64w-shot.png.png");
+  }
+
+  private Project ingestingProject() {
+    return new Project.ProjectBuilder()
+        .setUserId(1)
+        .setName(dummyString)
+        .setBatch(dummyString)
+        .setTrainer(dummyString)
+        .setGroupMembers(mockListString)
+        .setTechStack(dummyString)
+        .setDescription(dummyString)
+        .setScreenShots(Arrays.asList("https://bucket.s3.amazonaws.com/shot.png"))
+        .setDataModel(Arrays.asList("https://bucket.s3.amazonaws.com/model.sql"))
+        .setStatus("Ingesting")
+        .build();
+  }
+
+  private byte[] gzip(String content) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+      out.write(content.getBytes("UTF-8"));
+    }
+    return compressed.toByteArray();
+  }
+
+  /** Builds a StorageObject over the argued text. */
+  private StorageObject storageObject(String key, String content) throws IOException {
+    byte[] bytes = content.getBytes("UTF-8");
+    return new StorageObject(key, bytes.length, "text/plain", new ByteArrayInputStream(bytes));
+  }
 }
@@ -0,0 +1,83 @@
+package com.revature.rpm.tests.unit.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import com.revature.rpm.services.AsyncStorageService;
+import com.revature.rpm.services.ScreenShotNormalizer;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import javax.imageio.ImageIO;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/** Test suite for ScreenShotNormalizer. */
+public class ScreenShotNormalizerTestSuite {
+
+  private AsyncStorageService storage = Mockito.mock(AsyncStorageService.class);
+
+  private ScreenShotNormalizer classUnderTest = new ScreenShotNormalizer(storage, Runnable::run);
+
+  /** Test that a correctly labelled PNG is stored as uploaded. */
+  @Test
+  public void T_store_PassesThroughPng() throws IOException {
+    MockMultipartFile file = new MockMultipartFile("file", "shot.png", "image/png", image("png"));
+    when(storage.store(file)).thenReturn(CompletableFuture.completedFuture("link"));
+
+    assertEquals("link", classUnderTest.store(file).join());
+  }
+
+  /** Test that a JPEG uploaded with a wrong media type is stored under its real one. */
+  @Test
+  public void T_store_CorrectsMediaType() throws IOException {
+    byte[] jpeg = image("jpg");
+    MockMultipartFile file =
+        new MockMultipartFile("file", "shot.jpg", "application/octet-stream", jpeg);
+    when(storage.store(eq("shot.jpg"), any(InputStream.class), eq((long) jpeg.length), any()))
+        .thenReturn(CompletableFuture.completedFuture("link"));
+
+    assertEquals("link", classUnderTest.store(file).join());
+    Mockito.verify(storage)
+        .store(eq("shot.jpg"), any(InputStream.class), anyLong(), eq("image/jpeg"));
+  }
+
+  /** Test that an image browsers cannot display is stored converted to PNG. */
+  @Test
+  public void T_store_ConvertsBmp() throws IOException {
+    MockMultipartFile file = new MockMultipartFile("file", "shot.bmp", "image/bmp", image("bmp"));
+    ArgumentCaptor<InputStream> content = ArgumentCaptor.forClass(InputStream.class);
+    when(storage.store(eq("shot.png"), content.capture(), anyLong(), eq("image/png")))
+        .thenReturn(CompletableFuture.completedFuture("link"));
+
+    assertEquals("link", classUnderTest.store(file).join());
+    BufferedImage converted = ImageIO.read(content.getValue());
+    assertEquals(8, converted.getWidth());
+  }
+
+  /** Test that an image with more pixels than allowed is stored as uploaded, without decoding. */
+  @Test
+  public void T_store_KeepsOversizedImage() throws IOException {
+    ReflectionTestUtils.setField(classUnderTest, "maxPixels", 16L);
+    MockMultipartFile file = new MockMultipartFile("file", "shot.bmp", "image/bmp", image("bmp"));
+    when(storage.store(file)).thenReturn(CompletableFuture.completedFuture("link"));
+
+    assertEquals("link", classUnderTest.store(file).join());
+    Mockito.verify(storage, Mockito.never())
+        .store(Mockito.anyString(), any(InputStream.class), anyLong(), any());
+  }
+
+  private byte[] image(String format) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(8, 4, BufferedImage.TYPE_INT_RGB), format, out);
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,113 @@
+package com.revature.rpm.tests.unit.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.revature.rpm.entities.Thumbnail;
+import com.revature.rpm.services.StorageService;
+import com.revature.rpm.services.ThumbnailService;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/** Test suite for ThumbnailService. */
+public class ThumbnailServiceTestSuite {
+
+  private StorageService storage = Mockito.mock(StorageService.class);
+
+  private ThumbnailService classUnderTest =
+      new ThumbnailService(storage, Runnable::run, new int[] {400, 50, 100});
+
+  /** Test that a thumbnail is stored for every configured width narrower than the screenshot. */
+  @Test
+  public void T_generate_StoresSmallerWidths() throws IOException {
+    ArgumentCaptor<InputStream> content = ArgumentCaptor.forClass(InputStream.class);
+    when(storage.store(
+            eq("thumbnail-50w-shot.png.png"), content.capture(), anyLong(), eq("image/png")))
+        .thenReturn("https://bucket.s3.amazonaws.com/thumbnail-50w-shot.png.png");
+    when(storage.store(
+            eq("thumbnail-100w-shot.png.png"), any(InputStream.class), anyLong(), eq("image/png")))
+        .thenReturn("https://bucket.s3.amazonaws.com/thumbnail-100w-shot.png.png");
+
+    List<Thumbnail> thumbnails =
+        classUnderTest.generate(png(200, 100), "https://bucket.s3.amazonaws.com/shot.png").join();
+
+    assertEquals(
+        Arrays.asList(
+            new Thumbnail(
+                "shot.png", 50, "https://bucket.s3.amazonaws.com/thumbnail-50w-shot.png.png"),
+            new Thumbnail(
+                "shot.png", 100, "https://bucket.s3.amazonaws.com/thumbnail-100w-shot.png.png")),
+        thumbnails);
+    BufferedImage smallest = ImageIO.read(content.getValue());
+    assertEquals(50, smallest.getWidth());
+    assertEquals(25, smallest.getHeight());
+  }
+
+  /** Test that screenshots differing only in their extension get thumbnails of their own. */
+  @Test
+  public void T_generate_KeepsExtensionInKey() throws IOException {
+    classUnderTest.generate(png(200, 100), "https://bucket.s3.amazonaws.com/shot.png").join();
+    classUnderTest.generate(png(200, 100), "https://bucket.s3.amazonaws.com/shot.jpg").join();
+
+    verify(storage)
+        .store(eq("thumbnail-50w-shot.png.png"), any(InputStream.class), anyLong(), any());
+    verify(storage)
+        .store(eq("thumbnail-50w-shot.jpg.png"), any(InputStream.class), anyLong(), any());
+  }
+
+  /** Test that a screenshot with more pixels than allowed is not decoded or scaled. */
+  @Test
+  public void T_generate_RejectsOversizedImage() throws IOException {
+    ReflectionTestUtils.setField(classUnderTest, "maxPixels", 10_000L);
+
+    assertTrue(classUnderTest.generate(png(200, 100), "shot.png").join().isEmpty());
+    verify(storage, Mockito.never())
+        .store(Mockito.anyString(), any(InputStream.class), anyLong(), any());
+  }
+
+  /** Test that a screenshot which is not a readable image gets no thumbnails. */
+  @Test
+  public void T_generate_Unreadable() {
+    MockMultipartFile file = new MockMultipartFile("file", "shot.png", "image/png", new byte[10]);
+
+    assertTrue(classUnderTest.generate(file, "shot.png").join().isEmpty());
+    verify(storage, Mockito.never())
+        .store(Mockito.anyString(), any(InputStream.class), anyLong(), any());
+  }
+
+  /** Test that the smallest thumbnail wide enough is picked, or else the original. */
+  @Test
+  public void T_select() {
+    List<Thumbnail> thumbnails =
+        Arrays.asList(
+            new Thumbnail("shot.png", 100, "b/shot-100w.png"),
+            new Thumbnail("shot.png", 50, "b/shot-50w.png"),
+            new Thumbnail("other.png", 50, "b/other-50w.png"));
+
+    assertEquals("shot-50w.png", classUnderTest.select("shot.png", thumbnails, 40));
+    assertEquals("shot-100w.png", classUnderTest.select("shot.png", thumbnails, 60));
+    assertEquals("shot.png", classUnderTest.select("shot.png", thumbnails, 150));
+    assertEquals("shot.png", classUnderTest.select("shot.png", thumbnails, null));
+  }
+
+  private MockMultipartFile png(int width, int height) throws IOException {
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", png);
+    return new MockMultipartFile("file", "shot.png", "image/png", png.toByteArray());
+  }
+}